@@ -7,7 +7,7 @@ USE vblog;
 CREATE TABLE IF NOT EXISTS `user` (
     `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '用户ID',
     `username` VARCHAR(50) NOT NULL COMMENT '用户名',
-    `password` VARCHAR(64) NOT NULL COMMENT '密码（SHA-256加密）',
+    `password` VARCHAR(255) NOT NULL COMMENT '密码（PBKDF2 加盐哈希，旧数据为 SHA-256，登录后自动升级）',
     `email` VARCHAR(100) DEFAULT NULL COMMENT '邮箱',
     `nickname` VARCHAR(50) DEFAULT NULL COMMENT '昵称',
     `avatar` VARCHAR(255) DEFAULT NULL COMMENT '头像URL',
@@ -19,7 +19,7 @@ CREATE TABLE IF NOT EXISTS `user` (
     UNIQUE KEY `uk_email` (`email`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户表';
 
--- 插入测试用户（密码：123456，SHA-256加密后的值）
+-- 插入测试用户（密码：123456，SHA-256加密后的值，首次登录后自动升级为 PBKDF2）
 INSERT INTO `user` (`username`, `password`, `email`, `nickname`, `status`) 
 VALUES ('admin', '8d969eef6ecad3c29a3a629280e686cf0c3f5d5a86aff3ca12020c923adc6c92', 'admin@example.com', '管理员', 1);
 
@@ -29,6 +29,9 @@ CREATE TABLE IF NOT EXISTS `note` (
     `user_id` BIGINT NOT NULL COMMENT '用户ID',
     `title` VARCHAR(200) NOT NULL COMMENT '笔记标题',
     `content` TEXT NOT NULL COMMENT '笔记内容',
+    `excerpt` VARCHAR(800) DEFAULT NULL COMMENT '正文摘要（保存时生成）',
+    `word_count` INT DEFAULT 0 COMMENT '字数',
+    `content_length` INT DEFAULT 0 COMMENT '正文长度（字符）',
     `status` TINYINT DEFAULT 1 COMMENT '状态：0-草稿，1-发布，2-私密',
     `view_count` INT DEFAULT 0 COMMENT '浏览次数',
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -36,7 +39,10 @@ CREATE TABLE IF NOT EXISTS `note` (
     PRIMARY KEY (`id`),
     KEY `idx_user_id` (`user_id`),
     KEY `idx_status` (`status`),
-    KEY `idx_create_time` (`create_time`)
+    KEY `idx_create_time` (`create_time`),
+    KEY `idx_note_status_create` (`status`, `create_time`, `id`),
+    KEY `idx_note_user_create` (`user_id`, `create_time`, `id`),
+    KEY `idx_note_user_update` (`user_id`, `update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='笔记表';
 
 -- 图片资源表
@@ -47,17 +53,31 @@ CREATE TABLE IF NOT EXISTS `image` (
     `path` VARCHAR(500) NOT NULL COMMENT '服务器存储路径',
     `size` BIGINT DEFAULT 0 COMMENT '文件大小（字节）',
     `content_type` VARCHAR(100) DEFAULT NULL COMMENT 'MIME 类型',
+    `sha256` CHAR(64) DEFAULT NULL COMMENT '文件内容的 SHA-256（十六进制）',
     `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '上传时间',
     PRIMARY KEY (`id`),
     KEY `idx_image_user_id` (`user_id`),
-    KEY `idx_image_create_time` (`create_time`)
+    KEY `idx_image_create_time` (`create_time`),
+    KEY `idx_image_user_create` (`user_id`, `create_time`, `id`),
+    KEY `idx_image_sha256` (`sha256`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='图片资源表';
 
+-- 按内容存储的文件表（相同内容只保存一份，image 记录通过 sha256 引用）
+CREATE TABLE IF NOT EXISTS `file_blob` (
+    `sha256` CHAR(64) NOT NULL COMMENT '文件内容的 SHA-256（十六进制）',
+    `size` BIGINT NOT NULL COMMENT '文件大小（字节）',
+    `url` VARCHAR(255) NOT NULL COMMENT '访问URL（/uploads/xxx）',
+    `path` VARCHAR(500) NOT NULL COMMENT '服务器存储路径',
+    `ref_count` INT NOT NULL DEFAULT 0 COMMENT '引用该文件的 image 记录数',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`sha256`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='按内容存储的文件表';
+
 -- 插入测试笔记
-INSERT INTO `note` (`user_id`, `title`, `content`, `status`) VALUES
-(1, '我的第一篇笔记', '这是一篇测试笔记，欢迎使用Vblog笔记系统！', 1),
-(1, 'Spring Boot学习笔记', 'Spring Boot是一个优秀的Java框架，可以快速搭建应用...', 1),
-(1, '私密笔记', '这是一篇私密笔记，只有作者可以看到。', 2);
+INSERT INTO `note` (`user_id`, `title`, `content`, `excerpt`, `word_count`, `content_length`, `status`) VALUES
+(1, '我的第一篇笔记', '这是一篇测试笔记，欢迎使用Vblog笔记系统！', '这是一篇测试笔记，欢迎使用Vblog笔记系统！', 17, 23, 1),
+(1, 'Spring Boot学习笔记', 'Spring Boot是一个优秀的Java框架，可以快速搭建应用...', 'Spring Boot是一个优秀的Java框架，可以快速搭建应用...', 19, 35, 1),
+(1, '私密笔记', '这是一篇私密笔记，只有作者可以看到。', '这是一篇私密笔记，只有作者可以看到。', 16, 18, 2);
 
 -- 计划表
 CREATE TABLE IF NOT EXISTS `plan` (
@@ -73,5 +93,7 @@ CREATE TABLE IF NOT EXISTS `plan` (
     KEY `idx_plan_user_id` (`user_id`),
     KEY `idx_plan_time` (`plan_time`),
     KEY `idx_plan_status` (`status`),
-    KEY `idx_plan_create_time` (`create_time`)
+    KEY `idx_plan_create_time` (`create_time`),
+    KEY `idx_plan_user_time` (`user_id`, `plan_time`, `id`),
+    KEY `idx_plan_user_update` (`user_id`, `update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='计划表';
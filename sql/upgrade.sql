@@ -0,0 +1,46 @@
+-- 已有数据库的结构升级脚本
+-- 新部署直接使用 init.sql 即可；旧库按顺序执行以下语句
+
+USE vblog;
+
+-- 密码字段加长以容纳 PBKDF2 加盐哈希（旧的 SHA-256 在用户下次登录时自动升级）
+ALTER TABLE `user` MODIFY `password` VARCHAR(255) NOT NULL COMMENT '密码（PBKDF2 加盐哈希，旧数据为 SHA-256，登录后自动升级）';
+
+-- 游标分页使用的组合索引
+ALTER TABLE `note` ADD KEY `idx_note_status_create` (`status`, `create_time`, `id`);
+ALTER TABLE `note` ADD KEY `idx_note_user_create` (`user_id`, `create_time`, `id`);
+ALTER TABLE `plan` ADD KEY `idx_plan_user_time` (`user_id`, `plan_time`, `id`);
+ALTER TABLE `image` ADD KEY `idx_image_user_create` (`user_id`, `create_time`, `id`);
+
+-- 笔记列表摘要字段，列表查询不再读取正文
+ALTER TABLE `note` ADD COLUMN `excerpt` VARCHAR(800) DEFAULT NULL COMMENT '正文摘要（保存时生成）' AFTER `content`;
+ALTER TABLE `note` ADD COLUMN `word_count` INT DEFAULT 0 COMMENT '字数' AFTER `excerpt`;
+ALTER TABLE `note` ADD COLUMN `content_length` INT DEFAULT 0 COMMENT '正文长度（字符）' AFTER `word_count`;
+-- 回填旧数据：摘要和长度与应用一致，字数按去掉空白后的字符数近似，笔记下次保存时会重新计算
+UPDATE `note`
+SET `excerpt` = LEFT(TRIM(REGEXP_REPLACE(`content`, '[[:space:]]+', ' ')), 200),
+    `content_length` = CHAR_LENGTH(`content`),
+    `word_count` = CHAR_LENGTH(REGEXP_REPLACE(`content`, '[[:space:]]+', ''))
+WHERE `excerpt` IS NULL;
+
+-- 上传文件的内容摘要（上传时边写边计算，旧文件为空）
+ALTER TABLE `image` ADD COLUMN `sha256` CHAR(64) DEFAULT NULL COMMENT '文件内容的 SHA-256（十六进制）' AFTER `content_type`;
+
+-- 按内容存储的文件表：相同内容的上传只保存一份，删除最后一个引用时才删除文件
+-- 之前上传的文件不在表中，仍按原路径单独保存和删除
+CREATE TABLE IF NOT EXISTS `file_blob` (
+    `sha256` CHAR(64) NOT NULL COMMENT '文件内容的 SHA-256（十六进制）',
+    `size` BIGINT NOT NULL COMMENT '文件大小（字节）',
+    `url` VARCHAR(255) NOT NULL COMMENT '访问URL（/uploads/xxx）',
+    `path` VARCHAR(500) NOT NULL COMMENT '服务器存储路径',
+    `ref_count` INT NOT NULL DEFAULT 0 COMMENT '引用该文件的 image 记录数',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`sha256`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='按内容存储的文件表';
+
+-- 上传文件改为两级散列目录（images/ab/cd/xxx.png），迁移时按 sha256 更新引用同一文件的记录
+ALTER TABLE `image` ADD KEY `idx_image_sha256` (`sha256`);
+
+-- 流式列表接口的版本查询（COUNT + MAX(update_time)）只读索引
+ALTER TABLE `note` ADD KEY `idx_note_user_update` (`user_id`, `update_time`);
+ALTER TABLE `plan` ADD KEY `idx_plan_user_update` (`user_id`, `update_time`);
@@ -0,0 +1,92 @@
+package org.example.benchmark;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.common.AuthPrincipal;
+import org.example.controller.NoteController;
+import org.example.interceptor.AuthPolicy;
+import org.example.interceptor.JwtInterceptor;
+import org.example.interceptor.RouteAuthTable;
+import org.example.service.RevocationService;
+import org.example.service.TokenService;
+import org.example.util.JwtUtil;
+import org.example.util.TokenHelper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证热路径：JwtInterceptor.preHandle 和 TokenHelper.getUidFromRequest
+ * TokenService 用内存实现替代 Redis
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthInterceptorBenchmark {
+
+    /**
+     * 内存版 TokenService，会话保存在 Map 中
+     */
+    static class InMemoryTokenService extends TokenService {
+        private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+        @Override
+        public void saveToken(String username, String token) {
+            tokens.put(username, token);
+        }
+
+        @Override
+        public boolean verifySession(AuthPrincipal principal, String token) {
+            return token.equals(tokens.get(principal.getUsername()));
+        }
+    }
+
+    private JwtInterceptor interceptor;
+    private TokenHelper tokenHelper;
+    private HandlerMethod handler;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        JwtUtil jwtUtil = BenchmarkSupport.newJwtUtil();
+        InMemoryTokenService tokenService = new InMemoryTokenService();
+        String token = jwtUtil.generateToken(1L, "admin");
+        tokenService.saveToken("admin", token);
+
+        Method method = NoteController.class.getMethod("getMyNotes", HttpServletRequest.class);
+        handler = new HandlerMethod(new NoteController(), method);
+        RouteAuthTable routeAuthTable = new RouteAuthTable();
+        BenchmarkSupport.setField(routeAuthTable, "policies", Map.of(method, AuthPolicy.REQUIRED));
+
+        interceptor = new JwtInterceptor();
+        BenchmarkSupport.setField(interceptor, "jwtUtil", jwtUtil);
+        BenchmarkSupport.setField(interceptor, "tokenService", tokenService);
+        BenchmarkSupport.setField(interceptor, "revocationService", new RevocationService());
+        BenchmarkSupport.setField(interceptor, "routeAuthTable", routeAuthTable);
+
+        tokenHelper = new TokenHelper();
+        request = new MockHttpServletRequest("GET", "/api/note/my");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+    }
+
+    @Benchmark
+    public boolean preHandle() throws Exception {
+        return interceptor.preHandle(request, response, handler);
+    }
+
+    @Benchmark
+    public Long getUidFromRequest() {
+        return tokenHelper.getUidFromRequest(request);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.benchmark;
+
+import org.example.util.JwtUtil;
+
+import java.lang.reflect.Field;
+
+/**
+ * 基准测试辅助方法：不启动 Spring 容器，手动组装被测对象
+ */
+final class BenchmarkSupport {
+
+    static final String SECRET = "VblogSecretKeyForJWTTokenGenerationAndValidation2025";
+    static final long EXPIRATION = 86400000L;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 按 application.properties 中的配置创建 JwtUtil
+     */
+    static JwtUtil newJwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        setField(jwtUtil, "secret", SECRET);
+        setField(jwtUtil, "expiration", EXPIRATION);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    /**
+     * 给 @Autowired / @Value 字段赋值
+     */
+    static void setField(Object target, String name, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("字段不存在: " + name);
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件发送：原来的 FileSystemResource 流复制（经 Java 堆缓冲区）与 FileChannel.transferTo（sendfile）
+ * 发送到本机回环 socket，另一个线程只负责读空接收端，接收端的开销两种方式相同。
+ * 吞吐量 = 文件大小 / 每次耗时；bytes、cpuNanos 为每轮发送的字节数和发送线程的 CPU 时间（用户态 + 内核态），
+ * 每 GB 的 CPU 时间 = cpuNanos / bytes × 2^30。
+ * 运行：mvn -Pjmh compile exec:exec -Djmh.args="FileServeBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FileServeBenchmark {
+
+    /**
+     * 发送线程的 CPU 时间和发送字节数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Cost {
+        public long bytes;
+        public long cpuNanos;
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private long start;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            cpuNanos = 0;
+        }
+
+        @Setup(Level.Invocation)
+        public void begin() {
+            start = threads.getCurrentThreadCpuTime();
+        }
+
+        @TearDown(Level.Invocation)
+        public void end() {
+            cpuNanos += threads.getCurrentThreadCpuTime() - start;
+        }
+    }
+
+    @Param({"1048576", "67108864"})
+    public int fileSize;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drain;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("vblog-serve", ".bin");
+        byte[] data = new byte[fileSize];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel receiver = server.accept();
+        drain = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            try {
+                while (receiver.read(buffer.clear()) >= 0) {
+                    // 丢弃
+                }
+            } catch (IOException e) {
+                // socket 已关闭
+            }
+        }, "benchmark-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        client.close();
+        server.close();
+        drain.join(1000);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * 原来的方式：ResourceHttpMessageConverter 用 StreamUtils.copy 把 FileSystemResource 的输入流复制到响应
+     */
+    @Benchmark
+    public long streamCopy(Cost cost) throws IOException {
+        OutputStream out = client.socket().getOutputStream();
+        try (InputStream in = Files.newInputStream(file)) {
+            int copied = StreamUtils.copy(in, out);
+            cost.bytes += copied;
+            return copied;
+        }
+    }
+
+    /**
+     * FileServeService 的方式：FileChannel.transferTo 直接写入 socket（Linux 上为 sendfile）
+     */
+    @Benchmark
+    public long transferTo(Cost cost) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < fileSize) {
+                position += channel.transferTo(position, fileSize - position, client);
+            }
+            cost.bytes += position;
+            return position;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.benchmark;
+
+import org.example.common.AuthPrincipal;
+import org.example.dto.TokenInfo;
+import org.example.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtil 生成与解析 Token 的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = BenchmarkSupport.newJwtUtil();
+        token = jwtUtil.generateToken(1L, "admin");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(1L, "admin");
+    }
+
+    @Benchmark
+    public TokenInfo parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public AuthPrincipal verify() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.benchmark;
+
+import org.example.util.PasswordUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码哈希耗时：旧的 SHA-256 与不同工作因子的 PBKDF2
+ */
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+
+    /**
+     * 按工作因子预先生成的 PBKDF2 哈希
+     */
+    @State(Scope.Benchmark)
+    public static class Pbkdf2State {
+        @Param({"100000", "310000", "600000"})
+        public int iterations;
+
+        public String stored;
+
+        @Setup
+        public void setUp() {
+            stored = PasswordUtil.hash("123456", iterations);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String encryptSha256() {
+        return PasswordUtil.encrypt("123456");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean verifyPbkdf2(Pbkdf2State state) {
+        return PasswordUtil.verify("123456", state.stored);
+    }
+}
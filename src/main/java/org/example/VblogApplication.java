@@ -3,9 +3,11 @@ package org.example;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("org.example.mapper")
+@EnableScheduling
 public class VblogApplication {
     public static void main(String[] args) {
         SpringApplication.run(VblogApplication.class, args);
@@ -0,0 +1,13 @@
+package org.example.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 游客响应微缓存注解
+ * 标记在对所有游客返回相同内容的 GET 接口上，未携带 Authorization 的请求会在短时间内共享同一份已序列化的响应
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface MicroCached {
+}
@@ -0,0 +1,362 @@
+package org.example.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.example.entity.Note;
+import org.example.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 笔记详情的两级缓存
+ * 一级为本地 Caffeine 缓存，按正文字节数限制总大小，超过阈值的正文以 GZIP 压缩存放；
+ * 二级为 Redis 共享缓存，本地未命中时先查 Redis 再查数据库。
+ * 更新、删除笔记在事务提交后清除两级缓存，并通过 Redis 发布订阅通知所有节点清除本地缓存。
+ * 缓存中的是原始数据，私密笔记的权限检查仍由 NoteService 对每个调用者执行。
+ * 浏览次数与正文分开维护：增量写库后由 updateViewCounts 原地更新本地条目中的次数，并写入 Redis 中单独的计数 key，
+ * 从 Redis 读取笔记时以计数 key 覆盖副本中的快照。浏览次数变化不会清除缓存的正文，也不发送失效通知；
+ * 其他节点本地缓存中的次数在条目过期（note.cache.local-ttl-ms）后更新。
+ */
+@Component
+public class NoteCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteCache.class);
+
+    /**
+     * 失效通知频道，消息内容为笔记ID，多个ID以逗号分隔
+     */
+    public static final String INVALIDATE_CHANNEL = "vblog:note:invalidate";
+
+    // Redis 缓存 key 前缀
+    private static final String NOTE_KEY_PREFIX = "vblog:note:";
+
+    // 已写库的浏览次数 key 前缀
+    private static final String VIEW_COUNT_KEY_PREFIX = "vblog:note:view-count:";
+
+    // 每个条目除正文外的估算开销（字节）
+    private static final int ENTRY_OVERHEAD = 256;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RedisScript<Long> noteViewCountScript;
+
+    @Value("${note.cache.enabled:true}")
+    private boolean enabled;
+
+    // 本地缓存正文总字节数上限
+    @Value("${note.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // 正文超过该字节数时压缩存放
+    @Value("${note.cache.compress-threshold:8192}")
+    private int compressThreshold;
+
+    // 本地缓存有效期（毫秒）
+    @Value("${note.cache.local-ttl-ms:60000}")
+    private long localTtlMs;
+
+    // Redis 缓存有效期（毫秒）
+    @Value("${note.cache.redis-ttl-ms:600000}")
+    private long redisTtlMs;
+
+    private Cache<Long, Entry> cache;
+
+    /**
+     * 失效代数，作用同 SessionCache：读库期间发生了失效就放弃写回
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, Entry entry) -> entry.weight())
+                .expireAfterWrite(Duration.ofMillis(localTtlMs))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 本地缓存条目，正文为原文或 GZIP 压缩后的字节
+     * 浏览次数单独存放，写库后原地更新，不替换条目（替换会重置过期时间）
+     */
+    private record Entry(Note meta, String content, byte[] compressed, AtomicInteger viewCount) {
+
+        int weight() {
+            int body = compressed != null ? compressed.length : content.length() * 2;
+            return ENTRY_OVERHEAD + body;
+        }
+    }
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 当前失效代数，在读数据库之前调用
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 查询缓存，返回的是副本，调用方可以随意修改
+     */
+    public Note get(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(id);
+        if (entry != null) {
+            return toNote(entry);
+        }
+
+        long generationSeen = generation.get();
+        Note note = getFromRedis(id);
+        if (note == null) {
+            return null;
+        }
+        putLocal(note, generationSeen);
+        return note;
+    }
+
+    /**
+     * 查询本地缓存中的笔记版本（不包含正文、不解压），用于条件请求
+     */
+    public Note getVersion(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(id);
+        return entry != null ? copyMeta(entry.meta()) : null;
+    }
+
+    /**
+     * 写入两级缓存
+     *
+     * @param note           从数据库读出的笔记
+     * @param generationSeen 读数据库之前读取的失效代数
+     */
+    public void put(Note note, long generationSeen) {
+        if (!enabled || generation.get() != generationSeen) {
+            return;
+        }
+        putLocal(note, generationSeen);
+        try {
+            stringRedisTemplate.opsForValue().set(NOTE_KEY_PREFIX + note.getId(),
+                    objectMapper.writeValueAsString(note), redisTtlMs, TimeUnit.MILLISECONDS);
+            // 写入期间发生了失效，撤销本次写入
+            if (generation.get() != generationSeen) {
+                stringRedisTemplate.delete(NOTE_KEY_PREFIX + note.getId());
+            }
+        } catch (Exception e) {
+            log.warn("写入笔记缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清除某篇笔记的缓存并通知其他节点
+     * 在事务中调用时推迟到提交之后执行，避免其他请求在提交前把旧数据重新读进缓存
+     */
+    public void evict(Long id) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> evictNow(id));
+    }
+
+    /**
+     * 浏览次数写库后更新缓存中的次数（不清除正文，不通知其他节点）
+     * 本地条目原地更新；Redis 中写入单独的计数 key，只增不减，多个节点先后写入时不会回退
+     *
+     * @param counts 笔记ID -> 数据库中的浏览次数
+     */
+    public void updateViewCounts(Map<Long, Integer> counts) {
+        if (!enabled || counts.isEmpty()) {
+            return;
+        }
+        counts.forEach((id, count) -> {
+            Entry entry = cache.getIfPresent(id);
+            if (entry != null) {
+                entry.viewCount().accumulateAndGet(count, Math::max);
+            }
+        });
+        try {
+            List<String> keys = new ArrayList<>(counts.size());
+            List<String> args = new ArrayList<>(counts.size() + 1);
+            counts.forEach((id, count) -> {
+                keys.add(VIEW_COUNT_KEY_PREFIX + id);
+                args.add(count.toString());
+            });
+            args.add(String.valueOf(redisTtlMs));
+            stringRedisTemplate.execute(noteViewCountScript, keys, args.toArray());
+        } catch (Exception e) {
+            log.warn("写入笔记浏览次数缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 仅清除本节点的缓存
+     */
+    public void invalidateLocal(Long id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * 接收其他节点的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            for (String id : new String(message.getBody(), StandardCharsets.UTF_8).split(",")) {
+                invalidateLocal(Long.parseLong(id.trim()));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的笔记缓存失效通知");
+        }
+    }
+
+    /**
+     * 命中率等统计信息
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("weightedBytes", cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxBytes", maxBytes);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("redisHitCount", redisHits.sum());
+        result.put("redisMissCount", redisMisses.sum());
+        return result;
+    }
+
+    private void evictNow(Long id) {
+        invalidateLocal(id);
+        try {
+            stringRedisTemplate.delete(NOTE_KEY_PREFIX + id);
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, id.toString());
+        } catch (Exception e) {
+            log.warn("清除笔记缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次往返读取 Redis 中的笔记副本和单独的浏览次数，副本中的次数是写入时的快照，取两者中较大的
+     */
+    private Note getFromRedis(Long id) {
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                    .multiGet(List.of(NOTE_KEY_PREFIX + id, VIEW_COUNT_KEY_PREFIX + id));
+            String json = values != null ? values.get(0) : null;
+            if (json == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            Note note = objectMapper.readValue(json, Note.class);
+            if (values.get(1) != null) {
+                int count = Integer.parseInt(values.get(1));
+                if (note.getViewCount() == null || note.getViewCount() < count) {
+                    note.setViewCount(count);
+                }
+            }
+            return note;
+        } catch (Exception e) {
+            log.warn("读取笔记缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void putLocal(Note note, long generationSeen) {
+        String content = note.getContent() != null ? note.getContent() : "";
+        byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+        AtomicInteger viewCount = new AtomicInteger(note.getViewCount() != null ? note.getViewCount() : 0);
+        Entry entry = utf8.length > compressThreshold
+                ? new Entry(copyMeta(note), null, gzip(utf8), viewCount)
+                : new Entry(copyMeta(note), content, null, viewCount);
+        cache.put(note.getId(), entry);
+        // 写入期间发生了失效，撤销本次写入
+        if (generation.get() != generationSeen) {
+            cache.invalidate(note.getId());
+        }
+    }
+
+    private Note toNote(Entry entry) {
+        Note note = copyMeta(entry.meta());
+        note.setContent(entry.compressed() != null ? gunzip(entry.compressed()) : entry.content());
+        note.setViewCount(entry.viewCount().get());
+        return note;
+    }
+
+    /**
+     * 复制除正文以外的字段
+     */
+    private static Note copyMeta(Note source) {
+        Note note = new Note(source);
+        note.setContent(null);
+        return note;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String gunzip(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.util.TokenDigest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已验证会话的本地缓存
+ * 记录 "某个 Token 在 T 之前有效"，命中时拦截器不再访问 Redis。
+ * 缓存 key 使用 Token 的 SHA-256，避免在内存中保存原始 Token。
+ * 登出、刷新 Token、修改密码以及在其他设备重新登录顶掉旧 Token 时，通过 Redis 发布订阅通知所有节点立即失效。
+ */
+@Component
+public class SessionCache implements MessageListener {
+
+    /**
+     * 失效通知频道，消息内容为用户名
+     */
+    public static final String INVALIDATE_CHANNEL = "vblog:session:invalidate";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${session.cache.enabled:true}")
+    private boolean enabled;
+
+    // 缓存有效窗口（毫秒）
+    @Value("${session.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    // 最大缓存条目数
+    @Value("${session.cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, Entry> cache;
+
+    /**
+     * 失效代数，每次失效 +1。
+     * 未命中时先记下代数再去 Redis 校验，写回前代数变了说明期间有人登出，放弃写回，
+     * 避免把刚失效的会话重新放进缓存。
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 缓存条目
+     */
+    private record Entry(String username, long validUntil) {
+    }
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 当前失效代数，在访问 Redis 之前调用
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 查询 Token 是否在缓存中且仍在有效窗口内
+     */
+    public boolean isValid(String token, String username) {
+        if (!enabled) {
+            return false;
+        }
+        Entry entry = cache.getIfPresent(TokenDigest.sha256Hex(token));
+        if (entry == null) {
+            return false;
+        }
+        return entry.validUntil() >= System.currentTimeMillis() && entry.username().equals(username);
+    }
+
+    /**
+     * 记录 Token 已通过 Redis 校验
+     *
+     * @param token         JWT Token
+     * @param username      用户名
+     * @param expiresAt     Token 本身的过期时间戳，有效窗口不会超过它
+     * @param generationSeen 访问 Redis 之前读取的失效代数
+     */
+    public void put(String token, String username, long expiresAt, long generationSeen) {
+        if (!enabled) {
+            return;
+        }
+        long validUntil = Math.min(System.currentTimeMillis() + ttlMs, expiresAt);
+        cache.put(TokenDigest.sha256Hex(token), new Entry(username, validUntil));
+        // 写入期间发生了失效，撤销本次写入
+        if (generation.get() != generationSeen) {
+            invalidateLocal(username);
+        }
+    }
+
+    /**
+     * 使某个用户的所有缓存会话失效，并通知其他节点
+     */
+    public void invalidate(String username) {
+        invalidateLocal(username);
+        if (enabled) {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, username);
+        }
+    }
+
+    /**
+     * 仅清除本节点的缓存
+     */
+    public void invalidateLocal(String username) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.username().equals(username));
+    }
+
+    /**
+     * 接收其他节点的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 命中率等统计信息
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
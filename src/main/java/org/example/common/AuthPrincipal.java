@@ -0,0 +1,63 @@
+package org.example.common;
+
+import org.example.dto.TokenInfo;
+
+import java.util.Date;
+
+/**
+ * 已验证的登录主体（不可变）
+ * 由拦截器对 Token 做一次签名校验后生成并存入 request，
+ * 之后 Controller 和 TokenHelper 只从该对象读取用户信息，不再重复解析 Token
+ */
+public final class AuthPrincipal {
+
+    /**
+     * request 属性名
+     */
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final Long uid;              // 用户ID
+    private final String username;       // 用户名
+    private final long issuedAt;         // 签发时间戳（毫秒）
+    private final long expiresAt;        // 过期时间戳（毫秒）
+
+    public AuthPrincipal(Long uid, String username, long issuedAt, long expiresAt) {
+        this.uid = uid;
+        this.username = username;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getUid() {
+        return uid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * 转换为对外返回的 TokenInfo
+     */
+    public TokenInfo toTokenInfo() {
+        return new TokenInfo(uid, username, new Date(issuedAt), new Date(expiresAt));
+    }
+
+    @Override
+    public String toString() {
+        return "AuthPrincipal{" +
+                "uid=" + uid +
+                ", username='" + username + '\'' +
+                ", issuedAt=" + issuedAt +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.common;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ */
+public class CursorPage<T> {
+
+    // 单页最大条数
+    public static final int MAX_PAGE_SIZE = 100;
+    // 带游标但未指定条数时的默认页大小
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    // 不带分页参数的旧调用方式，服务端最多返回的条数
+    public static final int UNPAGED_LIMIT = 500;
+    // 不分页的流式接口每次查询的条数
+    public static final int STREAM_BATCH_SIZE = 500;
+
+    private final List<T> items;
+    private final String nextCursor;   // 下一页游标，没有更多数据时为 null
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 根据多查询一条的结果构建分页：查询时使用 limit + 1，多出的一条说明还有下一页
+     *
+     * @param rows      查询结果（最多 limit + 1 条）
+     * @param limit     本页条数
+     * @param timeOf    取排序时间
+     * @param idOf      取 ID
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit,
+                                       Function<T, LocalDateTime> timeOf, Function<T, Long> idOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        T last = items.get(limit - 1);
+        return new CursorPage<>(items, new PageCursor(timeOf.apply(last), idOf.apply(last)).encode());
+    }
+
+    /**
+     * 按游标逐页读取全部数据，逐条交给 consumer
+     * 每页是一次独立的查询，consumer 写响应时不占用数据库连接，客户端读得慢也不会占住连接池
+     *
+     * @param loader 按位置查询一页（位置为 null 时从第一条开始），参数为位置和条数
+     * @param timeOf 取排序时间
+     * @param idOf   取 ID
+     */
+    public static <T> void forEach(BiFunction<PageCursor, Integer, List<T>> loader,
+                                   Function<T, LocalDateTime> timeOf, Function<T, Long> idOf,
+                                   Consumer<T> consumer) {
+        PageCursor position = null;
+        while (true) {
+            List<T> rows = loader.apply(position, STREAM_BATCH_SIZE);
+            rows.forEach(consumer);
+            if (rows.size() < STREAM_BATCH_SIZE) {
+                return;
+            }
+            T last = rows.get(rows.size() - 1);
+            position = new PageCursor(timeOf.apply(last), idOf.apply(last));
+        }
+    }
+
+    /**
+     * 计算本次查询的条数
+     */
+    public static int resolveLimit(String cursor, Integer size) {
+        if (size == null) {
+            return cursor == null || cursor.isEmpty() ? UNPAGED_LIMIT : DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.common;
 
+import java.util.List;
+
 /**
  * 统一响应结果类
  */
@@ -7,6 +9,7 @@ public class Result<T> {
     private Integer code;
     private String message;
     private T data;
+    private String nextCursor;   // 游标分页的下一页位置，仅列表接口返回
 
     public Result() {
     }
@@ -25,6 +28,19 @@ public class Result<T> {
         return new Result<>(200, message, data);
     }
 
+    /**
+     * 游标分页列表，data 仍为数组以兼容旧客户端
+     */
+    public static <T> Result<List<T>> page(CursorPage<T> page) {
+        return page("操作成功", page);
+    }
+
+    public static <T> Result<List<T>> page(String message, CursorPage<T> page) {
+        Result<List<T>> result = new Result<>(200, message, page.getItems());
+        result.setNextCursor(page.getNextCursor());
+        return result;
+    }
+
     public static <T> Result<T> error(String message) {
         return new Result<>(500, message, null);
     }
@@ -56,5 +72,13 @@ public class Result<T> {
     public void setData(T data) {
         this.data = data;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
 
@@ -0,0 +1,108 @@
+package org.example.common;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.util.EtagUtil;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * 流式列表响应
+ * 输出与 Result.success(message, list) 相同的 JSON（{"code":200,"message":...,"data":[...]}），
+ * 但每收到一条就序列化写入响应流，不在内存中组装整个列表，内存占用与总条数无关。
+ * 写入第一条（或结束）时才提交响应，在此之前出错仍可以用 fail 返回普通的错误响应（不带 ETag）。
+ */
+public class ResultStreamWriter<T> implements Consumer<T> {
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final String message;
+
+    private JsonGenerator generator;
+    private long count;
+
+    public ResultStreamWriter(HttpServletRequest request, HttpServletResponse response, ObjectMapper objectMapper,
+                              String message) {
+        this.request = request;
+        this.response = response;
+        this.objectMapper = objectMapper;
+        // 逐条写入时不逐条刷新，由输出缓冲区攒满后再发送
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.message = message;
+    }
+
+    /**
+     * 写入一条
+     */
+    @Override
+    public void accept(T item) {
+        try {
+            start();
+            writer.writeValue(generator, item);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 结束数组和响应
+     */
+    public void finish() throws IOException {
+        start();
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * 处理失败：尚未开始输出时返回错误响应；已经输出了部分数据时无法再修改状态码，
+     * 直接中止，客户端收到不完整的 JSON 会解析失败，不会被当成完整的列表
+     */
+    public void fail(String errorMessage) throws IOException {
+        if (generator == null) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getOutputStream(), Result.error(errorMessage));
+            return;
+        }
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            // 客户端已断开
+        }
+    }
+
+    /**
+     * 已写入的条数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void start() throws IOException {
+        if (generator != null) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        EtagUtil.applyValidators(request, response);
+        generator = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        // 中途失败时不自动补全括号，避免不完整的列表看起来像完整的
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        generator.writeStartObject();
+        generator.writeNumberField("code", 200);
+        generator.writeStringField("message", message);
+        generator.writeArrayFieldStart("data");
+    }
+}
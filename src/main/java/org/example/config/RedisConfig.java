@@ -1,12 +1,24 @@
 package org.example.config;
 
+import org.example.cache.NoteCache;
+import org.example.cache.SessionCache;
+import org.example.service.NoteSearchService;
+import org.example.service.NoteSuggestService;
+import org.example.service.RevocationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 /**
  * Redis 配置类
  */
@@ -31,5 +43,103 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
 
+    /**
+     * Redis 发布订阅监听容器，用于跨节点的缓存失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       SessionCache sessionCache,
+                                                                       RevocationService revocationService,
+                                                                       NoteCache noteCache,
+                                                                       NoteSearchService noteSearchService,
+                                                                       NoteSuggestService noteSuggestService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(sessionCache, new ChannelTopic(SessionCache.INVALIDATE_CHANNEL));
+        container.addMessageListener(revocationService, new ChannelTopic(RevocationService.REVOCATION_CHANNEL));
+        container.addMessageListener(noteCache, new ChannelTopic(NoteCache.INVALIDATE_CHANNEL));
+        container.addMessageListener(noteSearchService, new ChannelTopic(NoteSearchService.CHANGE_CHANNEL));
+        container.addMessageListener(noteSuggestService, new ChannelTopic(NoteSuggestService.CHANGE_CHANNEL));
+        return container;
+    }
+
+    /**
+     * 会话校验 Lua 脚本
+     * 通过 redisTemplate 执行时先用 EVALSHA，服务端未缓存时自动回退到 EVAL 并加载
+     */
+    @Bean
+    public RedisScript<Long> sessionCheckScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/session_check.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 登录限流令牌桶 Lua 脚本
+     */
+    @Bean
+    public RedisScript<Long> tokenBucketScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/token_bucket.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 分片上传配额 Lua 脚本
+     */
+    @Bean
+    public RedisScript<Long> uploadReserveScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/upload_reserve.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 分片写入登记 Lua 脚本
+     */
+    @Bean
+    public RedisScript<Long> uploadBeginWriteScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/upload_begin_write.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 完成/取消分片上传的加锁 Lua 脚本
+     */
+    @Bean
+    public RedisScript<Long> uploadFinishScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/upload_finish.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 笔记浏览次数写回 Lua 脚本
+     */
+    @Bean
+    public RedisScript<Long> noteViewCountScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/note_view_counts.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    /**
+     * 浏览次数增量取出 Lua 脚本
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> viewCountDrainScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/view_count_drain.lua"));
+        script.setResultType(List.class);
+        return script;
+    }
+}
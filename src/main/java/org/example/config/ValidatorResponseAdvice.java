@@ -0,0 +1,39 @@
+package org.example.config;
+
+import org.example.common.Result;
+import org.example.util.EtagUtil;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 条件请求的响应头
+ * 接口返回成功的 Result 时写入 EtagUtil.checkNotModified 记下的 ETag / Last-Modified；
+ * 返回错误时不写，客户端不会用 ETag 重新验证后一直显示缓存的错误
+ */
+@ControllerAdvice
+public class ValidatorResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Result<?> result && Integer.valueOf(200).equals(result.getCode())
+                && request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse) {
+            EtagUtil.applyValidators(servletRequest.getServletRequest(), servletResponse.getServletResponse());
+        }
+        return body;
+    }
+}
@@ -9,7 +9,6 @@ import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.charset.StandardCharsets;
@@ -81,18 +80,4 @@ public class WebConfig implements WebMvcConfigurer {
             }
         });
     }
-
-    /**
-     * 配置静态资源映射，用于访问上传的文件（图片、视频、通用文件）
-     * 访问路径示例：
-     * - /uploads/images/xxx.png
-     * - /uploads/videos/xxx.mp4
-     * - /uploads/files/xxx.pdf
-     */
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String uploadPath = System.getProperty("user.dir") + "/uploads/";
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadPath);
-    }
 }
@@ -0,0 +1,149 @@
+package org.example.controller;
+
+import org.example.annotation.RequireAuth;
+import org.example.cache.NoteCache;
+import org.example.cache.SessionCache;
+import org.example.common.Result;
+import org.example.interceptor.GuestMicroCacheFilter;
+import org.example.interceptor.RouteAuthTable;
+import org.example.service.ImageDerivativeService;
+import org.example.service.NoteSearchService;
+import org.example.service.NoteSuggestService;
+import org.example.service.RevocationService;
+import org.example.service.UploadLayoutMigrator;
+import org.example.util.SingleFlightRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态诊断接口
+ */
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private RevocationService revocationService;
+
+    @Autowired
+    private NoteCache noteCache;
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    @Autowired
+    private GuestMicroCacheFilter guestMicroCacheFilter;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private NoteSuggestService noteSuggestService;
+
+    @Autowired
+    private RouteAuthTable routeAuthTable;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private UploadLayoutMigrator uploadLayoutMigrator;
+
+    /**
+     * 会话缓存命中统计（需要认证）
+     */
+    @GetMapping("/session-cache")
+    @RequireAuth
+    public Result<Map<String, Object>> sessionCacheStats() {
+        return Result.success(sessionCache.getStats());
+    }
+
+    /**
+     * Token 吊销列表统计（需要认证）
+     */
+    @GetMapping("/revocation")
+    @RequireAuth
+    public Result<Map<String, Object>> revocationStats() {
+        return Result.success(revocationService.getStats());
+    }
+
+    /**
+     * 笔记详情缓存命中统计（需要认证）
+     */
+    @GetMapping("/note-cache")
+    @RequireAuth
+    public Result<Map<String, Object>> noteCacheStats() {
+        return Result.success(noteCache.getStats());
+    }
+
+    /**
+     * 并发相同查询的合并统计（需要认证）
+     */
+    @GetMapping("/single-flight")
+    @RequireAuth
+    public Result<List<Map<String, Object>>> singleFlightStats() {
+        return Result.success(singleFlightRegistry.getStats());
+    }
+
+    /**
+     * 游客接口响应微缓存统计（需要认证）
+     */
+    @GetMapping("/micro-cache")
+    @RequireAuth
+    public Result<Map<String, Object>> microCacheStats() {
+        return Result.success(guestMicroCacheFilter.getStats());
+    }
+
+    /**
+     * 笔记搜索索引统计（需要认证）
+     */
+    @GetMapping("/search-index")
+    @RequireAuth
+    public Result<Map<String, Object>> searchIndexStats() {
+        return Result.success(noteSearchService.getStats());
+    }
+
+    /**
+     * 标题联想索引统计，包括估算的内存占用（需要认证）
+     */
+    @GetMapping("/suggest")
+    @RequireAuth
+    public Result<Map<String, Object>> suggestStats() {
+        return Result.success(noteSuggestService.getStats());
+    }
+
+    /**
+     * 图片缩略图生成统计（需要认证）
+     */
+    @GetMapping("/image-derivatives")
+    @RequireAuth
+    public Result<Map<String, Object>> imageDerivativeStats() {
+        return Result.success(imageDerivativeService.getStats());
+    }
+
+    /**
+     * 上传文件目录迁移进度（需要认证）
+     */
+    @GetMapping("/upload-layout")
+    @RequireAuth
+    public Result<Map<String, Object>> uploadLayoutStats() {
+        return Result.success(uploadLayoutMigrator.getStats());
+    }
+
+    /**
+     * 所有接口的认证策略（GUEST / REQUIRED / OPTIONAL），用于审计公开接口（需要认证）
+     */
+    @GetMapping("/routes")
+    @RequireAuth
+    public Result<List<Map<String, Object>>> routes() {
+        return Result.success(routeAuthTable.getRoutes());
+    }
+}
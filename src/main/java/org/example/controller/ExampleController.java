@@ -30,10 +30,10 @@ public class ExampleController {
     @RequireAuth
     public Result<Map<String, Object>> method1(HttpServletRequest request) {
         // 从请求属性直接获取（拦截器已解析）
-        Long uid = (Long) request.getAttribute("userId");
-        String username = (String) request.getAttribute("username");
+        Long uid = tokenHelper.getUidFromRequest(request);
+        String username = tokenHelper.getUsernameFromRequest(request);
         
-        // 如果需要登录时间，使用 TokenHelper
+        // 登录时间同样来自拦截器解析的结果
         Long loginTimestamp = tokenHelper.getLoginTimestampFromRequest(request);
         
         Map<String, Object> result = new HashMap<>();
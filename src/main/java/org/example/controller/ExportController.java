@@ -0,0 +1,62 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.annotation.RequireAuth;
+import org.example.common.Result;
+import org.example.service.ExportService;
+import org.example.util.TokenHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 数据导出接口
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private TokenHelper tokenHelper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 导出我的全部数据（需要认证）
+     * ZIP 包含 notes.ndjson、plans.ndjson、files.ndjson（文件清单）和 files/ 目录下的原始文件
+     */
+    @GetMapping
+    @RequireAuth
+    public void exportMyData(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            String filename = "vblog-export-" + userId + "-" + LocalDateTime.now().format(FILE_TIME) + ".zip";
+            exportService.export(userId, filename, response);
+        } catch (Exception e) {
+            // 已经开始发送 ZIP 时无法再返回错误信息，客户端会收到不完整的压缩包
+            if (response.isCommitted()) {
+                return;
+            }
+            response.resetBuffer();
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getOutputStream(), Result.error(e.getMessage()));
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.annotation.GuestAllowed;
+import org.example.annotation.MicroCached;
 import org.example.annotation.RequireAuth;
+import org.example.common.CursorPage;
 import org.example.common.Result;
+import org.example.common.ResultStreamWriter;
 import org.example.dto.NoteRequest;
+import org.example.dto.TitleSuggestion;
 import org.example.entity.Note;
+import org.example.entity.NoteSummary;
 import org.example.service.NoteService;
+import org.example.util.EtagUtil;
 import org.example.util.TokenHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -26,6 +35,9 @@ public class NoteController {
     @Autowired
     private TokenHelper tokenHelper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 创建笔记（需要认证）
      */
@@ -51,15 +63,28 @@ public class NoteController {
     @GetMapping("/{id}")
     @GuestAllowed
     public Result<Note> getNoteById(@PathVariable Long id, 
-                                    HttpServletRequest request) {
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) {
         try {
             // 尝试获取当前用户ID（可能为null，游客模式）
             Long currentUserId = tokenHelper.getUidFromRequest(request);
             if (currentUserId == null) {
                 currentUserId = -1L; // 游客ID
             }
+
+            // 条件请求先只查版本，客户端缓存仍有效时记录浏览后返回 304，不读取正文
+            if (EtagUtil.isConditional(request)) {
+                Note version = noteService.getNoteVersion(id, currentUserId);
+                if (EtagUtil.checkNotModified(request, response,
+                        EtagUtil.strong("note", id, version.getUpdateTime()), version.getUpdateTime())) {
+                    noteService.recordView(id);
+                    return null;
+                }
+            }
             
             Note note = noteService.getNoteById(id, currentUserId);
+            EtagUtil.checkNotModified(request, response,
+                    EtagUtil.strong("note", id, note.getUpdateTime()), note.getUpdateTime());
             return Result.success(note);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -103,43 +128,126 @@ public class NoteController {
 
     /**
      * 获取我的笔记列表（需要认证）
+     * 支持游标分页：cursor 为上一页返回的 nextCursor，size 为每页条数
      */
     @GetMapping("/my")
     @RequireAuth
-    public Result<List<Note>> getMyNotes(HttpServletRequest request) {
+    public Result<List<NoteSummary>> getMyNotes(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) {
         try {
             Long userId = tokenHelper.getUidFromRequest(request);
-            
-            List<Note> notes = noteService.getUserNotes(userId);
-            return Result.success("获取成功", notes);
+
+            CursorPage<NoteSummary> notes = noteService.getUserNotes(userId, cursor, size);
+            String etag = EtagUtil.weak(notes, NoteSummary::getId, NoteSummary::getUpdateTime,
+                    "note-user", userId, cursor, size);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return null;
+            }
+            return Result.page("获取成功", notes);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
     /**
-     * 获取指定用户的笔记列表（游客可访问）
+     * 流式获取我的全部笔记（需要认证）
+     * 不分页，逐条写入响应流，返回结构与 /my 相同，服务端内存占用与笔记数量无关
+     */
+    @GetMapping("/my/stream")
+    @RequireAuth
+    public void streamMyNotes(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ResultStreamWriter<NoteSummary> writer = new ResultStreamWriter<>(request, response, objectMapper, "获取成功");
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+
+            String etag = EtagUtil.weak(noteService.getUserNotesVersion(userId), "note-user-stream", userId);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return;
+            }
+
+            noteService.streamUserNotes(userId, writer);
+            writer.finish();
+        } catch (Exception e) {
+            writer.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取指定用户的笔记列表（游客可访问，支持游标分页）
      */
     @GetMapping("/user/{userId}")
     @GuestAllowed
-    public Result<List<Note>> getUserNotes(@PathVariable Long userId) {
+    @MicroCached
+    public Result<List<NoteSummary>> getUserNotes(@PathVariable Long userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size,
+                                           HttpServletRequest request,
+                                           HttpServletResponse response) {
         try {
-            List<Note> notes = noteService.getUserNotes(userId);
-            return Result.success(notes);
+            CursorPage<NoteSummary> notes = noteService.getUserNotes(userId, cursor, size);
+            String etag = EtagUtil.weak(notes, NoteSummary::getId, NoteSummary::getUpdateTime,
+                    "note-user", userId, cursor, size);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return null;
+            }
+            return Result.page(notes);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
     /**
-     * 获取所有公开笔记（游客可访问）
+     * 获取所有公开笔记（游客可访问，支持游标分页）
      */
     @GetMapping("/public")
     @GuestAllowed
-    public Result<List<Note>> getPublicNotes() {
+    @MicroCached
+    public Result<List<NoteSummary>> getPublicNotes(@RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer size,
+                                             HttpServletRequest request,
+                                             HttpServletResponse response) {
         try {
-            List<Note> notes = noteService.getPublicNotes();
-            return Result.success(notes);
+            CursorPage<NoteSummary> notes = noteService.getPublicNotes(cursor, size);
+            String etag = EtagUtil.weak(notes, NoteSummary::getId, NoteSummary::getUpdateTime,
+                    "note-public", cursor, size);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return null;
+            }
+            return Result.page(notes);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 全文搜索笔记（游客只能搜到公开笔记，登录后还能搜到自己的笔记）
+     */
+    @GetMapping("/search")
+    @GuestAllowed
+    public Result<List<NoteSummary>> searchNotes(@RequestParam String q,
+                                                 @RequestParam(required = false) Integer size,
+                                                 HttpServletRequest request) {
+        try {
+            Long currentUserId = tokenHelper.getUidFromRequest(request);
+            return Result.success(noteService.searchNotes(q, currentUserId, size));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 标题输入联想（游客只返回公开笔记，登录后还包括自己的笔记），按浏览次数排序
+     */
+    @GetMapping("/suggest")
+    @GuestAllowed
+    public Result<List<TitleSuggestion>> suggestTitles(@RequestParam String prefix,
+                                                       @RequestParam(required = false) Integer size,
+                                                       HttpServletRequest request) {
+        try {
+            Long currentUserId = tokenHelper.getUidFromRequest(request);
+            return Result.success(noteService.suggestTitles(prefix, currentUserId, size));
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -150,6 +258,7 @@ public class NoteController {
      */
     @GetMapping("/count/{userId}")
     @GuestAllowed
+    @MicroCached
     public Result<Integer> countUserNotes(@PathVariable Long userId) {
         try {
             int count = noteService.countUserNotes(userId);
@@ -1,16 +1,22 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.annotation.RequireAuth;
+import org.example.common.CursorPage;
 import org.example.common.Result;
+import org.example.common.ResultStreamWriter;
 import org.example.dto.PlanRequest;
 import org.example.entity.Plan;
 import org.example.service.PlanService;
+import org.example.util.EtagUtil;
 import org.example.util.TokenHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,6 +33,9 @@ public class PlanController {
     @Autowired
     private TokenHelper tokenHelper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 创建计划（需要认证）
      */
@@ -51,11 +60,23 @@ public class PlanController {
     @GetMapping("/{id}")
     @RequireAuth
     public Result<Plan> getPlanById(@PathVariable Long id, 
-                                    HttpServletRequest request) {
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) {
         try {
             Long currentUserId = tokenHelper.getUidFromRequest(request);
+
+            // 条件请求先只查版本，客户端缓存仍有效时返回 304
+            if (EtagUtil.isConditional(request)) {
+                Plan version = planService.getPlanVersion(id, currentUserId);
+                if (EtagUtil.checkNotModified(request, response,
+                        EtagUtil.strong("plan", id, version.getUpdateTime()), version.getUpdateTime())) {
+                    return null;
+                }
+            }
             
             Plan plan = planService.getPlanById(id, currentUserId);
+            EtagUtil.checkNotModified(request, response,
+                    EtagUtil.strong("plan", id, plan.getUpdateTime()), plan.getUpdateTime());
             return Result.success(plan);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -99,20 +120,51 @@ public class PlanController {
 
     /**
      * 获取我的计划列表（需要认证）
+     * 支持游标分页：cursor 为上一页返回的 nextCursor，size 为每页条数
      */
     @GetMapping("/my")
     @RequireAuth
-    public Result<List<Plan>> getMyPlans(HttpServletRequest request) {
+    public Result<List<Plan>> getMyPlans(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer size,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) {
         try {
             Long userId = tokenHelper.getUidFromRequest(request);
-            
-            List<Plan> plans = planService.getUserPlans(userId);
-            return Result.success("获取成功", plans);
+
+            CursorPage<Plan> plans = planService.getUserPlans(userId, cursor, size);
+            String etag = EtagUtil.weak(plans, Plan::getId, Plan::getUpdateTime, "plan-user", userId, cursor, size);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return null;
+            }
+            return Result.page("获取成功", plans);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
+    /**
+     * 流式获取我的全部计划（需要认证），不分页，逐条写入响应流
+     */
+    @GetMapping("/my/stream")
+    @RequireAuth
+    public void streamMyPlans(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ResultStreamWriter<Plan> writer = new ResultStreamWriter<>(request, response, objectMapper, "获取成功");
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+
+            String etag = EtagUtil.weak(planService.getUserPlansVersion(userId),
+                    "plan-user-stream", userId);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return;
+            }
+
+            planService.streamUserPlans(userId, writer);
+            writer.finish();
+        } catch (Exception e) {
+            writer.fail(e.getMessage());
+        }
+    }
+
     /**
      * 根据日期范围获取我的计划列表（需要认证）
      */
@@ -121,12 +173,20 @@ public class PlanController {
     public Result<List<Plan>> getMyPlansByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
-            HttpServletRequest request) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         try {
             Long userId = tokenHelper.getUidFromRequest(request);
-            
-            List<Plan> plans = planService.getUserPlansByDateRange(userId, startTime, endTime);
-            return Result.success("获取成功", plans);
+
+            CursorPage<Plan> plans = planService.getUserPlansByDateRange(userId, startTime, endTime, cursor, size);
+            String etag = EtagUtil.weak(plans, Plan::getId, Plan::getUpdateTime,
+                    "plan-range", userId, startTime, endTime, cursor, size);
+            if (EtagUtil.checkNotModified(request, response, etag, null)) {
+                return null;
+            }
+            return Result.page("获取成功", plans);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -1,18 +1,24 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.annotation.RequireAuth;
+import org.example.common.CursorPage;
 import org.example.common.Result;
+import org.example.common.ResultStreamWriter;
+import org.example.dto.ChunkedUploadRequest;
+import org.example.dto.ChunkedUploadStatus;
+import org.example.dto.UploadPrecheckRequest;
 import org.example.entity.Image;
+import org.example.service.ChunkedUploadService;
 import org.example.service.ImageService;
 import org.example.util.TokenHelper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -25,9 +31,15 @@ public class UploadController {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
     @Autowired
     private TokenHelper tokenHelper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 上传图片
      * 支持格式：JPEG, PNG, GIF, WEBP, BMP
@@ -35,10 +47,9 @@ public class UploadController {
      */
     @PostMapping(value = "/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @RequireAuth
-    public Result<Image> uploadImage(@RequestPart("file") MultipartFile file,
-                                     HttpServletRequest request) {
+    public Result<Image> uploadImage(HttpServletRequest request) {
         try {
-            Image image = imageService.uploadImage(file, request);
+            Image image = imageService.uploadImage(request);
             return Result.success("图片上传成功", image);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -52,10 +63,9 @@ public class UploadController {
      */
     @PostMapping(value = "/video", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @RequireAuth
-    public Result<Image> uploadVideo(@RequestPart("file") MultipartFile file,
-                                     HttpServletRequest request) {
+    public Result<Image> uploadVideo(HttpServletRequest request) {
         try {
-            Image image = imageService.uploadVideo(file, request);
+            Image image = imageService.uploadVideo(request);
             return Result.success("视频上传成功", image);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -69,27 +79,138 @@ public class UploadController {
      */
     @PostMapping(value = "/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @RequireAuth
-    public Result<Image> uploadFile(@RequestPart("file") MultipartFile file,
-                                    HttpServletRequest request) {
+    public Result<Image> uploadFile(HttpServletRequest request) {
+        try {
+            Image image = imageService.uploadFile(request);
+            return Result.success("文件上传成功", image);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 秒传预检
+     * 客户端先提交文件的 SHA-256、大小和类型，服务器已有相同内容时直接返回新的文件记录，不需要再上传；
+     * 返回的 data 为空时按原接口上传
+     */
+    @PostMapping("/precheck")
+    @RequireAuth
+    public Result<Image> precheck(@RequestBody UploadPrecheckRequest precheckRequest,
+                                  HttpServletRequest request) {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            Image image = imageService.precheck(userId, precheckRequest);
+            if (image == null) {
+                return Result.success("文件不存在，请上传", null);
+            }
+            return Result.success("秒传成功", image);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 创建分片上传会话（大文件、断点续传）
+     * 返回 uploadId 和分片大小，客户端按分片大小切分后逐片上传
+     */
+    @PostMapping("/chunked")
+    @RequireAuth
+    public Result<ChunkedUploadStatus> createChunkedUpload(@RequestBody ChunkedUploadRequest uploadRequest,
+                                                           HttpServletRequest request) {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            ChunkedUploadStatus status = chunkedUploadService.create(userId, uploadRequest);
+            return Result.success("上传会话已创建", status);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 上传一个分片
+     * 请求体为分片的原始字节，offset 为分片在文件中的起始位置（分片大小的整数倍）；
+     * 分片可以任意顺序、并行上传
+     */
+    @PutMapping("/chunked/{uploadId}")
+    @RequireAuth
+    public Result<ChunkedUploadStatus> uploadChunk(@PathVariable String uploadId,
+                                                   @RequestParam long offset,
+                                                   HttpServletRequest request) {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            ChunkedUploadStatus status = chunkedUploadService.writeChunk(uploadId, userId, offset,
+                    request.getInputStream(), request.getContentLengthLong());
+            return Result.success("分片上传成功", status);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 查询分片上传进度（已收到的字节范围），用于断点续传
+     */
+    @GetMapping("/chunked/{uploadId}")
+    @RequireAuth
+    public Result<ChunkedUploadStatus> getChunkedUpload(@PathVariable String uploadId,
+                                                        HttpServletRequest request) {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            return Result.success(chunkedUploadService.getStatus(uploadId, userId));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 完成分片上传，保存文件并返回文件记录
+     * 参数：sha256 - 可选，客户端计算的 SHA-256，与服务器计算的结果不一致时上传失败
+     */
+    @PostMapping("/chunked/{uploadId}/complete")
+    @RequireAuth
+    public Result<Image> completeChunkedUpload(@PathVariable String uploadId,
+                                               @RequestParam(required = false) String sha256,
+                                               HttpServletRequest request) {
         try {
-            Image image = imageService.uploadFile(file, request);
+            Long userId = tokenHelper.getUidFromRequest(request);
+            Image image = chunkedUploadService.complete(uploadId, userId, sha256);
             return Result.success("文件上传成功", image);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
+    /**
+     * 取消分片上传
+     */
+    @DeleteMapping("/chunked/{uploadId}")
+    @RequireAuth
+    public Result<Boolean> cancelChunkedUpload(@PathVariable String uploadId,
+                                            HttpServletRequest request) {
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            chunkedUploadService.cancel(uploadId, userId);
+            return Result.success("上传已取消", true);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
     /**
      * 下载文件（带权限验证）
+     * 支持 Range / If-Range 请求，可断点续传
      */
     @GetMapping("/download/{id}")
     @RequireAuth
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long id,
-                                                HttpServletRequest request) {
+    public void downloadFile(@PathVariable Long id,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
         try {
-            return imageService.downloadFile(id, request);
+            imageService.downloadFile(id, request, response);
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            }
         }
     }
 
@@ -110,20 +231,39 @@ public class UploadController {
     }
 
     /**
-     * 获取我的所有文件列表
+     * 获取我的文件列表
+     * 支持游标分页：cursor 为上一页返回的 nextCursor，size 为每页条数
      */
     @GetMapping("/my")
     @RequireAuth
-    public Result<List<Image>> getMyFiles(HttpServletRequest request) {
+    public Result<List<Image>> getMyFiles(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer size,
+                                          HttpServletRequest request) {
         try {
             Long userId = tokenHelper.getUidFromRequest(request);
-            List<Image> files = imageService.getUserFiles(userId);
-            return Result.success("获取成功", files);
+            CursorPage<Image> files = imageService.getUserFiles(userId, cursor, size);
+            return Result.page("获取成功", files);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
+    /**
+     * 流式获取我的全部文件，不分页，逐条写入响应流
+     */
+    @GetMapping("/my/stream")
+    @RequireAuth
+    public void streamMyFiles(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ResultStreamWriter<Image> writer = new ResultStreamWriter<>(request, response, objectMapper, "获取成功");
+        try {
+            Long userId = tokenHelper.getUidFromRequest(request);
+            imageService.streamUserFiles(userId, writer);
+            writer.finish();
+        } catch (Exception e) {
+            writer.fail(e.getMessage());
+        }
+    }
+
     /**
      * 根据文件类型获取我的文件列表
      * 参数：type - 文件类型前缀，如 "image" 或 "video"
@@ -131,11 +271,13 @@ public class UploadController {
     @GetMapping("/my/type")
     @RequireAuth
     public Result<List<Image>> getMyFilesByType(@RequestParam(required = false) String type,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer size,
                                                 HttpServletRequest request) {
         try {
             Long userId = tokenHelper.getUidFromRequest(request);
-            List<Image> files = imageService.getUserFilesByType(userId, type);
-            return Result.success("获取成功", files);
+            CursorPage<Image> files = imageService.getUserFilesByType(userId, type, cursor, size);
+            return Result.page("获取成功", files);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -0,0 +1,74 @@
+package org.example.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.annotation.GuestAllowed;
+import org.example.service.FileServeService;
+import org.example.service.ImageDerivativeService;
+import org.example.service.ImageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 上传文件的公开访问（替代原来的静态资源映射），用于笔记中嵌入的图片和视频播放
+ * 访问路径示例：
+ * - /uploads/images/xxx.png
+ * - /uploads/images/xxx.png?w=480（缩略图，返回不小于该宽度的最小档位，JPEG 格式）
+ * - /uploads/videos/xxx.mp4
+ * - /uploads/files/xxx.pdf
+ * 支持 Range 请求，视频拖动进度条时只下载需要的部分
+ */
+@RestController
+public class UploadsController {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private FileServeService fileServeService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    // 浏览器缓存时间（秒）；文件名由内容的 SHA-256 或随机 UUID 生成，内容不会变化
+    @Value("${upload.cache-max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds;
+
+    /**
+     * 访问上传的文件（GET / HEAD）
+     */
+    @GetMapping("/uploads/{*path}")
+    @GuestAllowed
+    public void serve(@PathVariable String path, @RequestParam(required = false) Integer w,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = imageService.resolvePublicFile(path);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String cacheControl = "public, max-age=" + cacheMaxAgeSeconds + ", immutable";
+        if (w != null && path.startsWith("/images/")) {
+            ImageDerivativeService.Resolved resolved = imageDerivativeService.resolve(file, w);
+            file = resolved.file();
+            if (resolved.temporary()) {
+                // 暂时只能返回原图：浏览器每次按 ETag 重新验证，派生图生成后（ETag 不同）即可取到
+                cacheControl = "public, no-cache";
+            }
+        }
+        String contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .map(MediaType::toString)
+                .orElse(null);
+        // 不允许浏览器根据内容猜测类型（例如把上传的文件当作 HTML 执行）
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        fileServeService.serve(request, response, file, contentType, null, cacheControl);
+    }
+}
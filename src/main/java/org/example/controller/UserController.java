@@ -1,7 +1,9 @@
 package org.example.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.annotation.GuestAllowed;
+import org.example.annotation.MicroCached;
 import org.example.annotation.RequireAuth;
 import org.example.common.Result;
 import org.example.dto.ChangePasswordRequest;
@@ -9,11 +11,16 @@ import org.example.dto.LoginRequest;
 import org.example.dto.LoginResponse;
 import org.example.dto.RegisterRequest;
 import org.example.entity.User;
+import org.example.service.LoginThrottle;
 import org.example.service.TokenService;
 import org.example.service.UserService;
+import org.example.util.ClientIpResolver;
+import org.example.util.EtagUtil;
 import org.example.util.JwtUtil;
+import org.example.util.TokenHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -35,6 +42,15 @@ public class UserController {
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private TokenHelper tokenHelper;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
     @Value("${jwt.expiration}")
     private Long expiration;
 
@@ -43,7 +59,14 @@ public class UserController {
      */
     @PostMapping("/login")
     @GuestAllowed
-    public Result<LoginResponse> login(@RequestBody LoginRequest request) {
+    public Result<LoginResponse> login(@RequestBody LoginRequest request,
+                                       HttpServletRequest httpRequest,
+                                       HttpServletResponse httpResponse) {
+        // 限流检查，在查询数据库和计算密码哈希之前完成
+        if (isThrottled("login", request.getUsername(), httpRequest, httpResponse)) {
+            return Result.error(429, "登录尝试过于频繁，请稍后再试");
+        }
+
         try {
             // 验证用户名密码
             User user = userService.login(request);
@@ -68,7 +91,13 @@ public class UserController {
      */
     @PostMapping("/register")
     @GuestAllowed
-    public Result<User> register(@RequestBody RegisterRequest request) {
+    public Result<User> register(@RequestBody RegisterRequest request,
+                                 HttpServletRequest httpRequest,
+                                 HttpServletResponse httpResponse) {
+        if (isThrottled("register", request.getUsername(), httpRequest, httpResponse)) {
+            return Result.error(429, "注册请求过于频繁，请稍后再试");
+        }
+
         try {
             User user = userService.register(request);
             return Result.success("注册成功", user);
@@ -84,7 +113,7 @@ public class UserController {
     @RequireAuth
     public Result<String> logout(HttpServletRequest request) {
         try {
-            String username = (String) request.getAttribute("username");
+            String username = tokenHelper.getUsernameFromRequest(request);
             
             // 从 Redis 中删除 Token
             tokenService.deleteToken(username);
@@ -102,8 +131,8 @@ public class UserController {
     @RequireAuth
     public Result<Map<String, Object>> refreshToken(HttpServletRequest request) {
         try {
-            String username = (String) request.getAttribute("username");
-            Long userId = (Long) request.getAttribute("userId");
+            String username = tokenHelper.getUsernameFromRequest(request);
+            Long userId = tokenHelper.getUidFromRequest(request);
             
             // 获取当前 Token
             String oldToken = getTokenFromRequest(request);
@@ -131,7 +160,7 @@ public class UserController {
     @RequireAuth
     public Result<Boolean> changePassword(@RequestBody ChangePasswordRequest request, HttpServletRequest httpRequest) {
         try {
-            String currentUsername = (String) httpRequest.getAttribute("username");
+            String currentUsername = tokenHelper.getUsernameFromRequest(httpRequest);
             
             // 确保用户只能修改自己的密码
             if (!currentUsername.equals(request.getUsername())) {
@@ -156,12 +185,19 @@ public class UserController {
      */
     @GetMapping("/{username}")
     @GuestAllowed
-    public Result<User> getUserInfo(@PathVariable String username) {
+    @MicroCached
+    public Result<User> getUserInfo(@PathVariable String username,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) {
         try {
             User user = userService.findByUsername(username);
             if (user == null) {
                 return Result.error("用户不存在");
             }
+            if (EtagUtil.checkNotModified(request, response,
+                    EtagUtil.strong("user", user.getId(), user.getUpdateTime()), user.getUpdateTime())) {
+                return null;
+            }
             return Result.success(user);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -173,13 +209,17 @@ public class UserController {
      */
     @GetMapping("/current")
     @RequireAuth
-    public Result<User> getCurrentUser(HttpServletRequest request) {
+    public Result<User> getCurrentUser(HttpServletRequest request, HttpServletResponse response) {
         try {
-            String username = (String) request.getAttribute("username");
+            String username = tokenHelper.getUsernameFromRequest(request);
             User user = userService.findByUsername(username);
             if (user == null) {
                 return Result.error("用户不存在");
             }
+            if (EtagUtil.checkNotModified(request, response,
+                    EtagUtil.strong("user", user.getId(), user.getUpdateTime()), user.getUpdateTime())) {
+                return null;
+            }
             return Result.success(user);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -193,7 +233,7 @@ public class UserController {
     @RequireAuth
     public Result<Map<String, Object>> checkToken(HttpServletRequest request) {
         try {
-            String username = (String) request.getAttribute("username");
+            String username = tokenHelper.getUsernameFromRequest(request);
             Long lastActivity = tokenService.getLastActivity(username);
             
             Map<String, Object> result = new HashMap<>();
@@ -215,20 +255,32 @@ public class UserController {
     @RequireAuth
     public Result<org.example.dto.TokenInfo> parseToken(HttpServletRequest request) {
         try {
-            String token = getTokenFromRequest(request);
-            if (token == null) {
+            // 拦截器已完成解析，直接读取登录主体
+            org.example.dto.TokenInfo tokenInfo = tokenHelper.parseTokenFromRequest(request);
+            if (tokenInfo == null) {
                 return Result.error("Token 不存在");
             }
             
-            // 解析 Token 获取完整信息
-            org.example.dto.TokenInfo tokenInfo = jwtUtil.parseToken(token);
-            
             return Result.success("Token 解析成功", tokenInfo);
         } catch (Exception e) {
             return Result.error("Token 解析失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 登录/注册限流，超限时设置 429 状态码和 Retry-After 响应头
+     */
+    private boolean isThrottled(String action, String username,
+                                HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        long waitMs = loginThrottle.tryAcquire(action, clientIpResolver.resolve(httpRequest), username);
+        if (waitMs <= 0) {
+            return false;
+        }
+        httpResponse.setStatus(429);
+        httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMs + 999) / 1000)));
+        return true;
+    }
+
     /**
      * 从请求头中获取 Token
      */
@@ -0,0 +1,46 @@
+package org.example.dto;
+
+/**
+ * 创建分片上传会话请求DTO
+ */
+public class ChunkedUploadRequest {
+    private String filename;     // 原始文件名
+    private Long size;           // 文件总大小（字节）
+    private String contentType;  // MIME 类型
+    private String type;         // 上传类型：image、video、file
+
+    public ChunkedUploadRequest() {
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.dto;
+
+import java.util.List;
+
+/**
+ * 分片上传会话状态DTO
+ */
+public class ChunkedUploadStatus {
+    private String uploadId;
+    private String filename;
+    private Long size;              // 文件总大小（字节）
+    private Integer chunkSize;      // 分片大小，除最后一片外每片都是这个大小
+    private Integer chunkCount;     // 分片总数
+    private Integer receivedChunks; // 已收到的分片数
+    private List<long[]> received;  // 已收到的字节范围 [开始, 结束)，相邻分片合并
+
+    public ChunkedUploadStatus() {
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public Integer getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(Integer receivedChunks) {
+        this.receivedChunks = receivedChunks;
+    }
+
+    public List<long[]> getReceived() {
+        return received;
+    }
+
+    public void setReceived(List<long[]> received) {
+        this.received = received;
+    }
+}
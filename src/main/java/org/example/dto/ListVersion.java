@@ -0,0 +1,31 @@
+package org.example.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 列表版本DTO
+ * 列表范围内的行数和最新更新时间，用于生成列表接口的弱 ETag
+ */
+public class ListVersion {
+    private long rowCount;                // 行数
+    private LocalDateTime lastModified;   // 最新的更新时间
+
+    public ListVersion() {
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(LocalDateTime lastModified) {
+        this.lastModified = lastModified;
+    }
+}
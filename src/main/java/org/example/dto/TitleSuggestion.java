@@ -0,0 +1,43 @@
+package org.example.dto;
+
+/**
+ * 标题联想结果DTO
+ */
+public class TitleSuggestion {
+    private Long id;          // 笔记ID
+    private String title;     // 标题
+    private Long viewCount;   // 浏览次数（索引中的值，可能略有滞后）
+
+    public TitleSuggestion() {
+    }
+
+    public TitleSuggestion(Long id, String title, Long viewCount) {
+        this.id = id;
+        this.title = title;
+        this.viewCount = viewCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(Long viewCount) {
+        this.viewCount = viewCount;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.dto;
+
+/**
+ * 秒传预检请求DTO
+ */
+public class UploadPrecheckRequest {
+    private String sha256;       // 文件内容的 SHA-256（十六进制）
+    private Long size;           // 文件大小（字节）
+    private String contentType;  // MIME 类型
+    private String type;         // 上传类型：image、video、file
+
+    public UploadPrecheckRequest() {
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按内容存储的文件实体
+ * 相同内容的文件只在磁盘上保存一份，多条 image 记录通过 sha256 引用同一个文件
+ */
+public class FileBlob {
+    private String sha256;       // 文件内容的 SHA-256（十六进制），主键
+    private Long size;           // 文件大小（字节）
+    private String url;          // 对外访问 URL
+    private String path;         // 服务器本地存储路径
+    private Integer refCount;    // 引用该文件的 image 记录数
+    private LocalDateTime createTime;
+
+    public FileBlob() {
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -12,6 +12,7 @@ public class Image {
     private String path;         // 服务器本地存储路径
     private Long size;           // 文件大小（字节）
     private String contentType;  // MIME 类型
+    private String sha256;       // 文件内容的 SHA-256（十六进制），上传时边写边计算
     private LocalDateTime createTime;
 
     public Image() {
@@ -65,6 +66,14 @@ public class Image {
         this.contentType = contentType;
     }
 
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
     public LocalDateTime getCreateTime() {
         return createTime;
     }
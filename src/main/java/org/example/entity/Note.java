@@ -14,6 +14,9 @@ public class Note {
     private String username;
     private String title;          // 笔记标题
     private String content;        // 笔记内容
+    private String excerpt;        // 正文摘要（保存时生成）
+    private Integer wordCount;     // 字数（保存时统计）
+    private Integer contentLength; // 正文长度（字符）
     private Integer status;        // 状态：0-草稿，1-发布，2-私密
     private Integer viewCount;     // 浏览次数
     private LocalDateTime createTime;
@@ -22,6 +25,24 @@ public class Note {
     public Note() {
     }
 
+    /**
+     * 复制构造
+     */
+    public Note(Note source) {
+        this.id = source.id;
+        this.userId = source.userId;
+        this.username = source.username;
+        this.title = source.title;
+        this.content = source.content;
+        this.excerpt = source.excerpt;
+        this.wordCount = source.wordCount;
+        this.contentLength = source.contentLength;
+        this.status = source.status;
+        this.viewCount = source.viewCount;
+        this.createTime = source.createTime;
+        this.updateTime = source.updateTime;
+    }
+
     public Long getId() {
         return id;
     }
@@ -62,6 +83,30 @@ public class Note {
         this.content = content;
     }
 
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public Integer getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(Integer contentLength) {
+        this.contentLength = contentLength;
+    }
+
     public Integer getStatus() {
         return status;
     }
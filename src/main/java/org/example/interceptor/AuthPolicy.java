@@ -0,0 +1,19 @@
+package org.example.interceptor;
+
+/**
+ * 接口的认证策略
+ */
+public enum AuthPolicy {
+    /**
+     * 游客可访问（@GuestAllowed），携带有效 Token 时识别身份
+     */
+    GUEST,
+    /**
+     * 必须登录（@RequireAuth）
+     */
+    REQUIRED,
+    /**
+     * 未声明或 @RequireAuth(required = false)，不强制登录
+     */
+    OPTIONAL
+}
@@ -0,0 +1,233 @@
+package org.example.interceptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.annotation.MicroCached;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 游客接口的响应微缓存
+ * 对标记了 @MicroCached 的 GET 接口，未携带 Authorization 的请求按 路径+查询参数 共享已序列化的 JSON 字节，
+ * 命中时既不查数据库也不做序列化。
+ * - 新鲜期（micro-cache.ttl-ms）内直接返回缓存
+ * - 过期后的宽限期（micro-cache.stale-ms）内只放行一个请求重新生成，其余请求继续返回旧响应
+ * 流量高峰时每个接口每个节点每个周期最多查询一次数据库。
+ */
+@Component
+public class GuestMicroCacheFilter extends OncePerRequestFilter implements ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * 响应头，标记缓存状态：HIT / STALE / MISS
+     */
+    public static final String CACHE_STATUS_HEADER = "X-Micro-Cache";
+
+    // 成功响应的开头（Result 的第一个字段为 code），业务错误如"服务繁忙"不缓存
+    private static final byte[] SUCCESS_PREFIX = "{\"code\":200,".getBytes(StandardCharsets.UTF_8);
+
+    // 不随缓存重放的响应头
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "content-length", "transfer-encoding", "date", "set-cookie", CACHE_STATUS_HEADER.toLowerCase());
+
+    @Value("${micro-cache.enabled:true}")
+    private boolean enabled;
+
+    // 新鲜期（毫秒）
+    @Value("${micro-cache.ttl-ms:1000}")
+    private long ttlMs;
+
+    // 过期后仍可返回旧响应的宽限期（毫秒）
+    @Value("${micro-cache.stale-ms:10000}")
+    private long staleMs;
+
+    @Value("${micro-cache.max-entries:10000}")
+    private long maxEntries;
+
+    // 超过该大小的响应不缓存
+    @Value("${micro-cache.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    private Cache<String, CachedResponse> cache;
+    private volatile List<PathPattern> patterns = List.of();
+
+    // 正在重新生成的 key
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 缓存的响应
+     */
+    private record CachedResponse(int status, String contentType, Map<String, List<String>> headers,
+                                  byte[] body, long storedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMs + staleMs))
+                .build();
+    }
+
+    /**
+     * 容器刷新完成后收集 @MicroCached 接口的路径
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        List<PathPattern> result = new ArrayList<>();
+        for (RequestMappingHandlerMapping mapping : event.getApplicationContext()
+                .getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping.getHandlerMethods().entrySet()) {
+                if (entry.getValue().hasMethodAnnotation(MicroCached.class)) {
+                    entry.getKey().getPatternValues()
+                            .forEach(pattern -> result.add(PathPatternParser.defaultInstance.parse(pattern)));
+                }
+            }
+        }
+        this.patterns = List.copyOf(result);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"GET".equals(request.getMethod()) || request.getHeader("Authorization") != null) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // 跨域响应头与 Origin 有关，一并作为 key
+        String key = request.getRequestURI() + "?" + request.getQueryString() + "|" + request.getHeader("Origin");
+        long now = System.currentTimeMillis();
+
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached == null) {
+            // 完全未命中时各请求直接执行，数据库查询由服务层的 single-flight 合并
+            misses.increment();
+            load(key, request, response, chain);
+            return;
+        }
+        if (now - cached.storedAt() < ttlMs) {
+            hits.increment();
+            write(request, response, cached, "HIT");
+            return;
+        }
+        // 已有请求在重新生成，先返回旧响应
+        if (!refreshing.add(key)) {
+            staleHits.increment();
+            write(request, response, cached, "STALE");
+            return;
+        }
+
+        misses.increment();
+        try {
+            load(key, request, response, chain);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("routes", patterns.stream().map(PathPattern::getPatternString).toList());
+        result.put("hitCount", hits.sum());
+        result.put("staleHitCount", staleHits.sum());
+        result.put("missCount", misses.sum());
+        return result;
+    }
+
+    /**
+     * 执行接口并缓存成功的响应
+     */
+    private void load(String key, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        wrapper.setHeader(CACHE_STATUS_HEADER, "MISS");
+        chain.doFilter(request, wrapper);
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && body.length <= maxBodyBytes
+                && !request.isAsyncStarted() && isSuccess(body)) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : wrapper.getHeaderNames()) {
+                if (!SKIPPED_HEADERS.contains(name.toLowerCase())) {
+                    headers.put(name, List.copyOf(wrapper.getHeaders(name)));
+                }
+            }
+            cache.put(key, new CachedResponse(wrapper.getStatus(), wrapper.getContentType(), headers, body,
+                    System.currentTimeMillis()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static boolean isSuccess(byte[] body) {
+        return body.length >= SUCCESS_PREFIX.length
+                && Arrays.equals(body, 0, SUCCESS_PREFIX.length, SUCCESS_PREFIX, 0, SUCCESS_PREFIX.length);
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, CachedResponse cached,
+                              String status) throws IOException {
+        response.setHeader(CACHE_STATUS_HEADER, status);
+        // 缓存的响应带有 ETag 时同样支持条件请求
+        List<String> etag = cached.headers().get(HttpHeaders.ETAG);
+        if (etag != null && !etag.isEmpty()
+                && new ServletWebRequest(request, response).checkNotModified(etag.get(0))) {
+            return;
+        }
+
+        response.setStatus(cached.status());
+        cached.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+}
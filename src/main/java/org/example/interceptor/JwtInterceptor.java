@@ -1,9 +1,11 @@
 package org.example.interceptor;
 
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.example.annotation.GuestAllowed;
-import org.example.annotation.RequireAuth;
+import org.example.common.AuthPrincipal;
+import org.example.service.RevocationService;
 import org.example.service.TokenService;
 import org.example.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import java.io.IOException;
+
 /**
  * JWT 拦截器
  * 验证请求中的 Token 是否有效
@@ -24,6 +28,12 @@ public class JwtInterceptor implements HandlerInterceptor {
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private RevocationService revocationService;
+
+    @Autowired
+    private RouteAuthTable routeAuthTable;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // 如果不是方法处理器，直接放行
@@ -33,25 +43,12 @@ public class JwtInterceptor implements HandlerInterceptor {
 
         HandlerMethod handlerMethod = (HandlerMethod) handler;
 
-        // 检查方法或类上是否有 @GuestAllowed 注解
-        GuestAllowed guestAllowed = handlerMethod.getMethodAnnotation(GuestAllowed.class);
-        if (guestAllowed == null) {
-            guestAllowed = handlerMethod.getBeanType().getAnnotation(GuestAllowed.class);
-        }
+        // 查询启动时编译好的认证策略表
+        AuthPolicy policy = routeAuthTable.getPolicy(handlerMethod);
 
-        // 如果允许游客访问，直接放行
-        if (guestAllowed != null) {
-            return true;
-        }
-
-        // 检查是否需要认证
-        RequireAuth requireAuth = handlerMethod.getMethodAnnotation(RequireAuth.class);
-        if (requireAuth == null) {
-            requireAuth = handlerMethod.getBeanType().getAnnotation(RequireAuth.class);
-        }
-
-        // 如果不需要认证，直接放行
-        if (requireAuth == null || !requireAuth.required()) {
+        // 游客可访问或不强制认证，直接放行（携带了 Token 时尽量识别身份）
+        if (policy != AuthPolicy.REQUIRED) {
+            attachOptionalPrincipal(request);
             return true;
         }
 
@@ -59,58 +56,80 @@ public class JwtInterceptor implements HandlerInterceptor {
         String token = getTokenFromRequest(request);
         
         if (token == null || token.isEmpty()) {
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json;charset=UTF-8");
-            response.getWriter().write("{\"code\":401,\"message\":\"未登录，请先登录\",\"data\":null}");
+            writeUnauthorized(response, "未登录，请先登录");
             return false;
         }
 
         try {
-            // 验证 Token 格式是否正确
-            if (!jwtUtil.validateToken(token)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json;charset=UTF-8");
-                response.getWriter().write("{\"code\":401,\"message\":\"Token 无效\",\"data\":null}");
+            // 一次解析完成签名校验、过期检查和用户信息提取
+            AuthPrincipal principal;
+            try {
+                principal = jwtUtil.verify(token);
+            } catch (ExpiredJwtException e) {
+                writeUnauthorized(response, "Token 已过期，请重新登录");
                 return false;
-            }
-
-            // 检查 Token 是否过期
-            if (jwtUtil.isTokenExpired(token)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json;charset=UTF-8");
-                response.getWriter().write("{\"code\":401,\"message\":\"Token 已过期，请重新登录\",\"data\":null}");
+            } catch (JwtException | IllegalArgumentException e) {
+                writeUnauthorized(response, "Token 无效");
                 return false;
             }
 
-            // 从 Token 中获取用户信息
-            String username = jwtUtil.getUsernameFromToken(token);
-            Long userId = jwtUtil.getUserIdFromToken(token);
-
-            // 检查 Token 是否在 Redis 中有效（包括24小时未活动检查）
-            if (!tokenService.isTokenValid(username, token)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.setContentType("application/json;charset=UTF-8");
-                response.getWriter().write("{\"code\":401,\"message\":\"登录已失效，请重新登录\",\"data\":null}");
+            // 检查 Token 是否在 Redis 中有效（包括24小时未活动检查），并更新最后活动时间
+            // 近期已验证过的会话直接命中本地缓存
+            if (!tokenService.verifySession(principal, token)) {
+                writeUnauthorized(response, "登录已失效，请重新登录");
                 return false;
             }
 
-            // 更新最后活动时间
-            tokenService.updateLastActivity(username);
-
             // 将用户信息存入 request，供后续使用
-            request.setAttribute("userId", userId);
-            request.setAttribute("username", username);
+            attachPrincipal(request, principal);
 
             return true;
 
         } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json;charset=UTF-8");
-            response.getWriter().write("{\"code\":401,\"message\":\"认证失败：" + e.getMessage() + "\",\"data\":null}");
+            writeUnauthorized(response, "认证失败：" + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * 游客接口：如果携带了签名有效的 Token，则识别当前用户，否则按游客处理
+     */
+    private void attachOptionalPrincipal(HttpServletRequest request) {
+        String token = getTokenFromRequest(request);
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        try {
+            AuthPrincipal principal = jwtUtil.verify(token);
+            // 无状态模式下已吊销的 Token 按游客处理
+            if (revocationService.isEnabled() && revocationService.isRevoked(token, principal)) {
+                return;
+            }
+            attachPrincipal(request, principal);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token 无效时按游客处理
+        }
+    }
+
+    /**
+     * 将登录主体存入 request
+     * 同时保留 userId / username 属性，兼容直接读取属性的旧代码
+     */
+    private void attachPrincipal(HttpServletRequest request, AuthPrincipal principal) {
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        request.setAttribute("userId", principal.getUid());
+        request.setAttribute("username", principal.getUsername());
+    }
+
+    /**
+     * 返回 401 响应
+     */
+    private void writeUnauthorized(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"code\":401,\"message\":\"" + message + "\",\"data\":null}");
+    }
+
     /**
      * 从请求头中获取 Token
      */
@@ -0,0 +1,99 @@
+package org.example.interceptor;
+
+import org.example.annotation.GuestAllowed;
+import org.example.annotation.RequireAuth;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 路由认证策略表
+ * 启动时扫描所有接口的 @GuestAllowed / @RequireAuth 注解，编译成不可变的 方法 -> 策略 映射，
+ * 拦截器每个请求只做一次查表，不再反射读取注解。
+ */
+@Component
+public class RouteAuthTable implements ApplicationListener<ContextRefreshedEvent> {
+
+    private volatile Map<Method, AuthPolicy> policies = Map.of();
+    private volatile List<Map<String, Object>> routes = List.of();
+
+    /**
+     * 容器刷新完成后构建策略表
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        Map<Method, AuthPolicy> table = new HashMap<>();
+        List<Map<String, Object>> routeList = new ArrayList<>();
+
+        for (RequestMappingHandlerMapping mapping : context.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping.getHandlerMethods().entrySet()) {
+                HandlerMethod handlerMethod = entry.getValue();
+                AuthPolicy policy = resolve(handlerMethod);
+                table.put(handlerMethod.getMethod(), policy);
+
+                Map<String, Object> route = new LinkedHashMap<>();
+                route.put("methods", new TreeSet<>(entry.getKey().getMethodsCondition().getMethods()).toString());
+                route.put("patterns", entry.getKey().getPatternValues());
+                route.put("handler", handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName());
+                route.put("policy", policy);
+                routeList.add(route);
+            }
+        }
+
+        routeList.sort(Comparator.comparing(route -> route.get("patterns").toString()));
+        this.policies = Map.copyOf(table);
+        this.routes = List.copyOf(routeList);
+    }
+
+    /**
+     * 查询接口的认证策略
+     */
+    public AuthPolicy getPolicy(HandlerMethod handlerMethod) {
+        AuthPolicy policy = policies.get(handlerMethod.getMethod());
+        // 不在表中的处理器（理论上不会出现）退回到反射解析
+        return policy != null ? policy : resolve(handlerMethod);
+    }
+
+    /**
+     * 所有接口及其认证策略，用于审计哪些接口对游客开放
+     */
+    public List<Map<String, Object>> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * 解析注解：方法上的注解优先于类上的注解，@GuestAllowed 优先于 @RequireAuth
+     */
+    private static AuthPolicy resolve(HandlerMethod handlerMethod) {
+        GuestAllowed guestAllowed = handlerMethod.getMethodAnnotation(GuestAllowed.class);
+        if (guestAllowed == null) {
+            guestAllowed = handlerMethod.getBeanType().getAnnotation(GuestAllowed.class);
+        }
+        if (guestAllowed != null) {
+            return AuthPolicy.GUEST;
+        }
+
+        RequireAuth requireAuth = handlerMethod.getMethodAnnotation(RequireAuth.class);
+        if (requireAuth == null) {
+            requireAuth = handlerMethod.getBeanType().getAnnotation(RequireAuth.class);
+        }
+        if (requireAuth == null || !requireAuth.required()) {
+            return AuthPolicy.OPTIONAL;
+        }
+        return AuthPolicy.REQUIRED;
+    }
+}
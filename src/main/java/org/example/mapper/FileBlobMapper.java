@@ -0,0 +1,48 @@
+package org.example.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.entity.FileBlob;
+
+/**
+ * 按内容存储的文件 Mapper
+ */
+@Mapper
+public interface FileBlobMapper {
+
+    /**
+     * 登记一个引用：不存在时插入（引用数为 1），已存在时引用数加一
+     * 同时锁住该行，直到事务结束
+     */
+    int insertOrReference(FileBlob blob);
+
+    /**
+     * 引用数加一
+     */
+    int addReference(@Param("sha256") String sha256);
+
+    /**
+     * 引用数减一
+     */
+    int release(@Param("sha256") String sha256);
+
+    /**
+     * 根据 SHA-256 查询（锁定读，用于在同一事务内读取刚修改的行）
+     */
+    FileBlob findForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * 根据 SHA-256 查询
+     */
+    FileBlob findBySha256(@Param("sha256") String sha256);
+
+    /**
+     * 更新文件的存储位置
+     */
+    int updateLocation(@Param("sha256") String sha256, @Param("path") String path, @Param("url") String url);
+
+    /**
+     * 删除已没有引用的文件记录
+     */
+    int deleteUnreferenced(@Param("sha256") String sha256);
+}
@@ -4,6 +4,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.example.entity.Image;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -23,14 +24,38 @@ public interface ImageMapper {
     Image findById(@Param("id") Long id);
 
     /**
-     * 根据用户ID查询文件列表
+     * 根据用户ID查询文件列表（按上传时间倒序，游标分页）
+     * cursorTime / cursorId 为空时从第一条开始
      */
-    List<Image> findByUserId(@Param("userId") Long userId);
+    List<Image> findByUserId(@Param("userId") Long userId,
+                             @Param("cursorTime") LocalDateTime cursorTime,
+                             @Param("cursorId") Long cursorId,
+                             @Param("limit") int limit);
 
     /**
-     * 根据文件类型查询用户文件列表
+     * 根据文件类型查询用户文件列表（游标分页）
      */
-    List<Image> findByUserIdAndType(@Param("userId") Long userId, @Param("contentType") String contentType);
+    List<Image> findByUserIdAndType(@Param("userId") Long userId,
+                                    @Param("contentType") String contentType,
+                                    @Param("cursorTime") LocalDateTime cursorTime,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
+
+    /**
+     * 按 ID 顺序分批读取全部文件记录（用于迁移存储位置），afterId 为上一批最后一条的 ID
+     */
+    List<Image> findAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 更新一条记录的存储位置
+     */
+    int updateLocationById(@Param("id") Long id, @Param("path") String path, @Param("url") String url);
+
+    /**
+     * 更新引用同一文件（相同 SHA-256 和原路径）的全部记录的存储位置
+     */
+    int updateLocationBySha256(@Param("sha256") String sha256, @Param("oldPath") String oldPath,
+                               @Param("path") String path, @Param("url") String url);
 
     /**
      * 删除文件记录
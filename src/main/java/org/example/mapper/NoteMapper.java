@@ -2,9 +2,14 @@ package org.example.mapper;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.example.dto.ListVersion;
 import org.example.entity.Note;
+import org.example.entity.NoteSummary;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 笔记Mapper接口
@@ -33,22 +38,85 @@ public interface NoteMapper {
     int deleteById(@Param("id") Long id);
 
     /**
-     * 查询用户的所有笔记
+     * 查询用户的笔记摘要（按创建时间倒序，游标分页，不包含正文）
+     * cursorTime / cursorId 为空时从第一条开始
      */
-    List<Note> findByUserId(@Param("userId") Long userId);
+    List<NoteSummary> findByUserId(@Param("userId") Long userId,
+                                   @Param("cursorTime") LocalDateTime cursorTime,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("limit") int limit);
 
     /**
-     * 查询所有公开的笔记（状态为1）
+     * 查询用户的笔记（包含正文，按创建时间倒序，游标分页），用于导出
      */
-    List<Note> findPublicNotes();
+    List<Note> findFullByUserId(@Param("userId") Long userId,
+                                @Param("cursorTime") LocalDateTime cursorTime,
+                                @Param("cursorId") Long cursorId,
+                                @Param("limit") int limit);
+
+    /**
+     * 查询公开的笔记摘要（状态为1，按创建时间倒序，游标分页，不包含正文）
+     */
+    List<NoteSummary> findPublicNotes(@Param("cursorTime") LocalDateTime cursorTime,
+                                      @Param("cursorId") Long cursorId,
+                                      @Param("limit") int limit);
 
     /**
      * 统计用户笔记数量
      */
     int countByUserId(@Param("userId") Long userId);
 
+    /**
+     * 按ID批量查询笔记摘要（不保证顺序）
+     */
+    List<NoteSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按ID顺序分批读取笔记（包含正文），用于构建搜索索引
+     *
+     * @param since   为空时读取全部，否则只读取该时间之后更新过的
+     * @param afterId 上一批最后一条的ID，第一批传 0
+     */
+    List<Note> findForIndex(@Param("since") LocalDateTime since,
+                            @Param("afterId") long afterId,
+                            @Param("limit") int limit);
+
+    /**
+     * 按ID顺序分批读取标题（只包含 id、user_id、title、status、view_count），用于构建标题联想索引
+     *
+     * @param afterId 上一批最后一条的ID，第一批传 0
+     */
+    List<NoteSummary> findTitles(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 所有笔记ID
+     */
+    List<Long> findAllIds();
+
+    /**
+     * 查询笔记版本（只包含 id、user_id、status、update_time）
+     */
+    Note findVersionById(@Param("id") Long id);
+
+    /**
+     * 用户笔记列表的版本
+     */
+    ListVersion findUserListVersion(@Param("userId") Long userId);
+
+    /**
+     * 批量查询浏览次数（只包含 id、view_count）
+     */
+    List<Note> findViewCountsByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 增加浏览次数
      */
     int increaseViewCount(@Param("id") Long id);
+
+    /**
+     * 批量增加浏览次数
+     *
+     * @param deltas 笔记ID -> 增量
+     */
+    int increaseViewCounts(@Param("deltas") Map<Long, Long> deltas);
 }
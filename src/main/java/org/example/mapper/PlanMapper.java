@@ -2,6 +2,7 @@ package org.example.mapper;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.example.dto.ListVersion;
 import org.example.entity.Plan;
 
 import java.time.LocalDateTime;
@@ -34,16 +35,33 @@ public interface PlanMapper {
     int deleteById(@Param("id") Long id);
 
     /**
-     * 查询用户的所有计划
+     * 查询用户的计划（按计划时间正序，游标分页）
+     * cursorTime / cursorId 为空时从第一条开始
      */
-    List<Plan> findByUserId(@Param("userId") Long userId);
+    List<Plan> findByUserId(@Param("userId") Long userId,
+                            @Param("cursorTime") LocalDateTime cursorTime,
+                            @Param("cursorId") Long cursorId,
+                            @Param("limit") int limit);
 
     /**
-     * 根据用户ID和日期范围查询计划
+     * 根据用户ID和日期范围查询计划（游标分页）
      */
     List<Plan> findByUserIdAndDateRange(@Param("userId") Long userId, 
                                          @Param("startTime") LocalDateTime startTime,
-                                         @Param("endTime") LocalDateTime endTime);
+                                         @Param("endTime") LocalDateTime endTime,
+                                         @Param("cursorTime") LocalDateTime cursorTime,
+                                         @Param("cursorId") Long cursorId,
+                                         @Param("limit") int limit);
+
+    /**
+     * 查询计划版本（只包含 id、user_id、update_time）
+     */
+    Plan findVersionById(@Param("id") Long id);
+
+    /**
+     * 用户计划列表的版本
+     */
+    ListVersion findUserListVersion(@Param("userId") Long userId);
 
     /**
      * 统计用户计划数量
@@ -0,0 +1,102 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最后活动时间的合并写入器
+ * 每个请求只在内存中记录用户最新的活动时间，后台定时把这一批数据用一次 pipeline 写入 Redis，
+ * Redis 写入次数只与活跃用户数有关，与请求量无关。
+ * 24小时未活动规则只需要分钟级精度，几百毫秒的延迟不影响判断。
+ */
+@Component
+public class ActivityRecorder {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${jwt.expiration}")
+    private Long expiration;
+
+    // 待写入的活动时间：用户名 -> 时间戳
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次活动（只写内存）
+     */
+    public void record(String username) {
+        pending.put(username, System.currentTimeMillis());
+    }
+
+    /**
+     * 获取尚未写入 Redis 的活动时间
+     */
+    public Long getPending(String username) {
+        return pending.get(username);
+    }
+
+    /**
+     * 丢弃某个用户未写入的活动时间（登出时调用，避免登出后又写回活动记录）
+     */
+    public void discard(String username) {
+        pending.remove(username);
+    }
+
+    /**
+     * 定时批量写入 Redis
+     */
+    @Scheduled(fixedDelayString = "${activity.flush-interval-ms:500}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> batch = new HashMap<>();
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            // 只移除已取出的值，期间有新活动时保留给下一轮
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    batch.forEach((username, timestamp) ->
+                            ops.opsForValue().set(TokenService.LAST_ACTIVITY_PREFIX + username, timestamp,
+                                    expiration, TimeUnit.MILLISECONDS));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 写入失败时放回，等待下一轮（已有更新值的不覆盖）
+            batch.forEach((username, timestamp) -> pending.merge(username, timestamp, Math::max));
+        }
+    }
+
+    /**
+     * 关闭时写入剩余数据
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,446 @@
+package org.example.service;
+
+import org.example.dto.ChunkedUploadRequest;
+import org.example.dto.ChunkedUploadStatus;
+import org.example.entity.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片上传（断点续传）
+ * 大文件先创建上传会话，服务器在临时目录中按总大小预先建好文件；
+ * 客户端按固定分片大小切分，以任意顺序、并行地上传各个分片，每个分片按偏移量直接写入文件对应位置；
+ * 网络中断后查询已收到的范围，只补传缺少的分片；全部收到后完成上传，计算 SHA-256 并写入 image 记录。
+ * 会话信息和已收到的分片（位图）存放在 Redis 中，任一节点都可以接收分片（要求各节点共享上传目录）。
+ * 每个分片是一次短请求，不会因为大文件长时间占用请求线程。
+ * 每个用户同时进行的会话数和预留的总字节数有上限，避免预分配的临时文件占满磁盘。
+ * 写入分片前在 Redis 中登记租约，完成/取消时原子地检查没有正在写入的分片再设置完成标记，
+ * 不会出现计算 SHA-256 时还有分片在写入的情况。
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    // 会话信息（哈希）和已收到的分片（位图，第 i 位对应第 i 个分片）
+    private static final String SESSION_KEY_PREFIX = "vblog:upload:session:";
+    private static final String CHUNKS_KEY_PREFIX = "vblog:upload:chunks:";
+
+    // 正在写入的分片租约（有序集合）和每个用户的会话登记（哈希：uploadId -> 文件大小）
+    private static final String WRITERS_KEY_PREFIX = "vblog:upload:writers:";
+    private static final String USER_KEY_PREFIX = "vblog:upload:user:";
+
+    // 写入租约时长，写入分片的节点崩溃时租约到期后不再阻止完成上传
+    private static final long WRITE_LEASE_MS = 10 * 60 * 1000L;
+
+    // 正在执行完成操作的标记字段，防止重复完成和完成后再写入分片（Lua 脚本中使用同名字段）
+    private static final String COMPLETING_FIELD = "completing";
+
+    private static final int IO_CHUNK_SIZE = 64 * 1024;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private RedisScript<Long> uploadReserveScript;
+
+    @Autowired
+    private RedisScript<Long> uploadBeginWriteScript;
+
+    @Autowired
+    private RedisScript<Long> uploadFinishScript;
+
+    // 分片上传的文件大小上限（字节）
+    @Value("${upload.chunked.max-file-size:2147483648}")
+    private long maxFileSize;
+
+    // 分片大小（字节）
+    @Value("${upload.chunked.chunk-size:4194304}")
+    private int chunkSize;
+
+    // 会话有效期，每收到一个分片重新计时
+    @Value("${upload.chunked.session-ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    // 每个用户同时进行的会话数上限
+    @Value("${upload.chunked.max-sessions-per-user:3}")
+    private int maxSessionsPerUser;
+
+    // 每个用户所有会话预留的总字节数上限
+    @Value("${upload.chunked.max-bytes-per-user:4294967296}")
+    private long maxBytesPerUser;
+
+    /**
+     * 创建上传会话
+     */
+    public ChunkedUploadStatus create(Long userId, ChunkedUploadRequest request) {
+        if (userId == null) {
+            throw new RuntimeException("未登录或Token无效");
+        }
+        if (request.getFilename() == null || request.getFilename().isBlank()) {
+            throw new RuntimeException("文件名不能为空");
+        }
+        if (request.getSize() == null || request.getSize() <= 0) {
+            throw new RuntimeException("上传文件不能为空");
+        }
+        if (request.getSize() > maxFileSize) {
+            throw new RuntimeException("文件大小不能超过" + (maxFileSize / 1024 / 1024) + "MB");
+        }
+        String subDir = imageService.checkUploadType(request.getType(), request.getContentType());
+
+        Path file;
+        try {
+            file = imageService.newTempFile();
+        } catch (IOException e) {
+            throw new RuntimeException("创建上传文件失败", e);
+        }
+
+        String uploadId = file.getFileName().toString();
+        Map<String, String> session = new HashMap<>();
+        session.put("userId", userId.toString());
+        session.put("filename", request.getFilename());
+        session.put("size", request.getSize().toString());
+        session.put("contentType", request.getContentType() != null ? request.getContentType() : "");
+        session.put("subDir", subDir);
+        session.put("chunkSize", String.valueOf(chunkSize));
+        session.put("path", file.toAbsolutePath().toString());
+        stringRedisTemplate.opsForHash().putAll(SESSION_KEY_PREFIX + uploadId, session);
+        stringRedisTemplate.expire(SESSION_KEY_PREFIX + uploadId, sessionTtlMs, TimeUnit.MILLISECONDS);
+
+        // 会话写入后再登记配额：脚本只统计会话仍存在的登记，并发创建的会话不会被当作过期清除
+        Long reserved = stringRedisTemplate.execute(uploadReserveScript, List.of(USER_KEY_PREFIX + userId),
+                uploadId, request.getSize().toString(), String.valueOf(maxSessionsPerUser),
+                String.valueOf(maxBytesPerUser), String.valueOf(sessionTtlMs), SESSION_KEY_PREFIX);
+        if (reserved == null || reserved != 0) {
+            delete(uploadId, userId, file);
+            throw new RuntimeException(reserved != null && reserved == 1
+                    ? "同时进行的分片上传不能超过 " + maxSessionsPerUser + " 个"
+                    : "未完成的分片上传总大小不能超过" + (maxBytesPerUser / 1024 / 1024) + "MB");
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(request.getSize());
+        } catch (IOException e) {
+            delete(uploadId, userId, file);
+            throw new RuntimeException("创建上传文件失败", e);
+        }
+
+        return toStatus(uploadId, session, new byte[0]);
+    }
+
+    /**
+     * 查询上传会话状态（已收到的范围）
+     */
+    public ChunkedUploadStatus getStatus(String uploadId, Long userId) {
+        Map<String, String> session = loadSession(uploadId, userId);
+        return toStatus(uploadId, session, readChunkBitmap(uploadId));
+    }
+
+    /**
+     * 接收一个分片，写入文件中 offset 开始的位置
+     * offset 必须是分片大小的整数倍，请求体长度必须等于该分片的大小（最后一片可以较短）；
+     * 同一个分片重复上传时覆盖写入
+     *
+     * @param contentLength 请求体长度，未知时为 -1
+     */
+    public ChunkedUploadStatus writeChunk(String uploadId, Long userId, long offset, InputStream body,
+                                          long contentLength) {
+        Map<String, String> session = loadSession(uploadId, userId);
+        long size = Long.parseLong(session.get("size"));
+        int sessionChunkSize = Integer.parseInt(session.get("chunkSize"));
+        if (offset < 0 || offset >= size || offset % sessionChunkSize != 0) {
+            throw new RuntimeException("分片位置不正确");
+        }
+        int length = (int) Math.min(sessionChunkSize, size - offset);
+        if (contentLength >= 0 && contentLength != length) {
+            throw new RuntimeException("分片大小不正确，应为 " + length + " 字节");
+        }
+
+        // 登记写入租约，与完成/取消的加锁在 Redis 中原子地互斥
+        String lease = UUID.randomUUID().toString();
+        Long begun = stringRedisTemplate.execute(uploadBeginWriteScript,
+                List.of(SESSION_KEY_PREFIX + uploadId, WRITERS_KEY_PREFIX + uploadId),
+                lease, String.valueOf(System.currentTimeMillis()), String.valueOf(WRITE_LEASE_MS));
+        if (begun == null || begun < 0) {
+            throw new RuntimeException("上传会话不存在或已过期");
+        }
+        if (begun == 0) {
+            throw new RuntimeException("上传正在完成，不能再上传分片");
+        }
+        try {
+            writeChunkFile(session, offset, length, body);
+            // 分片写完后才记录，中途失败的分片需要重传；在释放租约之前记录，完成上传时一定能看到
+            stringRedisTemplate.opsForValue().setBit(CHUNKS_KEY_PREFIX + uploadId, offset / sessionChunkSize, true);
+        } finally {
+            stringRedisTemplate.opsForZSet().remove(WRITERS_KEY_PREFIX + uploadId, lease);
+        }
+        touch(uploadId, userId);
+        return toStatus(uploadId, session, readChunkBitmap(uploadId));
+    }
+
+    /**
+     * 完成上传：检查所有分片都已收到，计算 SHA-256 并保存文件（相同内容只保存一份）
+     *
+     * @param expectedSha256 客户端计算的 SHA-256，不为空时与服务器计算的结果比对
+     */
+    public Image complete(String uploadId, Long userId, String expectedSha256) {
+        Map<String, String> session = loadSession(uploadId, userId);
+        long size = Long.parseLong(session.get("size"));
+        int chunkCount = chunkCountOf(size, Integer.parseInt(session.get("chunkSize")));
+        acquireFinish(uploadId, "上传正在完成，请勿重复提交");
+
+        // 加锁后不会再有分片写入，此时的位图就是最终结果
+        String sessionKey = SESSION_KEY_PREFIX + uploadId;
+        Path path = Paths.get(session.get("path"));
+        try {
+            Long received = stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.stringCommands().bitCount(key(CHUNKS_KEY_PREFIX + uploadId)));
+            long missing = chunkCount - (received != null ? received : 0);
+            if (missing > 0) {
+                throw new RuntimeException("还有 " + missing + " 个分片未上传");
+            }
+            String sha256 = digestOf(path);
+            if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new RuntimeException("文件校验失败：SHA-256 不一致");
+            }
+            Image image = imageService.storeCompleted(userId, path, session.get("filename"),
+                    session.get("contentType"), session.get("subDir"), sha256, size);
+            delete(uploadId, userId, path);
+            return image;
+        } catch (RuntimeException e) {
+            stringRedisTemplate.opsForHash().delete(sessionKey, COMPLETING_FIELD);
+            throw e;
+        }
+    }
+
+    /**
+     * 取消上传，删除会话和已收到的内容
+     */
+    public void cancel(String uploadId, Long userId) {
+        Map<String, String> session = loadSession(uploadId, userId);
+        acquireFinish(uploadId, "上传正在完成，不能取消");
+        delete(uploadId, userId, Paths.get(session.get("path")));
+    }
+
+    /**
+     * 清理临时目录中会话已过期的文件
+     * 文件每收到一个分片都会更新修改时间，超过会话有效期没有更新且 Redis 中已没有会话的才删除；
+     * 普通上传中途失败遗留的临时文件也一并清理
+     */
+    @Scheduled(fixedDelayString = "${upload.chunked.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        Path tmpDir = imageService.tempDir();
+        if (!Files.isDirectory(tmpDir)) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - sessionTtlMs;
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tmpDir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)
+                        && Files.getLastModifiedTime(file).toMillis() < deadline
+                        && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(SESSION_KEY_PREFIX + file.getFileName()))
+                        && Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理过期上传文件失败: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("已清理 {} 个过期上传文件", removed);
+        }
+    }
+
+    private Map<String, String> loadSession(String uploadId, Long userId) {
+        if (userId == null) {
+            throw new RuntimeException("未登录或Token无效");
+        }
+        Map<Object, Object> entries = uploadId != null
+                ? stringRedisTemplate.opsForHash().entries(SESSION_KEY_PREFIX + uploadId)
+                : Map.of();
+        if (entries.isEmpty()) {
+            throw new RuntimeException("上传会话不存在或已过期");
+        }
+        Map<String, String> session = new HashMap<>();
+        entries.forEach((k, v) -> session.put(k.toString(), v.toString()));
+        if (!userId.toString().equals(session.get("userId"))) {
+            throw new RuntimeException("无权限访问该上传会话");
+        }
+        return session;
+    }
+
+    /**
+     * 设置完成标记：已在完成或还有分片正在写入时失败
+     */
+    private void acquireFinish(String uploadId, String completingMessage) {
+        Long acquired = stringRedisTemplate.execute(uploadFinishScript,
+                List.of(SESSION_KEY_PREFIX + uploadId, WRITERS_KEY_PREFIX + uploadId),
+                String.valueOf(System.currentTimeMillis()));
+        if (acquired == null || acquired < 0) {
+            throw new RuntimeException("上传会话不存在或已过期");
+        }
+        if (acquired == 0) {
+            throw new RuntimeException(completingMessage);
+        }
+        if (acquired == 2) {
+            throw new RuntimeException("还有分片正在上传，请稍后重试");
+        }
+    }
+
+    private void touch(String uploadId, Long userId) {
+        stringRedisTemplate.expire(SESSION_KEY_PREFIX + uploadId, sessionTtlMs, TimeUnit.MILLISECONDS);
+        stringRedisTemplate.expire(CHUNKS_KEY_PREFIX + uploadId, sessionTtlMs, TimeUnit.MILLISECONDS);
+        stringRedisTemplate.expire(USER_KEY_PREFIX + userId, sessionTtlMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void delete(String uploadId, Long userId, Path path) {
+        stringRedisTemplate.delete(List.of(SESSION_KEY_PREFIX + uploadId, CHUNKS_KEY_PREFIX + uploadId,
+                WRITERS_KEY_PREFIX + uploadId));
+        stringRedisTemplate.opsForHash().delete(USER_KEY_PREFIX + userId, uploadId);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除上传临时文件失败: {}", path);
+        }
+    }
+
+    /**
+     * 读取分片位图（二进制内容，不能按字符串读取）
+     */
+    private byte[] readChunkBitmap(String uploadId) {
+        byte[] bitmap = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key(CHUNKS_KEY_PREFIX + uploadId)));
+        return bitmap != null ? bitmap : new byte[0];
+    }
+
+    private ChunkedUploadStatus toStatus(String uploadId, Map<String, String> session, byte[] bitmap) {
+        long size = Long.parseLong(session.get("size"));
+        int sessionChunkSize = Integer.parseInt(session.get("chunkSize"));
+        int chunkCount = chunkCountOf(size, sessionChunkSize);
+        List<long[]> ranges = receivedRanges(bitmap, size, sessionChunkSize);
+        int receivedChunks = 0;
+        for (long[] range : ranges) {
+            receivedChunks += chunkCountOf(range[1] - range[0], sessionChunkSize);
+        }
+
+        ChunkedUploadStatus status = new ChunkedUploadStatus();
+        status.setUploadId(uploadId);
+        status.setFilename(session.get("filename"));
+        status.setSize(size);
+        status.setChunkSize(sessionChunkSize);
+        status.setChunkCount(chunkCount);
+        status.setReceivedChunks(receivedChunks);
+        status.setReceived(ranges);
+        return status;
+    }
+
+    /**
+     * 由分片位图得出已收到的字节范围 [开始, 结束)，相邻的已收到分片合并为一个范围
+     * Redis 位图中第 0 位是第一个字节的最高位；超出分片数的位忽略
+     */
+    static List<long[]> receivedRanges(byte[] bitmap, long size, int chunkSize) {
+        int chunkCount = chunkCountOf(size, chunkSize);
+        List<long[]> ranges = new ArrayList<>();
+        long rangeStart = -1;
+        for (int i = 0; i <= chunkCount; i++) {
+            boolean set = i < chunkCount && (i >> 3) < bitmap.length
+                    && (bitmap[i >> 3] & (0x80 >>> (i & 7))) != 0;
+            if (set) {
+                if (rangeStart < 0) {
+                    rangeStart = (long) i * chunkSize;
+                }
+            } else if (rangeStart >= 0) {
+                ranges.add(new long[]{rangeStart, Math.min((long) i * chunkSize, size)});
+                rangeStart = -1;
+            }
+        }
+        return ranges;
+    }
+
+    static int chunkCountOf(long size, int chunkSize) {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    private static void writeChunkFile(Map<String, String> session, long offset, int length, InputStream body) {
+        try (FileChannel channel = FileChannel.open(Paths.get(session.get("path")), StandardOpenOption.WRITE)) {
+            byte[] chunk = new byte[IO_CHUNK_SIZE];
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                int n = body.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (n < 0) {
+                    throw new RuntimeException("分片不完整，应为 " + length + " 字节");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                remaining -= n;
+            }
+            if (body.read() >= 0) {
+                throw new RuntimeException("分片大小不正确，应为 " + length + " 字节");
+            }
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("上传会话已失效，请重新上传");
+        } catch (IOException e) {
+            throw new RuntimeException("分片上传失败：" + e.getMessage(), e);
+        }
+    }
+
+    private static String digestOf(Path path) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(IO_CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) > 0) {
+                digest.update(buffer.flip());
+            }
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("上传会话已失效，请重新上传");
+        } catch (IOException e) {
+            throw new RuntimeException("读取上传文件失败", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.common.CursorPage;
+import org.example.common.PageCursor;
+import org.example.entity.Image;
+import org.example.entity.Note;
+import org.example.entity.Plan;
+import org.example.mapper.ImageMapper;
+import org.example.util.TokenBucket;
+import org.example.util.UploadLayout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 用户数据导出
+ * 把用户的笔记、计划（NDJSON，每行一个 JSON 对象）和上传的文件打包成 ZIP，边生成边写入响应：
+ * - 笔记、计划和文件清单按页查询（每页一次独立查询，写出期间不占用数据库连接），不在内存中组装列表，也不写临时文件
+ * - 文件通过 FileChannel 分块读取，每个文件只读一遍；图片、视频等已压缩的内容用 0 级（不压缩）的 DEFLATE 存放，
+ *   不像 STORED 那样需要先读一遍算出 CRC，也不再浪费 CPU 压缩
+ * - 所有导出任务共享一个磁盘读取限速（令牌桶），并限制同时进行的导出数，单个导出不会占满磁盘 I/O；
+ *   写响应是阻塞的，客户端读得慢时导出随之变慢
+ */
+@Service
+public class ExportService {
+
+    private static final int IO_CHUNK_SIZE = 64 * 1024;
+
+    // 读取文件记录的分页大小，读文件内容期间不占用数据库连接
+    private static final int FILE_PAGE_SIZE = 100;
+
+    // 除图片、视频、音频外已经压缩过的类型
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip",
+            "application/x-7z-compressed", "application/x-rar-compressed"
+    );
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private PlanService planService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageMapper imageMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 同时进行的导出任务数上限
+    @Value("${export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    // 所有导出任务合计的文件读取速度上限（字节/秒），0 表示不限速
+    @Value("${export.max-bytes-per-second:20971520}")
+    private long maxBytesPerSecond;
+
+    private Semaphore running;
+    // 不限速时为 null
+    private TokenBucket diskBudget;
+    private ObjectWriter ndjsonWriter;
+
+    @PostConstruct
+    public void init() {
+        this.running = new Semaphore(maxConcurrent);
+        // 桶容量为一秒的额度，允许短暂突发；补充速度为 0 时令牌桶会无限等待，按不限速处理
+        this.diskBudget = maxBytesPerSecond > 0
+                ? new TokenBucket(Math.max(maxBytesPerSecond, IO_CHUNK_SIZE), maxBytesPerSecond / 1000.0)
+                : null;
+        this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * 导出用户的全部数据，ZIP 直接写入响应
+     *
+     * @param filename 下载的文件名
+     */
+    public void export(Long userId, String filename, HttpServletResponse response) throws IOException {
+        if (!running.tryAcquire()) {
+            throw new RuntimeException("导出任务过多，请稍后重试");
+        }
+        try {
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+            OutputStream out = new BufferedOutputStream(response.getOutputStream(), IO_CHUNK_SIZE);
+            ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            this.<Note>writeNdjson(zip, "notes.ndjson",
+                    consumer -> noteService.streamUserNotesWithContent(userId, consumer));
+            this.<Plan>writeNdjson(zip, "plans.ndjson", consumer -> planService.streamUserPlans(userId, consumer));
+            this.<Map<String, Object>>writeNdjson(zip, "files.ndjson", consumer -> imageService.streamUserFiles(userId,
+                    image -> consumer.accept(manifestOf(image))));
+            writeFiles(zip, userId);
+            zip.finish();
+            out.flush();
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * 写入一个 NDJSON 条目
+     */
+    private <T> void writeNdjson(ZipOutputStream zip, String name, Consumer<Consumer<T>> source) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        JsonGenerator generator = objectMapper.createGenerator(zip, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        try {
+            source.accept(item -> {
+                try {
+                    ndjsonWriter.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+        zip.closeEntry();
+    }
+
+    /**
+     * 文件清单中的一行：文件信息和在压缩包中的位置（不包含服务器上的存储路径）
+     */
+    private Map<String, Object> manifestOf(Image image) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", image.getId());
+        row.put("url", image.getUrl());
+        row.put("contentType", image.getContentType());
+        row.put("size", image.getSize());
+        row.put("sha256", image.getSha256());
+        row.put("createTime", image.getCreateTime());
+        if (image.getPath() != null && Files.isRegularFile(UploadLayout.locate(image.getPath()))) {
+            row.put("entry", entryNameOf(image));
+        } else {
+            row.put("missing", true);
+        }
+        return row;
+    }
+
+    /**
+     * 按页读取文件记录并写入文件内容
+     */
+    private void writeFiles(ZipOutputStream zip, Long userId) throws IOException {
+        byte[] chunk = new byte[IO_CHUNK_SIZE];
+        PageCursor position = null;
+        while (true) {
+            List<Image> rows = imageMapper.findByUserId(userId,
+                    position != null ? position.time() : null,
+                    position != null ? position.id() : null,
+                    FILE_PAGE_SIZE + 1);
+            CursorPage<Image> page = CursorPage.of(rows, FILE_PAGE_SIZE, Image::getCreateTime, Image::getId);
+            for (Image image : page.getItems()) {
+                if (image.getPath() != null && Files.isRegularFile(UploadLayout.locate(image.getPath()))) {
+                    writeFile(zip, image, chunk);
+                }
+            }
+            if (page.getNextCursor() == null) {
+                return;
+            }
+            position = PageCursor.decode(page.getNextCursor());
+        }
+    }
+
+    private void writeFile(ZipOutputStream zip, Image image, byte[] chunk) throws IOException {
+        ZipEntry entry = new ZipEntry(entryNameOf(image));
+        if (image.getCreateTime() != null) {
+            entry.setTimeLocal(image.getCreateTime());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try (FileChannel channel = FileChannel.open(UploadLayout.locate(image.getPath()), StandardOpenOption.READ)) {
+            // 压缩级别从下一个条目开始生效；0 级只是把数据分块原样写出，CRC 和大小写在条目之后的数据描述符中
+            zip.setLevel(isCompressed(image.getContentType()) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(entry);
+            int n;
+            while ((n = channel.read(buffer.clear())) > 0) {
+                throttle(n);
+                zip.write(chunk, 0, n);
+            }
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * 按全局磁盘读取额度限速
+     */
+    private void throttle(int bytes) throws IOException {
+        if (diskBudget == null) {
+            return;
+        }
+        long wait;
+        while ((wait = diskBudget.tryAcquire(bytes)) > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("导出已中断");
+            }
+        }
+    }
+
+    private static String entryNameOf(Image image) {
+        String url = image.getUrl() != null ? image.getUrl() : "";
+        int slash = url.lastIndexOf('/');
+        int dot = url.lastIndexOf('.');
+        String ext = dot > slash ? url.substring(dot) : "";
+        return "files/" + image.getId() + ext;
+    }
+
+    private static boolean isCompressed(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        if (contentType.startsWith("image/")) {
+            // BMP、SVG 未压缩
+            return !contentType.equals("image/bmp") && !contentType.equals("image/svg+xml");
+        }
+        return contentType.startsWith("video/") || contentType.startsWith("audio/")
+                || COMPRESSED_TYPES.contains(contentType);
+    }
+}
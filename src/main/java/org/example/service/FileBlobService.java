@@ -0,0 +1,234 @@
+package org.example.service;
+
+import org.example.entity.FileBlob;
+import org.example.entity.Image;
+import org.example.mapper.FileBlobMapper;
+import org.example.mapper.ImageMapper;
+import org.example.util.TransactionUtil;
+import org.example.util.UploadLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * 按内容存储的文件
+ * 文件以 SHA-256 命名，相同内容只在磁盘上保存一份，file_blob.ref_count 记录引用它的 image 记录数，
+ * 删除最后一个引用时才删除文件。
+ * 新增和释放引用都先锁住 file_blob 中对应的行，移动或删除磁盘文件也在持有行锁时进行，
+ * 同时上传和删除相同内容的请求不会删掉对方刚保存的文件。
+ * 启用之前上传的文件不在 file_blob 中，仍按各自的路径单独保存和删除。
+ * 公开访问的文件名就是内容的 SHA-256：已经持有某个文件的人可以算出它的地址，确认服务器上是否存有该文件
+ * （秒传预检同理）。上传的内容都是用于在笔记中公开引用的图片、视频和附件，这里接受这个代价换取去重和秒传；
+ * 原来的随机文件名同样只要拿到链接就能访问，并不提供访问控制。
+ */
+@Service
+public class FileBlobService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileBlobService.class);
+
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+
+    @Autowired
+    private ImageMapper imageMapper;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    /**
+     * 根据 SHA-256 查询已保存的文件
+     */
+    public FileBlob findBySha256(String sha256) {
+        return fileBlobMapper.findBySha256(sha256);
+    }
+
+    /**
+     * 保存一次上传并写入 image 记录
+     * 内容是新的时把临时文件移动到 target；已存在时引用已有文件，临时文件由调用方删除
+     *
+     * @param image  待插入的记录，需已设置 userId、size、contentType、sha256
+     * @param temp   已写完的临时文件
+     * @param target 内容是新的时文件的保存位置
+     * @param url    target 对应的访问 URL
+     */
+    @Transactional
+    public Image storeUpload(Image image, Path temp, Path target, String url) {
+        FileBlob candidate = new FileBlob();
+        candidate.setSha256(image.getSha256());
+        candidate.setSize(image.getSize());
+        candidate.setUrl(url);
+        candidate.setPath(target.toAbsolutePath().toString());
+        fileBlobMapper.insertOrReference(candidate);
+        FileBlob blob = fileBlobMapper.findForUpdate(image.getSha256());
+
+        // 引用数为 1 说明本次是第一次保存该内容；已有的文件丢失时用本次上传的内容补上
+        Path blobPath = Paths.get(blob.getPath());
+        Path moved = null;
+        if (blob.getRefCount() == 1 || !Files.isRegularFile(blobPath)) {
+            try {
+                Files.createDirectories(blobPath.getParent());
+                Files.move(temp, blobPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException("文件保存失败", e);
+            }
+            moved = blobPath;
+        }
+
+        try {
+            image.setUrl(blob.getUrl());
+            image.setPath(blob.getPath());
+            if (imageMapper.insert(image) <= 0) {
+                throw new RuntimeException("保存文件记录失败");
+            }
+            return image;
+        } catch (RuntimeException e) {
+            // 事务回滚后 file_blob 中没有这个文件，不能留在磁盘上
+            if (moved != null && blob.getRefCount() == 1) {
+                moved.toFile().delete();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 为已保存的文件新增一条 image 记录（秒传），不涉及文件内容
+     *
+     * @param image 待插入的记录，需已设置 userId、size、contentType、sha256
+     * @return 新记录；文件不存在或大小不一致时返回 null，需要客户端上传
+     */
+    @Transactional
+    public Image addReference(Image image) {
+        FileBlob blob = fileBlobMapper.findForUpdate(image.getSha256());
+        if (blob == null || !blob.getSize().equals(image.getSize())
+                || !Files.isRegularFile(Paths.get(blob.getPath()))) {
+            return null;
+        }
+        fileBlobMapper.addReference(blob.getSha256());
+
+        image.setUrl(blob.getUrl());
+        image.setPath(blob.getPath());
+        if (imageMapper.insert(image) <= 0) {
+            throw new RuntimeException("保存文件记录失败");
+        }
+        return image;
+    }
+
+    /**
+     * 释放 image 记录对文件的引用，最后一个引用释放时删除文件
+     * 需在删除 image 记录的事务中调用
+     */
+    @Transactional
+    public void release(Image image) {
+        FileBlob blob = image.getSha256() != null ? fileBlobMapper.findForUpdate(image.getSha256()) : null;
+        // 路径不一致说明这条记录保存的是自己的文件（启用按内容存储之前上传的）
+        if (blob == null || !blob.getPath().equals(image.getPath())) {
+            deleteStoredFile(image.getPath());
+            return;
+        }
+
+        fileBlobMapper.release(blob.getSha256());
+        if (blob.getRefCount() > 1) {
+            return;
+        }
+        fileBlobMapper.deleteUnreferenced(blob.getSha256());
+        deleteStoredFile(blob.getPath());
+    }
+
+    /**
+     * 把平铺保存的文件移动到散列目录，并更新引用它的记录
+     * 按内容存储的文件在持有 file_blob 行锁时移动，与上传、删除相同内容的请求互斥；
+     * 之前单独保存的文件只属于这一条记录，删除时会在两个位置查找（见 deleteStoredFile）
+     *
+     * @return 是否已迁移；已随引用同一文件的记录迁移、文件已不存在或记录已被删除时返回 false
+     */
+    @Transactional
+    public boolean relocate(Image image) {
+        FileBlob blob = image.getSha256() != null ? fileBlobMapper.findForUpdate(image.getSha256()) : null;
+        boolean shared = blob != null && blob.getPath().equals(image.getPath());
+        Path from = Paths.get(image.getPath());
+        Path to = UploadLayout.shardedPath(from);
+        String url = UploadLayout.shardedUrl(image.getUrl());
+        if (blob != null && blob.getPath().equals(to.toString())) {
+            return false;
+        }
+
+        // 上次移动后没来得及更新记录时，文件已在新位置
+        boolean moved = moveFile(from, to);
+        if (!moved && !Files.isRegularFile(to)) {
+            return false;
+        }
+        try {
+            if (shared) {
+                fileBlobMapper.updateLocation(blob.getSha256(), to.toString(), url);
+                imageMapper.updateLocationBySha256(blob.getSha256(), image.getPath(), to.toString(), url);
+            } else if (imageMapper.updateLocationById(image.getId(), to.toString(), url) <= 0) {
+                // 记录在迁移过程中被删除
+                deleteStoredFile(to.toString());
+                return false;
+            }
+        } catch (RuntimeException e) {
+            if (moved) {
+                moveFile(to, from);
+            }
+            throw e;
+        }
+        imageDerivativeService.moveDerivatives(from, to);
+        return true;
+    }
+
+    /**
+     * 移动文件，原文件不存在时返回 false
+     */
+    private static boolean moveFile(Path from, Path to) {
+        if (!Files.isRegularFile(from)) {
+            return false;
+        }
+        try {
+            Files.createDirectories(to.getParent());
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("文件移动失败", e);
+        }
+    }
+
+    /**
+     * 删除文件：事务中先改名为同目录下的隐藏文件，提交后才真正删除，回滚时改回原名，
+     * 回滚后仍在的 image / file_blob 记录不会指向已删除的文件。
+     * 提交前相同内容的上传被行锁挡住，提交后的上传看到原位置为空，会重新保存，不受这里的删除影响
+     */
+    private void deleteStoredFile(String path) {
+        // 文件可能已被迁移到散列目录而记录尚未更新
+        Path file = UploadLayout.locate(path);
+        if (!Files.exists(file)) {
+            return;
+        }
+        Path trash = file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".deleted");
+        try {
+            Files.move(file, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("删除文件失败", e);
+        }
+        TransactionUtil.afterCompletion(committed -> {
+            try {
+                if (committed) {
+                    Files.deleteIfExists(trash);
+                    imageDerivativeService.deleteDerivatives(file);
+                } else {
+                    Files.move(trash, file, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                log.warn("{}文件失败: {}", committed ? "删除" : "恢复", file);
+            }
+        });
+    }
+}
@@ -0,0 +1,246 @@
+package org.example.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 文件响应输出
+ * 支持条件请求（ETag / Last-Modified）和范围请求（Range / If-Range）：
+ * - 单个范围返回 206 和 Content-Range，多个范围返回 multipart/byteranges，无法满足的范围返回 416
+ * - 视频拖动进度条时浏览器只请求需要的部分，不再从头下载
+ * 响应体不经过 Java 堆：Tomcat 支持时交给 sendfile（内核直接从页缓存写入 socket），
+ * 否则用 FileChannel.transferTo 分块写出；多段范围的各段也用 transferTo 写出。
+ */
+@Service
+public class FileServeService {
+
+    // Tomcat sendfile 的请求属性
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 多段范围合并后超过该段数时返回整个文件，避免大量小段请求
+    private static final int MAX_RANGES = 16;
+
+    // 不能使用 sendfile 时每次 transferTo 的字节数
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // 是否使用 Tomcat 的 sendfile（HTTPS 或开启压缩时 Tomcat 自动不使用）
+    @Value("${upload.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
+
+    /**
+     * 输出文件内容
+     *
+     * @param contentType  响应类型，为空时为 application/octet-stream
+     * @param disposition  Content-Disposition 响应头，为空时不设置
+     * @param cacheControl Cache-Control 响应头，为空时不设置
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file, String contentType,
+                      String disposition, String cacheControl) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        // 强 ETag：大小 + 修改时间，If-Range 只接受强校验值
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        if (disposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        }
+        String type = contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+
+        List<long[]> ranges = resolveRanges(request, etag, lastModified, length);
+        if (ranges == null) {
+            response.setContentType(type);
+            sendRegion(request, response, file, 0, length);
+        } else if (ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(type);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            sendRegion(request, response, file, range[0], range[1] - range[0] + 1);
+        } else {
+            sendMultipart(request, response, file, type, ranges, length);
+        }
+    }
+
+    /**
+     * 解析 Range 请求头
+     *
+     * @return null 表示返回整个文件（没有 Range、If-Range 不匹配、格式错误或段数过多）；
+     * 空列表表示所有范围都无法满足；否则为合并后按起点排序的范围 [开始, 结束]
+     */
+    private List<long[]> resolveRanges(HttpServletRequest request, String etag, long lastModified, long length) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(request, ifRange, etag, lastModified)) {
+            return null;
+        }
+
+        List<HttpRange> parsed;
+        try {
+            parsed = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (HttpRange range : parsed) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start < length && start <= end) {
+                ranges.add(new long[]{start, end});
+            }
+        }
+
+        // 合并重叠或相邻的范围
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged.size() > MAX_RANGES ? null : merged;
+    }
+
+    /**
+     * If-Range 为 ETag 时必须与当前的强 ETag 完全一致，为日期时必须与最后修改时间（秒）一致
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 输出文件中的一段
+     */
+    private void sendRegion(HttpServletRequest request, HttpServletResponse response, Path file,
+                            long start, long count) throws IOException {
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // 由 Tomcat 在请求处理完成后调用 sendfile 发送
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * 多段范围：multipart/byteranges，预先算出总长度以便设置 Content-Length
+     */
+    private void sendMultipart(HttpServletRequest request, HttpServletResponse response, Path file,
+                               String type, List<long[]> ranges, long length) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + type + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, range[0], range[1] - range[0] + 1, target);
+            }
+        }
+        out.write(closing);
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long n = channel.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, end - position), target);
+            if (n <= 0) {
+                // 文件在发送过程中被截短
+                throw new IOException("文件长度与预期不符");
+            }
+            position += n;
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+}
@@ -0,0 +1,321 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.util.ImageResizer;
+import org.example.util.SingleFlight;
+import org.example.util.SingleFlightRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 图片缩略图（多尺寸派生图）
+ * 按配置的宽度档位生成 JPEG 派生图，保存在原图旁边（如 xxx.png 的 480 宽版本为 xxx.w480.jpg），
+ * 访问 /uploads/images/xxx.png?w=480 时返回不小于请求宽度的最小档位。
+ * - 上传图片后在有界线程池中预先生成；未生成的在第一次访问时生成，队列满时直接返回原图
+ * - 同一派生图的并发请求通过 SingleFlight 合并，只缩放一次
+ * - 无法生成的档位（格式不支持、原图不够宽）记在本地缓存中，不再重复尝试，直接返回原图
+ * - 生成失败、排队已满或等待超时时也返回原图，但标记为临时结果，调用方不能让浏览器长期缓存
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    // 派生图的文件名，不再作为缩放的原图
+    private static final Pattern DERIVATIVE_NAME = Pattern.compile(".*\\.w\\d+\\.jpg");
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    @Value("${image.derivative.enabled:true}")
+    private boolean enabled;
+
+    // 宽度档位（像素），从小到大
+    @Value("${image.derivative.widths:240,480,960,1440}")
+    private int[] widths;
+
+    // 与宽度档位一一对应的 JPEG 质量，小图细节少，用较高的质量
+    @Value("${image.derivative.qualities:0.85,0.82,0.8,0.78}")
+    private float[] qualities;
+
+    // 上传后是否预先生成全部档位
+    @Value("${image.derivative.pregenerate:true}")
+    private boolean pregenerate;
+
+    // 缩放线程数和等待队列长度
+    @Value("${image.derivative.threads:2}")
+    private int threads;
+
+    @Value("${image.derivative.queue-size:64}")
+    private int queueSize;
+
+    // 第一次访问时等待生成的最长时间（毫秒），超时返回原图，生成在后台继续
+    @Value("${image.derivative.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private SingleFlight<Path, Path> resizes;
+    // 无法生成的派生图 -> 是否为永久原因（格式不支持、原图不够宽）；生成出错时为 false
+    private Cache<Path, Boolean> unsupported;
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (widths.length != qualities.length) {
+            throw new IllegalStateException("image.derivative.widths 与 image.derivative.qualities 的个数不一致");
+        }
+        // 按宽度从小到大排序，质量随对应的宽度一起调整顺序
+        Integer[] order = new Integer[widths.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingInt(i -> widths[i]));
+        int[] sortedWidths = new int[widths.length];
+        float[] sortedQualities = new float[qualities.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedWidths[i] = widths[order[i]];
+            sortedQualities[i] = qualities[order[i]];
+        }
+        widths = sortedWidths;
+        qualities = sortedQualities;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivative-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.resizes = singleFlightRegistry.create("image-derivative");
+        this.unsupported = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 请求宽度对应的文件
+     *
+     * @param file      派生图或原图
+     * @param temporary 是否因为暂时无法生成而返回原图，之后再请求可能得到派生图
+     */
+    public record Resolved(Path file, boolean temporary) {
+    }
+
+    /**
+     * 返回请求宽度对应的派生图，没有时生成；不需要或无法生成时返回原图
+     */
+    public Resolved resolve(Path original, int requestedWidth) {
+        if (!enabled || requestedWidth <= 0 || !Files.isRegularFile(original)
+                || DERIVATIVE_NAME.matcher(original.getFileName().toString()).matches()) {
+            return new Resolved(original, false);
+        }
+        int level = levelFor(requestedWidth);
+        Path target = derivativePath(original, widths[level]);
+        if (Files.isRegularFile(target)) {
+            return new Resolved(target, false);
+        }
+        Boolean permanent = unsupported.getIfPresent(target);
+        if (permanent != null) {
+            return new Resolved(original, !permanent);
+        }
+
+        Path result;
+        try {
+            result = resizes.execute(target, () -> generateAndWait(original, level, target));
+        } catch (RuntimeException e) {
+            result = null;
+        }
+        if (result != null) {
+            return new Resolved(result, false);
+        }
+        return new Resolved(original, !Boolean.TRUE.equals(unsupported.getIfPresent(target)));
+    }
+
+    /**
+     * 上传图片后在后台生成全部档位，队列满时跳过（之后第一次访问时再生成）
+     */
+    public void pregenerate(Path original) {
+        if (!enabled || !pregenerate || DERIVATIVE_NAME.matcher(original.getFileName().toString()).matches()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                for (int level = 0; level < widths.length; level++) {
+                    if (create(original, level, derivativePath(original, widths[level])) == null) {
+                        // 原图不够宽时更大的档位也不会生成
+                        return;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * 删除原图的全部派生图，原图被删除时调用
+     */
+    public void deleteDerivatives(Path original) {
+        for (int width : widths) {
+            Path target = derivativePath(original, width);
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException e) {
+                log.warn("删除缩略图失败: {}", target);
+            }
+            unsupported.invalidate(target);
+        }
+    }
+
+    /**
+     * 原图移动后把派生图移动到新位置旁边，移动失败的删除，之后访问时重新生成
+     */
+    public void moveDerivatives(Path original, Path moved) {
+        for (int width : widths) {
+            Path source = derivativePath(original, width);
+            if (!Files.isRegularFile(source)) {
+                continue;
+            }
+            try {
+                Files.move(source, derivativePath(moved, width), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                try {
+                    Files.deleteIfExists(source);
+                } catch (IOException ignored) {
+                    log.warn("删除缩略图失败: {}", source);
+                }
+            }
+            unsupported.invalidate(source);
+        }
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("widths", widths);
+        result.put("generated", generated.sum());
+        result.put("rejected", rejected.sum());
+        result.put("failed", failed.sum());
+        result.put("unsupported", unsupported.estimatedSize());
+        result.put("queued", executor.getQueue().size());
+        result.put("active", executor.getActiveCount());
+        return result;
+    }
+
+    /**
+     * 派生图路径：原图文件名去掉扩展名，加上 .w宽度.jpg
+     */
+    private static Path derivativePath(Path original, int width) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + ".w" + width + ".jpg");
+    }
+
+    /**
+     * 不小于请求宽度的最小档位，超过最大档位时取最大档位
+     */
+    private int levelFor(int requestedWidth) {
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] >= requestedWidth) {
+                return i;
+            }
+        }
+        return widths.length - 1;
+    }
+
+    /**
+     * 提交到线程池生成并等待结果
+     */
+    private Path generateAndWait(Path original, int level, Path target) {
+        Future<Path> future;
+        try {
+            future = executor.submit(() -> create(original, level, target));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return null;
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 生成一个派生图：先写入同目录下的隐藏临时文件，完成后原子改名
+     *
+     * @return 派生图路径；无法生成时返回 null
+     */
+    private Path create(Path original, int level, Path target) {
+        if (Files.isRegularFile(target)) {
+            return target;
+        }
+        if (unsupported.getIfPresent(target) != null) {
+            return null;
+        }
+        Path temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            if (!ImageResizer.resizeToJpeg(original, temp, widths[level], qualities[level])) {
+                unsupported.put(target, Boolean.TRUE);
+                return null;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            generated.increment();
+            return target;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            unsupported.put(target, Boolean.FALSE);
+            log.warn("生成缩略图失败: {} -> {}: {}", original, target.getFileName(), e.getMessage());
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
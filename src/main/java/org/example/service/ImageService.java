@@ -1,28 +1,40 @@
 package org.example.service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.example.common.CursorPage;
+import org.example.common.PageCursor;
+import org.example.dto.UploadPrecheckRequest;
+import org.example.entity.FileBlob;
 import org.example.entity.Image;
 import org.example.mapper.ImageMapper;
+import org.example.util.DirectBufferPool;
+import org.example.util.MultipartStream;
 import org.example.util.TokenHelper;
+import org.example.util.UploadLayout;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * 文件上传下载服务（支持图片、视频等）
@@ -33,6 +45,12 @@ public class ImageService {
     private static final String IMAGE_SUB_DIR = "/uploads/images/";
     private static final String VIDEO_SUB_DIR = "/uploads/videos/";
     private static final String FILE_SUB_DIR = "/uploads/files/";
+    private static final String UPLOAD_ROOT_DIR = "/uploads/";
+    // 正在接收的上传内容，保存完成后移动到对应类型的目录
+    private static final String TMP_SUB_DIR = "/uploads/.tmp/";
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
 
     // 允许的图片类型
     private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
@@ -47,106 +65,343 @@ public class ImageService {
     // 最大文件大小：50MB
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024;
 
+    // multipart 分隔符和各部分头信息的余量
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+    // 用于判断文件类型的开头字节数
+    private static final int SIGNATURE_BYTES = 16;
+
+    // 每次从请求体读取的字节数
+    private static final int READ_CHUNK_SIZE = 16 * 1024;
+
     @Autowired
     private ImageMapper imageMapper;
 
     @Autowired
     private TokenHelper tokenHelper;
 
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private FileServeService fileServeService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    // 写文件用的直接缓冲区大小
+    @Value("${upload.buffer-size:65536}")
+    private int bufferSize;
+
+    // 缓冲区池中最多保留的个数
+    @Value("${upload.buffer-pool-size:16}")
+    private int bufferPoolSize;
+
+    private DirectBufferPool bufferPool;
+
+    @PostConstruct
+    public void init() {
+        this.bufferPool = new DirectBufferPool(bufferSize, bufferPoolSize);
+    }
+
     /**
      * 处理图片上传，保存到本地并记录数据库
      */
-    @Transactional
-    public Image uploadImage(MultipartFile file, HttpServletRequest request) {
-        return uploadFile(file, request, IMAGE_SUB_DIR, ALLOWED_IMAGE_TYPES, "图片");
+    public Image uploadImage(HttpServletRequest request) {
+        return uploadFile(request, IMAGE_SUB_DIR, ALLOWED_IMAGE_TYPES);
     }
 
     /**
      * 处理视频上传，保存到本地并记录数据库
      */
-    @Transactional
-    public Image uploadVideo(MultipartFile file, HttpServletRequest request) {
-        return uploadFile(file, request, VIDEO_SUB_DIR, ALLOWED_VIDEO_TYPES, "视频");
+    public Image uploadVideo(HttpServletRequest request) {
+        return uploadFile(request, VIDEO_SUB_DIR, ALLOWED_VIDEO_TYPES);
     }
 
     /**
      * 处理通用文件上传，保存到本地并记录数据库
      */
-    @Transactional
-    public Image uploadFile(MultipartFile file, HttpServletRequest request) {
-        return uploadFile(file, request, FILE_SUB_DIR, null, "文件");
+    public Image uploadFile(HttpServletRequest request) {
+        return uploadFile(request, FILE_SUB_DIR, null);
     }
 
     /**
      * 通用文件上传方法
+     * 直接解析请求体（multipart/form-data），把名为 file 的部分边读边写入存储目录，
+     * 同时检查大小和类型、计算 SHA-256，不经过容器的临时文件。
+     * 相同内容只保存一份（见 FileBlobService）。
+     * 接收请求体期间不开启事务，避免慢速客户端长时间占用数据库连接。
      */
-    private Image uploadFile(MultipartFile file, HttpServletRequest request, 
-                            String subDir, List<String> allowedTypes, String fileTypeName) {
-        if (file == null || file.isEmpty()) {
-            throw new RuntimeException("上传文件不能为空");
-        }
-
+    private Image uploadFile(HttpServletRequest request, String subDir, List<String> allowedTypes) {
         Long userId = tokenHelper.getUidFromRequest(request);
         if (userId == null) {
             throw new RuntimeException("未登录或Token无效");
         }
 
-        // 文件大小检查
-        if (file.getSize() > MAX_FILE_SIZE) {
+        // 请求体明显超过上限时不读取，直接拒绝
+        if (request.getContentLengthLong() > MAX_FILE_SIZE + MULTIPART_OVERHEAD) {
             throw new RuntimeException("文件大小不能超过50MB");
         }
 
+        try {
+            MultipartStream multipart = new MultipartStream(request.getInputStream(), request.getContentType(),
+                    bufferPool.getBufferSize());
+            MultipartStream.Part part;
+            while ((part = multipart.nextPart()) != null) {
+                if ("file".equals(part.name()) && part.filename() != null) {
+                    return saveUpload(userId, part, multipart.getPartStream(), subDir, allowedTypes);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("文件上传失败：" + e.getMessage(), e);
+        }
+        throw new RuntimeException("上传文件不能为空");
+    }
+
+    /**
+     * 把上传内容写入目标文件并记录数据库
+     */
+    private Image saveUpload(Long userId, MultipartStream.Part part, InputStream body, String subDir,
+                             List<String> allowedTypes) throws IOException {
         // 文件类型检查
-        String contentType = file.getContentType();
+        String contentType = part.contentType();
         if (allowedTypes != null && !allowedTypes.contains(contentType)) {
             throw new RuntimeException("不支持的文件类型：" + contentType);
         }
 
-        // 原始文件名 & 扩展名
-        String originalFilename = file.getOriginalFilename();
-        String ext = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            ext = originalFilename.substring(originalFilename.lastIndexOf("."));
+        // 先读开头几个字节：判断是否为空文件，图片还要检查文件头与声明的类型一致
+        byte[] head = body.readNBytes(SIGNATURE_BYTES);
+        if (head.length == 0) {
+            throw new RuntimeException("上传文件不能为空");
+        }
+        if (allowedTypes == ALLOWED_IMAGE_TYPES && !matchesImageSignature(contentType, head)) {
+            throw new RuntimeException("文件内容与类型不符：" + contentType);
+        }
+
+        // 先写入临时文件，算出 SHA-256 后再决定保存为新文件还是引用已有的相同文件
+        Path temp = newTempFile();
+        try {
+            MessageDigest digest = sha256();
+            long size = writeTo(temp, head, body, digest);
+            return storeCompleted(userId, temp, part.filename(), contentType, subDir,
+                    HexFormat.of().formatHex(digest.digest()), size);
+        } finally {
+            // 保存为新文件时已被移走；引用已有文件或失败时删除
+            Files.deleteIfExists(temp);
         }
+    }
+
+    /**
+     * 在临时目录中分配一个新文件的路径
+     */
+    Path newTempFile() throws IOException {
+        Path tmpDir = tempDir();
+        Files.createDirectories(tmpDir);
+        return tmpDir.resolve(UUID.randomUUID().toString().replace("-", ""));
+    }
 
-        // 生成唯一文件名
-        String fileName = UUID.randomUUID().toString().replace("-", "") + ext;
+    /**
+     * 正在接收的上传内容所在目录
+     */
+    Path tempDir() {
+        return Paths.get(System.getProperty("user.dir") + TMP_SUB_DIR);
+    }
 
-        // 计算存储路径（相对于项目运行目录）
-        String baseDir = System.getProperty("user.dir") + subDir;
-        File dir = new File(baseDir);
-        if (!dir.exists() && !dir.mkdirs()) {
-            throw new RuntimeException("创建上传目录失败");
+    /**
+     * 保存已完整接收的临时文件并记录数据库，文件以内容的 SHA-256 命名，保存在类型目录下的两级散列目录中
+     * 临时文件作为新文件保存时被移走，否则由调用方删除
+     */
+    Image storeCompleted(Long userId, Path temp, String filename, String contentType, String subDir,
+                         String sha256, long size) {
+        if (IMAGE_SUB_DIR.equals(subDir) && !matchesImageSignature(contentType, readHead(temp))) {
+            throw new RuntimeException("文件内容与类型不符：" + contentType);
         }
 
-        File dest = new File(dir, fileName);
-        try {
-            file.transferTo(dest);
-        } catch (IOException e) {
-            throw new RuntimeException("文件保存失败", e);
+        String fileName = sha256 + extensionOf(filename);
+        String relative = UploadLayout.shardOf(fileName) + fileName;
+        Path target = Paths.get(System.getProperty("user.dir") + subDir, relative);
+
+        Image image = new Image();
+        image.setUserId(userId);
+        image.setSize(size);
+        image.setContentType(contentType);
+        image.setSha256(sha256);
+        Image stored = fileBlobService.storeUpload(image, temp, target, subDir + relative);
+        if (IMAGE_SUB_DIR.equals(subDir)) {
+            imageDerivativeService.pregenerate(Paths.get(stored.getPath()));
         }
+        return stored;
+    }
 
-        String url = subDir + fileName; // 对外访问 URL
+    /**
+     * 检查上传类型和文件类型
+     *
+     * @param type 上传类型：image、video 或 file，对应三个上传接口，为空时按 file 处理
+     * @return 该类型的保存目录
+     */
+    String checkUploadType(String type, String contentType) {
+        String subDir;
+        List<String> allowedTypes;
+        switch (type != null ? type : "file") {
+            case "image" -> {
+                subDir = IMAGE_SUB_DIR;
+                allowedTypes = ALLOWED_IMAGE_TYPES;
+            }
+            case "video" -> {
+                subDir = VIDEO_SUB_DIR;
+                allowedTypes = ALLOWED_VIDEO_TYPES;
+            }
+            case "file" -> {
+                subDir = FILE_SUB_DIR;
+                allowedTypes = null;
+            }
+            default -> throw new RuntimeException("不支持的上传类型：" + type);
+        }
+        if (allowedTypes != null && !allowedTypes.contains(contentType)) {
+            throw new RuntimeException("不支持的文件类型：" + contentType);
+        }
+        return subDir;
+    }
+
+    /**
+     * 秒传预检：客户端先提交文件的 SHA-256 和大小，服务器已有相同内容时直接新增一条文件记录
+     *
+     * @param type 上传类型：image、video 或 file，对应三个上传接口
+     * @return 新的文件记录；服务器没有该内容时返回 null，客户端需要正常上传
+     */
+    public Image precheck(Long userId, UploadPrecheckRequest request) {
+        if (userId == null) {
+            throw new RuntimeException("未登录或Token无效");
+        }
+        String sha256 = request.getSha256() != null ? request.getSha256().toLowerCase(Locale.ROOT) : null;
+        if (sha256 == null || !SHA256_PATTERN.matcher(sha256).matches()) {
+            throw new RuntimeException("SHA-256 格式不正确");
+        }
+        if (request.getSize() == null || request.getSize() <= 0) {
+            throw new RuntimeException("上传文件不能为空");
+        }
+        if (request.getSize() > MAX_FILE_SIZE) {
+            throw new RuntimeException("文件大小不能超过50MB");
+        }
+
+        String contentType = request.getContentType();
+        String subDir = checkUploadType(request.getType(), contentType);
+
+        // 与正常上传一样检查图片文件头；内容由哈希确定，不需要加锁
+        FileBlob blob = fileBlobService.findBySha256(sha256);
+        if (blob == null) {
+            return null;
+        }
+        if (IMAGE_SUB_DIR.equals(subDir) && !matchesImageSignature(contentType, readHead(UploadLayout.locate(blob.getPath())))) {
+            throw new RuntimeException("文件内容与类型不符：" + contentType);
+        }
 
         Image image = new Image();
         image.setUserId(userId);
-        image.setUrl(url);
-        image.setPath(dest.getAbsolutePath());
-        image.setSize(file.getSize());
+        image.setSize(request.getSize());
         image.setContentType(contentType);
+        image.setSha256(sha256);
+        return fileBlobService.addReference(image);
+    }
 
-        int result = imageMapper.insert(image);
-        if (result <= 0) {
-            throw new RuntimeException("保存" + fileTypeName + "记录失败");
+    /**
+     * 取原始文件名的扩展名，只保留字母和数字组成的扩展名
+     */
+    private static String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
         }
+        String ext = filename.substring(dot);
+        return EXTENSION_PATTERN.matcher(ext).matches() ? ext.toLowerCase(Locale.ROOT) : "";
+    }
 
-        return image;
+    private static byte[] readHead(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(SIGNATURE_BYTES);
+        } catch (IOException e) {
+            return new byte[0];
+        }
     }
 
     /**
-     * 下载文件（带权限验证）
+     * 通过 FileChannel 和池化的直接缓冲区写入文件，同时更新摘要，超过大小上限时立即中止
+     *
+     * @return 文件大小
      */
-    public ResponseEntity<Resource> downloadFile(Long fileId, HttpServletRequest request) {
+    private long writeTo(Path dest, byte[] head, InputStream body, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        byte[] chunk = new byte[Math.min(READ_CHUNK_SIZE, buffer.capacity())];
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(dest, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            buffer.put(head);
+            size += head.length;
+            int n;
+            while ((n = body.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) >= 0) {
+                size += n;
+                if (size > MAX_FILE_SIZE) {
+                    throw new RuntimeException("文件大小不能超过50MB");
+                }
+                buffer.put(chunk, 0, n);
+                if (!buffer.hasRemaining()) {
+                    drain(buffer, channel, digest);
+                }
+            }
+            drain(buffer, channel, digest);
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return size;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel, MessageDigest digest) throws IOException {
+        buffer.flip();
+        digest.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 检查图片文件头（魔数）与声明的类型是否一致
+     */
+    private static boolean matchesImageSignature(String contentType, byte[] head) {
+        return switch (contentType) {
+            case "image/jpeg", "image/jpg" -> startsWith(head, 0, 0xFF, 0xD8, 0xFF);
+            case "image/png" -> startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+            case "image/gif" -> startsWith(head, 0, 'G', 'I', 'F', '8');
+            case "image/webp" -> startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P');
+            case "image/bmp" -> startsWith(head, 0, 'B', 'M');
+            default -> false;
+        };
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... expected) {
+        if (data.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((data[offset + i] & 0xff) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 下载文件（带权限验证），支持断点续传（Range 请求）
+     */
+    public void downloadFile(Long fileId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
         Long userId = tokenHelper.getUidFromRequest(request);
         if (userId == null) {
             throw new RuntimeException("未登录或Token无效");
@@ -162,36 +417,93 @@ public class ImageService {
             throw new RuntimeException("无权限下载该文件");
         }
 
-        File file = new File(image.getPath());
-        if (!file.exists()) {
+        Path file = UploadLayout.locate(image.getPath());
+        if (!Files.isRegularFile(file)) {
             throw new RuntimeException("文件不存在或已被删除");
         }
 
-        Resource resource = new FileSystemResource(file);
-        String contentType = image.getContentType();
-        if (contentType == null) {
-            contentType = "application/octet-stream";
+        fileServeService.serve(request, response, file, image.getContentType(),
+                "attachment; filename=\"" + getFileNameFromUrl(image.getUrl()) + "\"", "private, no-cache");
+    }
+
+    /**
+     * 把 /uploads/ 之后的访问路径解析为存储目录中的文件
+     * 不允许访问存储目录之外的文件，也不允许访问以 . 开头的目录和文件（如正在接收的上传内容）
+     * 平铺的旧 URL（如笔记中嵌入的 images/xxx.png）在文件迁移到散列目录后仍可访问
+     *
+     * @param relativePath 如 images/xxx.png
+     * @return 文件路径；路径不合法时返回 null
+     */
+    public Path resolvePublicFile(String relativePath) {
+        Path root = Paths.get(System.getProperty("user.dir") + UPLOAD_ROOT_DIR).toAbsolutePath().normalize();
+        Path file = root.resolve(relativePath.startsWith("/") ? relativePath.substring(1) : relativePath).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return null;
+        }
+        for (Path segment : root.relativize(file)) {
+            if (segment.toString().startsWith(".")) {
+                return null;
+            }
+        }
+        if (root.relativize(file).getNameCount() == 2 && !Files.isRegularFile(file)) {
+            Path sharded = UploadLayout.shardedPath(file);
+            if (Files.isRegularFile(sharded)) {
+                return sharded;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 是否为直接保存在类型目录下的文件（散列目录启用之前上传的），需要迁移
+     */
+    static boolean isFlatUpload(String path) {
+        Path dir = Paths.get(path).getParent();
+        if (dir == null || dir.getParent() == null || dir.getParent().getFileName() == null) {
+            return false;
         }
+        String subDir = "/" + dir.getParent().getFileName() + "/" + dir.getFileName() + "/";
+        return IMAGE_SUB_DIR.equals(subDir) || VIDEO_SUB_DIR.equals(subDir) || FILE_SUB_DIR.equals(subDir);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                        "attachment; filename=\"" + getFileNameFromUrl(image.getUrl()) + "\"")
-                .body(resource);
+    /**
+     * 获取用户的文件（按上传时间倒序，游标分页）
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     * @param size   每页条数，为空且无游标时按旧接口返回（最多 CursorPage.UNPAGED_LIMIT 条）
+     */
+    public CursorPage<Image> getUserFiles(Long userId, String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        List<Image> rows = imageMapper.findByUserId(userId,
+                position != null ? position.time() : null,
+                position != null ? position.id() : null,
+                limit + 1);
+        return CursorPage.of(rows, limit, Image::getCreateTime, Image::getId);
     }
 
     /**
-     * 获取用户的所有文件
+     * 逐条读取用户的全部文件记录交给 consumer（按页查询，consumer 写出期间不占用数据库连接）
      */
-    public List<Image> getUserFiles(Long userId) {
-        return imageMapper.findByUserId(userId);
+    public void streamUserFiles(Long userId, Consumer<Image> consumer) {
+        CursorPage.forEach((position, limit) -> imageMapper.findByUserId(userId,
+                        position != null ? position.time() : null,
+                        position != null ? position.id() : null,
+                        limit),
+                Image::getCreateTime, Image::getId, consumer);
     }
 
     /**
-     * 根据文件类型获取用户的文件
+     * 根据文件类型获取用户的文件（游标分页）
      */
-    public List<Image> getUserFilesByType(Long userId, String contentType) {
-        return imageMapper.findByUserIdAndType(userId, contentType);
+    public CursorPage<Image> getUserFilesByType(Long userId, String contentType, String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        List<Image> rows = imageMapper.findByUserIdAndType(userId, contentType,
+                position != null ? position.time() : null,
+                position != null ? position.id() : null,
+                limit + 1);
+        return CursorPage.of(rows, limit, Image::getCreateTime, Image::getId);
     }
 
     /**
@@ -226,13 +538,8 @@ public class ImageService {
             throw new RuntimeException("只能删除自己的文件");
         }
 
-        // 删除物理文件
-        File file = new File(image.getPath());
-        if (file.exists()) {
-            if (!file.delete()) {
-                throw new RuntimeException("删除文件失败");
-            }
-        }
+        // 释放对文件的引用，没有其他记录引用时删除物理文件
+        fileBlobService.release(image);
 
         // 删除数据库记录
         int result = imageMapper.deleteById(fileId);
@@ -0,0 +1,122 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.example.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * 登录、注册限流
+ * 按 IP、（IP, 用户名）和用户名分别维护令牌桶，在访问数据库和计算密码哈希之前拦截撞库请求：
+ * - IP 的桶限制单个来源的总尝试次数
+ * - （IP, 用户名）的桶额度较小，单个来源针对同一账号的尝试很快被拦住
+ * - 用户名的桶不区分 IP，限制分布在大量 IP 上针对同一账号的尝试；额度单独配置且较大，
+ *   攻击者耗尽它需要持续大量的尝试，账号主人被连带拦截的时间也只是补充所需的时间
+ * 客户端 IP 由 ClientIpResolver 解析，部署在反向代理之后时需配置可信代理。
+ * 默认使用本地无锁令牌桶（长时间不活跃的桶自动淘汰），可选使用 Redis 令牌桶在多节点间共享额度。
+ */
+@Service
+public class LoginThrottle {
+
+    private static final String REDIS_KEY_PREFIX = "vblog:throttle:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisScript<Long> tokenBucketScript;
+
+    @Value("${throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${throttle.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    // 每个 IP 上的每个用户名：突发次数 / 每分钟补充次数
+    @Value("${throttle.user.capacity:5}")
+    private long userCapacity;
+
+    @Value("${throttle.user.per-minute:5}")
+    private double userPerMinute;
+
+    // 每个用户名（不区分 IP）：突发次数 / 每分钟补充次数
+    @Value("${throttle.username.capacity:30}")
+    private long usernameCapacity;
+
+    @Value("${throttle.username.per-minute:10}")
+    private double usernamePerMinute;
+
+    // 每个 IP：突发次数 / 每分钟补充次数
+    @Value("${throttle.ip.capacity:20}")
+    private long ipCapacity;
+
+    @Value("${throttle.ip.per-minute:20}")
+    private double ipPerMinute;
+
+    private Cache<String, TokenBucket> buckets;
+
+    @PostConstruct
+    public void init() {
+        // 桶补满所需时间之后无人访问即可淘汰，重新创建的桶就是满的
+        double idleMinutes = Math.max(Math.max(userCapacity / userPerMinute, usernameCapacity / usernamePerMinute),
+                ipCapacity / ipPerMinute);
+        long idleMs = (long) Math.ceil(idleMinutes * 60000);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterAccess(Duration.ofMillis(idleMs))
+                .build();
+    }
+
+    /**
+     * 检查一次登录或注册尝试
+     *
+     * @param action   login / register
+     * @param ip       客户端 IP
+     * @param username 尝试的用户名（可为空）
+     * @return 0 表示放行；否则为建议的重试等待毫秒数
+     */
+    public long tryAcquire(String action, String ip, String username) {
+        if (!enabled) {
+            return 0;
+        }
+        long wait = acquire(action + ":ip:" + ip, ipCapacity, ipPerMinute);
+        if (wait > 0) {
+            return wait;
+        }
+        if (username == null || username.isEmpty()) {
+            return 0;
+        }
+        wait = acquire(action + ":user:" + ip + ":" + username, userCapacity, userPerMinute);
+        if (wait > 0) {
+            return wait;
+        }
+        return acquire(action + ":username:" + username, usernameCapacity, usernamePerMinute);
+    }
+
+    private long acquire(String key, long capacity, double perMinute) {
+        double refillPerMs = perMinute / 60000;
+        if (redisEnabled) {
+            try {
+                long ttlMs = (long) Math.ceil(capacity / refillPerMs);
+                Long wait = stringRedisTemplate.execute(tokenBucketScript,
+                        Collections.singletonList(REDIS_KEY_PREFIX + key),
+                        String.valueOf(capacity), String.valueOf(refillPerMs),
+                        String.valueOf(System.currentTimeMillis()), String.valueOf(ttlMs));
+                if (wait != null) {
+                    return wait;
+                }
+            } catch (Exception e) {
+                // Redis 不可用时退回本地限流
+            }
+        }
+        return buckets.get(key, k -> new TokenBucket(capacity, refillPerMs)).tryAcquire();
+    }
+}
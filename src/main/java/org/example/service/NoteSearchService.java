@@ -0,0 +1,420 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Note;
+import org.example.mapper.NoteMapper;
+import org.example.util.Bm25Index;
+import org.example.util.CjkTokenizer;
+import org.example.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 笔记全文搜索服务
+ * 内存倒排索引（标题和正文，中文按二元组、英文按单词切分），BM25 排序。
+ * - 本节点的新建、修改、删除在事务提交后增量更新索引，并通过 Redis 发布订阅通知其他节点重新加载该笔记
+ * - 定时把索引快照写入磁盘，重启时先加载快照，再只补读快照之后更新过的笔记并清理已删除的笔记
+ * - 索引在后台线程中构建，构建完成之前搜索返回"索引构建中"的错误，不返回不完整的结果
+ * 可见性：公开笔记所有人可搜到，草稿和私密笔记只有作者本人可搜到。
+ */
+@Service
+public class NoteSearchService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchService.class);
+
+    /**
+     * 索引变更通知频道，消息格式：节点ID|笔记ID
+     */
+    public static final String CHANGE_CHANNEL = "vblog:search:note";
+
+    private static final int SNAPSHOT_MAGIC = 0x56425349;   // "VBSI"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // 补读时向前多读一段时间，覆盖 update_time 秒级精度和节点间时钟偏差
+    private static final long CATCH_UP_MARGIN_MS = 60_000;
+
+    private static final int BATCH_SIZE = 500;
+
+    // 构建索引失败后的重试间隔
+    private static final long BUILD_RETRY_MS = 30_000;
+
+    // 查询关键词最大长度
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${search.enabled:true}")
+    private boolean enabled;
+
+    // 索引快照文件
+    @Value("${search.index.snapshot-path:data/note-search.idx}")
+    private String snapshotPath;
+
+    // 标题中的词按该倍数计入词频
+    @Value("${search.title-weight:3}")
+    private int titleWeight;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Bm25Index index = new Bm25Index();
+
+    // 可见性信息：笔记ID -> (作者ID, 状态)
+    private final ConcurrentHashMap<Long, Visibility> visibility = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean ready;
+
+    private record Visibility(long userId, int status) {
+    }
+
+    /**
+     * 应用启动完成后在后台线程中加载快照并补齐索引（不阻塞启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::build, "note-search-indexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 构建索引，失败时（数据库不可用等）等待一段时间后重试，直到成功
+     */
+    private void build() {
+        while (!tryBuild()) {
+            try {
+                Thread.sleep(BUILD_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean tryBuild() {
+        try {
+            long started = System.currentTimeMillis();
+            Long watermark = loadSnapshot();
+            LocalDateTime since = watermark != null
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(watermark - CATCH_UP_MARGIN_MS), ZoneId.systemDefault())
+                    : null;
+            int updated = catchUp(since);
+            int removed = watermark != null ? removeDeleted() : 0;
+            ready = true;
+            log.info("笔记搜索索引就绪: {} 篇，快照{}，补读 {} 篇，清理 {} 篇，耗时 {} ms",
+                    index.size(), watermark != null ? "已加载" : "不存在", updated, removed,
+                    System.currentTimeMillis() - started);
+            if (updated > 0 || removed > 0) {
+                dirty.set(true);
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("构建笔记搜索索引失败，{} 秒后重试: {}", BUILD_RETRY_MS / 1000, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 笔记新建或修改后更新索引（事务提交后执行）
+     */
+    public void onNoteSaved(Note note) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            indexNote(note);
+            publish(note.getId());
+        });
+    }
+
+    /**
+     * 笔记删除后更新索引（事务提交后执行）
+     */
+    public void onNoteDeleted(Long id) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            removeNote(id);
+            publish(id);
+        });
+    }
+
+    /**
+     * 搜索
+     *
+     * @param currentUserId 当前用户ID，游客为 null
+     * @return 按相关度排序的笔记ID
+     */
+    public List<Long> search(String query, Long currentUserId, int limit) {
+        if (!enabled) {
+            throw new RuntimeException("搜索功能未开启");
+        }
+        if (query == null || query.trim().isEmpty()) {
+            throw new RuntimeException("搜索关键词不能为空");
+        }
+        if (!ready) {
+            throw new RuntimeException("搜索索引正在构建，请稍后重试");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            query = query.substring(0, MAX_QUERY_LENGTH);
+        }
+
+        Set<String> terms = new LinkedHashSet<>(CjkTokenizer.tokenize(query));
+        long userId = currentUserId != null ? currentUserId : -1L;
+        List<Bm25Index.Hit> hits = index.search(terms, limit, id -> isVisible(id, userId));
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.id()));
+        return ids;
+    }
+
+    /**
+     * 接收其他节点的变更通知，从数据库重新加载该笔记
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0]) || !enabled) {
+            return;
+        }
+        try {
+            Long id = Long.parseLong(parts[1]);
+            Note note = noteMapper.findById(id);
+            if (note == null) {
+                removeNote(id);
+            } else {
+                indexNote(note);
+            }
+        } catch (Exception e) {
+            log.warn("同步笔记搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时写入快照（有变更时）
+     */
+    @Scheduled(fixedDelayString = "${search.index.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!enabled || !ready || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("写入笔记搜索索引快照失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭时写入快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    /**
+     * 索引统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("ready", ready);
+        result.put("documents", index.size());
+        result.put("terms", index.termCount());
+        result.put("snapshotPath", resolveSnapshotPath().toString());
+        return result;
+    }
+
+    private boolean isVisible(long id, long userId) {
+        Visibility v = visibility.get(id);
+        return v != null && (v.status() == 1 || v.userId() == userId);
+    }
+
+    private void indexNote(Note note) {
+        List<String> titleTokens = CjkTokenizer.tokenize(note.getTitle());
+        List<String> contentTokens = CjkTokenizer.tokenize(note.getContent());
+
+        List<String> tokens = new ArrayList<>(titleTokens.size() + contentTokens.size());
+        tokens.addAll(titleTokens);
+        tokens.addAll(contentTokens);
+        int[] weights = new int[tokens.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = i < titleTokens.size() ? titleWeight : 1;
+        }
+
+        visibility.put(note.getId(), new Visibility(note.getUserId(), note.getStatus() != null ? note.getStatus() : 1));
+        index.put(Bm25Index.toDoc(note.getId(), tokens, weights));
+        dirty.set(true);
+    }
+
+    private void removeNote(Long id) {
+        index.remove(id);
+        visibility.remove(id);
+        dirty.set(true);
+    }
+
+    private void publish(Long id) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANGE_CHANNEL, nodeId + "|" + id);
+        } catch (Exception e) {
+            log.warn("发布笔记搜索索引变更失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 分批读取 since 之后更新过的笔记（since 为空时读取全部）并写入索引
+     */
+    private int catchUp(LocalDateTime since) {
+        int count = 0;
+        long afterId = 0;
+        while (true) {
+            List<Note> batch = noteMapper.findForIndex(since, afterId, BATCH_SIZE);
+            for (Note note : batch) {
+                indexNote(note);
+            }
+            count += batch.size();
+            if (batch.size() < BATCH_SIZE) {
+                return count;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 清理快照中已被删除的笔记
+     */
+    private int removeDeleted() {
+        Set<Long> existing = new HashSet<>(noteMapper.findAllIds());
+        int removed = 0;
+        for (Bm25Index.Doc doc : index.docs()) {
+            if (!existing.contains(doc.id())) {
+                removeNote(doc.id());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private Path resolveSnapshotPath() {
+        Path path = Paths.get(snapshotPath);
+        return path.isAbsolute() ? path : Paths.get(System.getProperty("user.dir")).resolve(path);
+    }
+
+    /**
+     * 写入快照：先写临时文件再原子替换，避免写到一半时崩溃留下损坏的快照
+     */
+    private void writeSnapshot() throws IOException {
+        long watermark = System.currentTimeMillis();
+        Path path = resolveSnapshotPath();
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(watermark);
+            List<Bm25Index.Doc> docs = index.docs();
+            List<Bm25Index.Doc> written = new ArrayList<>(docs.size());
+            for (Bm25Index.Doc doc : docs) {
+                if (visibility.containsKey(doc.id())) {
+                    written.add(doc);
+                }
+            }
+            out.writeInt(written.size());
+            for (Bm25Index.Doc doc : written) {
+                Visibility v = visibility.getOrDefault(doc.id(), new Visibility(-1L, 0));
+                out.writeLong(doc.id());
+                out.writeLong(v.userId());
+                out.writeInt(v.status());
+                out.writeInt(doc.length());
+                out.writeInt(doc.terms().length);
+                for (int i = 0; i < doc.terms().length; i++) {
+                    out.writeUTF(doc.terms()[i]);
+                    out.writeInt(doc.freqs()[i]);
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 加载快照，返回快照时间；快照不存在或损坏时返回 null（全量重建）
+     */
+    private Long loadSnapshot() {
+        Path path = resolveSnapshotPath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("笔记搜索索引快照格式不兼容，将全量重建");
+                return null;
+            }
+            long watermark = in.readLong();
+            int count = in.readInt();
+            for (int d = 0; d < count; d++) {
+                long id = in.readLong();
+                long userId = in.readLong();
+                int status = in.readInt();
+                int length = in.readInt();
+                int termCount = in.readInt();
+                String[] terms = new String[termCount];
+                int[] freqs = new int[termCount];
+                for (int i = 0; i < termCount; i++) {
+                    terms[i] = in.readUTF();
+                    freqs[i] = in.readInt();
+                }
+                visibility.put(id, new Visibility(userId, status));
+                index.put(new Bm25Index.Doc(id, terms, freqs, length));
+            }
+            return watermark;
+        } catch (IOException e) {
+            log.warn("读取笔记搜索索引快照失败，将全量重建: {}", e.getMessage());
+            index.docs().forEach(doc -> index.remove(doc.id()));
+            visibility.clear();
+            return null;
+        }
+    }
+}
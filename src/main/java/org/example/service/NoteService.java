@@ -1,13 +1,27 @@
 package org.example.service;
 
+import jakarta.annotation.PostConstruct;
+import org.example.cache.NoteCache;
+import org.example.common.CursorPage;
+import org.example.common.PageCursor;
+import org.example.dto.ListVersion;
 import org.example.dto.NoteRequest;
+import org.example.dto.TitleSuggestion;
 import org.example.entity.Note;
+import org.example.entity.NoteSummary;
 import org.example.mapper.NoteMapper;
+import org.example.util.NoteTextUtil;
+import org.example.util.SingleFlight;
+import org.example.util.SingleFlightRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 笔记服务层
@@ -18,6 +32,30 @@ public class NoteService {
     @Autowired
     private NoteMapper noteMapper;
 
+    @Autowired
+    private ViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private NoteCache noteCache;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private NoteSuggestService noteSuggestService;
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    private SingleFlight<Long, Note> noteLoads;
+    private SingleFlight<String, CursorPage<NoteSummary>> noteListLoads;
+
+    @PostConstruct
+    public void init() {
+        this.noteLoads = singleFlightRegistry.create("note.detail");
+        this.noteListLoads = singleFlightRegistry.create("note.list");
+    }
+
     /**
      * 创建笔记
      */
@@ -34,13 +72,15 @@ public class NoteService {
         Note note = new Note();
         note.setUserId(userId);
         note.setTitle(request.getTitle());
-        note.setContent(request.getContent());
+        applyContent(note, request.getContent());
         note.setStatus(request.getStatus() != null ? request.getStatus() : 1); // 默认发布状态
 
         int result = noteMapper.insert(note);
         if (result <= 0) {
             throw new RuntimeException("笔记创建失败");
         }
+        noteSearchService.onNoteSaved(note);
+        noteSuggestService.onNoteSaved(note);
 
         return note;
     }
@@ -49,22 +89,45 @@ public class NoteService {
      * 获取笔记详情
      */
     public Note getNoteById(Long id, Long currentUserId) {
-        Note note = noteMapper.findById(id);
+        Note note = noteCache.get(id);
         if (note == null) {
-            throw new RuntimeException("笔记不存在");
+            // 并发未命中时只有一个请求读库，其余共享结果；共享对象不能修改，这里复制一份
+            note = new Note(noteLoads.execute(id, () -> loadNote(id)));
         }
 
-        // 如果是私密笔记，只有作者本人可以查看
-        if (note.getStatus() == 2 && !note.getUserId().equals(currentUserId)) {
-            throw new RuntimeException("无权限查看该笔记");
-        }
+        checkReadable(note, currentUserId);
 
-        // 增加浏览次数
-        noteMapper.increaseViewCount(id);
+        // 增加浏览次数（先记在内存中，定时批量写库），返回值包含尚未写入的次数
+        viewCountBuffer.record(id);
+        long viewCount = note.getViewCount() != null ? note.getViewCount() : 0;
+        note.setViewCount((int) (viewCount + viewCountBuffer.getPending(id)));
 
         return note;
     }
 
+    /**
+     * 获取笔记版本（不包含正文），用于条件请求，权限检查与详情相同
+     * 优先使用本地缓存，未命中时只查询 id、user_id、status、update_time
+     */
+    public Note getNoteVersion(Long id, Long currentUserId) {
+        Note version = noteCache.getVersion(id);
+        if (version == null) {
+            version = noteMapper.findVersionById(id);
+            if (version == null) {
+                throw new RuntimeException("笔记不存在");
+            }
+        }
+        checkReadable(version, currentUserId);
+        return version;
+    }
+
+    /**
+     * 记录一次浏览（客户端缓存仍有效、不返回正文时调用）
+     */
+    public void recordView(Long id) {
+        viewCountBuffer.record(id);
+    }
+
     /**
      * 更新笔记
      */
@@ -89,13 +152,16 @@ public class NoteService {
         }
 
         note.setTitle(request.getTitle());
-        note.setContent(request.getContent());
+        applyContent(note, request.getContent());
         note.setStatus(request.getStatus() != null ? request.getStatus() : note.getStatus());
 
         int result = noteMapper.update(note);
         if (result <= 0) {
             throw new RuntimeException("笔记更新失败");
         }
+        noteCache.evict(id);
+        noteSearchService.onNoteSaved(note);
+        noteSuggestService.onNoteSaved(note);
 
         return note;
     }
@@ -116,21 +182,112 @@ public class NoteService {
         }
 
         int result = noteMapper.deleteById(id);
+        noteCache.evict(id);
+        noteSearchService.onNoteDeleted(id);
+        noteSuggestService.onNoteDeleted(id);
         return result > 0;
     }
 
     /**
-     * 获取用户的所有笔记
+     * 获取用户的笔记（游标分页）
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     * @param size   每页条数，为空且无游标时按旧接口返回（最多 CursorPage.UNPAGED_LIMIT 条）
      */
-    public List<Note> getUserNotes(Long userId) {
-        return noteMapper.findByUserId(userId);
+    public CursorPage<NoteSummary> getUserNotes(Long userId, String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        return noteListLoads.execute("user|" + userId + "|" + cursor + "|" + limit, () -> {
+            List<NoteSummary> rows = noteMapper.findByUserId(userId,
+                    position != null ? position.time() : null,
+                    position != null ? position.id() : null,
+                    limit + 1);
+            return CursorPage.of(rows, limit, NoteSummary::getCreateTime, NoteSummary::getId);
+        });
     }
 
     /**
-     * 获取所有公开的笔记
+     * 逐条读取用户的全部笔记摘要交给 consumer，不在内存中组装完整列表
+     * 按页查询，consumer 写出期间不占用数据库连接
      */
-    public List<Note> getPublicNotes() {
-        return noteMapper.findPublicNotes();
+    public void streamUserNotes(Long userId, Consumer<NoteSummary> consumer) {
+        CursorPage.forEach((position, limit) -> noteMapper.findByUserId(userId,
+                        position != null ? position.time() : null,
+                        position != null ? position.id() : null,
+                        limit),
+                NoteSummary::getCreateTime, NoteSummary::getId, consumer);
+    }
+
+    /**
+     * 逐条读取用户的全部笔记（包含正文），用于导出
+     */
+    public void streamUserNotesWithContent(Long userId, Consumer<Note> consumer) {
+        CursorPage.forEach((position, limit) -> noteMapper.findFullByUserId(userId,
+                        position != null ? position.time() : null,
+                        position != null ? position.id() : null,
+                        limit),
+                Note::getCreateTime, Note::getId, consumer);
+    }
+
+    /**
+     * 获取公开的笔记（游客可访问，游标分页）
+     */
+    public CursorPage<NoteSummary> getPublicNotes(String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        return noteListLoads.execute("public|" + cursor + "|" + limit, () -> {
+            List<NoteSummary> rows = noteMapper.findPublicNotes(
+                    position != null ? position.time() : null,
+                    position != null ? position.id() : null,
+                    limit + 1);
+            return CursorPage.of(rows, limit, NoteSummary::getCreateTime, NoteSummary::getId);
+        });
+    }
+
+    /**
+     * 全文搜索笔记（标题和正文），按相关度排序
+     * 游客只能搜到公开笔记，登录用户还能搜到自己的草稿和私密笔记
+     *
+     * @param currentUserId 当前用户ID，游客为 null
+     */
+    public List<NoteSummary> searchNotes(String query, Long currentUserId, Integer size) {
+        int limit = size == null || size <= 0 ? CursorPage.DEFAULT_PAGE_SIZE : Math.min(size, CursorPage.MAX_PAGE_SIZE);
+        List<Long> ids = noteSearchService.search(query, currentUserId, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // 按索引的排序返回，并以数据库中的状态再检查一次可见性
+        Map<Long, NoteSummary> rows = new HashMap<>();
+        for (NoteSummary summary : noteMapper.findSummariesByIds(ids)) {
+            if (summary.getStatus() == 1 || summary.getUserId().equals(currentUserId)) {
+                rows.put(summary.getId(), summary);
+            }
+        }
+        List<NoteSummary> result = new ArrayList<>(rows.size());
+        for (Long id : ids) {
+            NoteSummary summary = rows.get(id);
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 标题输入联想，由内存前缀树返回，不查询数据库
+     *
+     * @param currentUserId 当前用户ID，游客为 null
+     */
+    public List<TitleSuggestion> suggestTitles(String prefix, Long currentUserId, Integer size) {
+        return noteSuggestService.suggest(prefix, currentUserId, size);
+    }
+
+    /**
+     * 获取用户笔记列表的版本（流式接口使用，分页接口由本页的行计算 ETag）
+     */
+    public ListVersion getUserNotesVersion(Long userId) {
+        return noteMapper.findUserListVersion(userId);
     }
 
     /**
@@ -139,4 +296,36 @@ public class NoteService {
     public int countUserNotes(Long userId) {
         return noteMapper.countByUserId(userId);
     }
+
+    /**
+     * 从数据库读取笔记详情并写入缓存
+     */
+    private Note loadNote(Long id) {
+        long generation = noteCache.currentGeneration();
+        Note note = noteMapper.findById(id);
+        if (note == null) {
+            throw new RuntimeException("笔记不存在");
+        }
+        noteCache.put(note, generation);
+        return note;
+    }
+
+    /**
+     * 私密笔记只有作者本人可以查看
+     */
+    private void checkReadable(Note note, Long currentUserId) {
+        if (note.getStatus() == 2 && !note.getUserId().equals(currentUserId)) {
+            throw new RuntimeException("无权限查看该笔记");
+        }
+    }
+
+    /**
+     * 设置正文，同时重新计算摘要、字数和正文长度
+     */
+    private void applyContent(Note note, String content) {
+        note.setContent(content);
+        note.setExcerpt(NoteTextUtil.excerpt(content));
+        note.setWordCount(NoteTextUtil.wordCount(content));
+        note.setContentLength(NoteTextUtil.contentLength(content));
+    }
 }
@@ -0,0 +1,332 @@
+package org.example.service;
+
+import org.example.dto.TitleSuggestion;
+import org.example.entity.Note;
+import org.example.entity.NoteSummary;
+import org.example.mapper.NoteMapper;
+import org.example.util.TitleTrie;
+import org.example.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 笔记标题输入联想服务
+ * 公开笔记的标题放在一棵共享的压缩前缀树中，草稿和私密笔记按作者各放一棵，
+ * 查询时合并公开树和调用者自己的树，按浏览次数取前 N 条，输入过程中不查询数据库。
+ * - 本节点的新建、修改、删除在事务提交后更新，并通过 Redis 发布订阅通知其他节点重新加载该笔记
+ * - 浏览次数随 ViewCountBuffer 写库累加，并定时全量重建以同步其他节点写入的浏览次数
+ */
+@Service
+public class NoteSuggestService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSuggestService.class);
+
+    /**
+     * 变更通知频道，消息格式：节点ID|笔记ID
+     */
+    public static final String CHANGE_CHANNEL = "vblog:suggest:note";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${suggest.enabled:true}")
+    private boolean enabled;
+
+    // 每次最多返回的条数（也是前缀树每个节点缓存的条数）
+    @Value("${suggest.top-k:10}")
+    private int topK;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile Index index;
+    private volatile boolean ready;
+    private volatile long lastRebuildMs;
+
+    // 重建期间发生变更的笔记ID，重建完成后重新加载；只在持有 this 锁时访问
+    private Set<Long> changedDuringRebuild;
+
+    /**
+     * 索引：公开标题树、各作者的非公开标题树、非公开笔记的作者
+     */
+    private record Index(TitleTrie publicTitles, Map<Long, TitleTrie> privateTitles, Map<Long, Long> privateOwners) {
+    }
+
+    /**
+     * 应用启动完成后在后台线程中构建索引（不阻塞启动），构建完成之前联想返回空列表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        index = newIndex();
+        Thread thread = new Thread(this::rebuild, "note-suggest-indexer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 定时全量重建，同步浏览次数排序
+     */
+    @Scheduled(fixedDelayString = "${suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${suggest.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Index rebuilt = newIndex();
+            long afterId = 0;
+            while (true) {
+                List<NoteSummary> batch = noteMapper.findTitles(afterId, BATCH_SIZE);
+                for (NoteSummary summary : batch) {
+                    apply(rebuilt, summary.getId(), summary.getUserId(), summary.getTitle(),
+                            summary.getStatus(), summary.getViewCount());
+                }
+                if (batch.size() < BATCH_SIZE) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+
+            Set<Long> changed;
+            synchronized (this) {
+                index = rebuilt;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            }
+            // 重建读库期间提交的变更可能没有读到，补读一次
+            reload(changed);
+            ready = true;
+            lastRebuildMs = System.currentTimeMillis() - started;
+            log.info("标题联想索引就绪: 公开 {} 篇，非公开 {} 篇，约 {} KB，耗时 {} ms",
+                    rebuilt.publicTitles().size(), rebuilt.privateOwners().size(),
+                    estimateBytes(rebuilt) / 1024, lastRebuildMs);
+        } catch (Exception e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            log.warn("构建标题联想索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 笔记新建或修改后更新索引（事务提交后执行）
+     */
+    public void onNoteSaved(Note note) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            update(note.getId(), note.getUserId(), note.getTitle(), note.getStatus(), note.getViewCount());
+            publish(note.getId());
+        });
+    }
+
+    /**
+     * 笔记删除后更新索引（事务提交后执行）
+     */
+    public void onNoteDeleted(Long id) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            update(id, null, null, null, null);
+            publish(id);
+        });
+    }
+
+    /**
+     * 累加已写库的浏览次数
+     */
+    public void addViews(Map<Long, Long> deltas) {
+        Index current = index;
+        if (!enabled || current == null) {
+            return;
+        }
+        synchronized (this) {
+            deltas.forEach((id, delta) -> {
+                current.publicTitles().addScore(id, delta);
+                Long owner = current.privateOwners().get(id);
+                if (owner != null) {
+                    current.privateTitles().get(owner).addScore(id, delta);
+                }
+            });
+        }
+    }
+
+    /**
+     * 标题联想
+     *
+     * @param currentUserId 当前用户ID，游客为 null（只返回公开笔记）
+     * @return 标题以 prefix 开头的笔记，按浏览次数从高到低
+     */
+    public List<TitleSuggestion> suggest(String prefix, Long currentUserId, Integer size) {
+        if (!enabled) {
+            throw new RuntimeException("标题联想功能未开启");
+        }
+        Index current = index;
+        if (prefix == null || prefix.trim().isEmpty() || current == null) {
+            return List.of();
+        }
+        int limit = size == null || size <= 0 ? topK : Math.min(size, topK);
+
+        List<TitleTrie.Entry> entries = new ArrayList<>(current.publicTitles().suggest(prefix, limit));
+        TitleTrie own = currentUserId != null ? current.privateTitles().get(currentUserId) : null;
+        if (own != null) {
+            entries.addAll(own.suggest(prefix, limit));
+            entries.sort((a, b) -> a.score() != b.score()
+                    ? Long.compare(b.score(), a.score())
+                    : Long.compare(b.id(), a.id()));
+        }
+
+        List<TitleSuggestion> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            TitleTrie.Entry entry = entries.get(i);
+            result.add(new TitleSuggestion(entry.id(), entry.title(), entry.score()));
+        }
+        return result;
+    }
+
+    /**
+     * 接收其他节点的变更通知，从数据库重新加载该笔记
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0]) || !enabled) {
+            return;
+        }
+        try {
+            reload(List.of(Long.parseLong(parts[1])));
+        } catch (Exception e) {
+            log.warn("同步标题联想索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 索引统计信息，包括估算的内存占用
+     */
+    public Map<String, Object> getStats() {
+        Index current = index;
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("ready", ready);
+        result.put("topK", topK);
+        result.put("lastRebuildMs", lastRebuildMs);
+        if (current != null) {
+            int privateNodes = 0;
+            for (TitleTrie trie : current.privateTitles().values()) {
+                privateNodes += trie.nodeCount();
+            }
+            result.put("publicTitles", current.publicTitles().size());
+            result.put("publicNodes", current.publicTitles().nodeCount());
+            result.put("privateTitles", current.privateOwners().size());
+            result.put("privateNodes", privateNodes);
+            result.put("privateUsers", current.privateTitles().size());
+            result.put("estimatedBytes", estimateBytes(current));
+        }
+        return result;
+    }
+
+    private Index newIndex() {
+        return new Index(new TitleTrie(topK), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 更新当前索引，title 为 null 表示删除
+     */
+    private synchronized void update(Long id, Long userId, String title, Integer status, Integer viewCount) {
+        if (index != null) {
+            apply(index, id, userId, title, status, viewCount);
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+    }
+
+    private void apply(Index target, Long id, Long userId, String title, Integer status, Integer viewCount) {
+        target.publicTitles().remove(id);
+        Long owner = target.privateOwners().remove(id);
+        if (owner != null) {
+            TitleTrie trie = target.privateTitles().get(owner);
+            trie.remove(id);
+            if (trie.size() == 0) {
+                target.privateTitles().remove(owner);
+            }
+        }
+        if (title == null) {
+            return;
+        }
+
+        long score = viewCount != null ? viewCount : 0;
+        if (status == null || status == 1) {
+            target.publicTitles().put(id, title, score);
+        } else {
+            target.privateOwners().put(id, userId);
+            target.privateTitles().computeIfAbsent(userId, key -> new TitleTrie(topK)).put(id, title, score);
+        }
+    }
+
+    /**
+     * 从数据库重新加载，已不存在的从索引删除
+     */
+    private void reload(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(ids);
+        for (NoteSummary summary : noteMapper.findSummariesByIds(ids)) {
+            missing.remove(summary.getId());
+            update(summary.getId(), summary.getUserId(), summary.getTitle(), summary.getStatus(),
+                    summary.getViewCount());
+        }
+        missing.forEach(id -> update(id, null, null, null, null));
+    }
+
+    private void publish(Long id) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANGE_CHANNEL, nodeId + "|" + id);
+        } catch (Exception e) {
+            log.warn("发布标题联想索引变更失败: {}", e.getMessage());
+        }
+    }
+
+    private static long estimateBytes(Index index) {
+        long bytes = index.publicTitles().estimateBytes();
+        for (TitleTrie trie : index.privateTitles().values()) {
+            bytes += trie.estimateBytes();
+        }
+        // 非公开笔记的作者映射：每项约 Node 32 + 两个 Long 32 + 桶 4
+        return bytes + index.privateOwners().size() * 68L;
+    }
+}
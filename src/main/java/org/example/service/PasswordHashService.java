@@ -0,0 +1,115 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码哈希服务
+ * PBKDF2 是刻意设计得很耗 CPU 的算法，所有哈希和验证都放在独立的有界线程池中执行，
+ * 队列满时立即拒绝，避免登录风暴占满 Tomcat 线程、拖慢笔记和计划等普通请求。
+ */
+@Service
+public class PasswordHashService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashService.class);
+
+    // PBKDF2 迭代次数（工作因子）
+    @Value("${password.hash.iterations:310000}")
+    private int iterations;
+
+    // 哈希线程数，默认为 CPU 核数的一半
+    @Value("${password.hash.threads:0}")
+    private int threads;
+
+    // 等待队列长度，超过后立即拒绝
+    @Value("${password.hash.queue-size:64}")
+    private int queueSize;
+
+    // 单次任务最长等待时间（毫秒）
+    @Value("${password.hash.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // 启动时测量一次耗时，便于按机器性能调整工作因子
+        long start = System.nanoTime();
+        PasswordUtil.hash("benchmark", iterations);
+        log.info("PBKDF2 密码哈希：迭代次数={}，单次耗时={}ms，线程数={}，队列长度={}",
+                iterations, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), poolSize, queueSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 生成加盐哈希
+     */
+    public String hash(String password) {
+        return execute(() -> PasswordUtil.hash(password, iterations));
+    }
+
+    /**
+     * 验证密码
+     */
+    public boolean verify(String password, String storedPassword) {
+        return execute(() -> PasswordUtil.verify(password, storedPassword));
+    }
+
+    /**
+     * 存储的哈希是否需要按当前工作因子重新生成
+     */
+    public boolean needsUpgrade(String storedPassword) {
+        return PasswordUtil.needsUpgrade(storedPassword, iterations);
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new RuntimeException("服务繁忙，请稍后重试");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RuntimeException("服务繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("密码校验被中断");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("密码加密失败", e.getCause());
+        }
+    }
+}
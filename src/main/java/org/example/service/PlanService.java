@@ -1,14 +1,21 @@
 package org.example.service;
 
+import jakarta.annotation.PostConstruct;
+import org.example.common.CursorPage;
+import org.example.common.PageCursor;
+import org.example.dto.ListVersion;
 import org.example.dto.PlanRequest;
 import org.example.entity.Plan;
 import org.example.mapper.PlanMapper;
+import org.example.util.SingleFlight;
+import org.example.util.SingleFlightRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 计划服务层
@@ -19,6 +26,16 @@ public class PlanService {
     @Autowired
     private PlanMapper planMapper;
 
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    private SingleFlight<String, CursorPage<Plan>> planListLoads;
+
+    @PostConstruct
+    public void init() {
+        this.planListLoads = singleFlightRegistry.create("plan.list");
+    }
+
     /**
      * 创建计划
      */
@@ -52,18 +69,19 @@ public class PlanService {
      */
     public Plan getPlanById(Long id, Long currentUserId) {
         Plan plan = planMapper.findById(id);
-        if (plan == null) {
-            throw new RuntimeException("计划不存在");
-        }
-
-        // 只能查看自己的计划
-        if (!plan.getUserId().equals(currentUserId)) {
-            throw new RuntimeException("无权限查看该计划");
-        }
-
+        checkReadable(plan, currentUserId);
         return plan;
     }
 
+    /**
+     * 获取计划版本（只包含 id、user_id、update_time），用于条件请求，权限检查与详情相同
+     */
+    public Plan getPlanVersion(Long id, Long currentUserId) {
+        Plan version = planMapper.findVersionById(id);
+        checkReadable(version, currentUserId);
+        return version;
+    }
+
     /**
      * 更新计划
      */
@@ -129,17 +147,57 @@ public class PlanService {
     }
 
     /**
-     * 获取用户的所有计划
+     * 获取用户的计划（按计划时间正序，游标分页）
+     *
+     * @param cursor 上一页返回的 nextCursor，为空时从第一页开始
+     * @param size   每页条数，为空且无游标时按旧接口返回（最多 CursorPage.UNPAGED_LIMIT 条）
      */
-    public List<Plan> getUserPlans(Long userId) {
-        return planMapper.findByUserId(userId);
+    public CursorPage<Plan> getUserPlans(Long userId, String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        return planListLoads.execute("user|" + userId + "|" + cursor + "|" + limit, () -> {
+            List<Plan> rows = planMapper.findByUserId(userId,
+                    position != null ? position.time() : null,
+                    position != null ? position.id() : null,
+                    limit + 1);
+            return CursorPage.of(rows, limit, Plan::getPlanTime, Plan::getId);
+        });
     }
 
     /**
-     * 根据日期范围获取用户的计划
+     * 逐条读取用户的全部计划（按计划时间正序），用于不分页的流式接口和导出
+     * 按页查询，consumer 写出期间不占用数据库连接
      */
-    public List<Plan> getUserPlansByDateRange(Long userId, LocalDateTime startTime, LocalDateTime endTime) {
-        return planMapper.findByUserIdAndDateRange(userId, startTime, endTime);
+    public void streamUserPlans(Long userId, Consumer<Plan> consumer) {
+        CursorPage.forEach((position, limit) -> planMapper.findByUserId(userId,
+                        position != null ? position.time() : null,
+                        position != null ? position.id() : null,
+                        limit),
+                Plan::getPlanTime, Plan::getId, consumer);
+    }
+
+    /**
+     * 根据日期范围获取用户的计划（游标分页）
+     */
+    public CursorPage<Plan> getUserPlansByDateRange(Long userId, LocalDateTime startTime, LocalDateTime endTime,
+                                                    String cursor, Integer size) {
+        PageCursor position = PageCursor.decode(cursor);
+        int limit = CursorPage.resolveLimit(cursor, size);
+        String key = "range|" + userId + "|" + startTime + "|" + endTime + "|" + cursor + "|" + limit;
+        return planListLoads.execute(key, () -> {
+            List<Plan> rows = planMapper.findByUserIdAndDateRange(userId, startTime, endTime,
+                    position != null ? position.time() : null,
+                    position != null ? position.id() : null,
+                    limit + 1);
+            return CursorPage.of(rows, limit, Plan::getPlanTime, Plan::getId);
+        });
+    }
+
+    /**
+     * 获取用户计划列表的版本（流式接口使用，分页接口由本页的行计算 ETag）
+     */
+    public ListVersion getUserPlansVersion(Long userId) {
+        return planMapper.findUserListVersion(userId);
     }
 
     /**
@@ -148,5 +206,15 @@ public class PlanService {
     public int countUserPlans(Long userId) {
         return planMapper.countByUserId(userId);
     }
-}
 
+    private void checkReadable(Plan plan, Long currentUserId) {
+        if (plan == null) {
+            throw new RuntimeException("计划不存在");
+        }
+
+        // 只能查看自己的计划
+        if (!plan.getUserId().equals(currentUserId)) {
+            throw new RuntimeException("无权限查看该计划");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import org.example.common.AuthPrincipal;
+import org.example.util.BloomFilter;
+import org.example.util.TokenDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 吊销服务（session.verify-mode=stateless 时启用）
+ * 无状态模式下拦截器只校验 JWT 签名和有效期，再查本地吊销结构，不访问 Redis：
+ * - 布隆过滤器：快速排除绝大多数未吊销的 Token
+ * - 精确集合：已吊销 Token 的 SHA-256 -> 过期时间
+ * - 登出时间：用户名 -> 登出时间戳，早于该秒签发的 Token 全部失效
+ * 吊销通过 Redis 发布订阅同步到所有节点，并写入 Redis 快照供节点启动时恢复。
+ * 代价是吊销存在发布订阅的传播延迟（通常为毫秒级），且不再执行24小时未活动检查。
+ */
+@Service
+public class RevocationService implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationService.class);
+
+    /**
+     * 吊销通知频道
+     * 消息格式：T|过期时间|Token摘要 或 U|登出时间|用户名
+     */
+    public static final String REVOCATION_CHANNEL = "vblog:revocation";
+
+    // Redis 快照
+    private static final String TOKEN_SNAPSHOT_KEY = "vblog:revocation:tokens";
+    private static final String USER_SNAPSHOT_KEY = "vblog:revocation:users";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${session.verify-mode:redis}")
+    private String verifyMode;
+
+    @Value("${jwt.expiration}")
+    private Long expiration;
+
+    // 布隆过滤器预计容量
+    @Value("${revocation.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> logoutTimes = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    @PostConstruct
+    public void init() {
+        this.bloomFilter = new BloomFilter(expectedInsertions, 0.01);
+        if (isEnabled()) {
+            try {
+                resync();
+            } catch (Exception e) {
+                log.warn("加载 Token 吊销快照失败，将在下次同步时重试: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 是否启用无状态校验模式
+     */
+    public boolean isEnabled() {
+        return "stateless".equals(verifyMode);
+    }
+
+    /**
+     * Token 是否已被吊销
+     */
+    public boolean isRevoked(String token, AuthPrincipal principal) {
+        Long logoutTime = logoutTimes.get(principal.getUsername());
+        // JWT 签发时间只有秒级精度，只吊销登出之前那一秒及更早签发的 Token，避免误伤登出后立即重新登录的 Token
+        if (logoutTime != null && principal.getIssuedAt() / 1000 < logoutTime / 1000) {
+            return true;
+        }
+
+        String tokenId = TokenDigest.sha256Hex(token);
+        if (!bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokens.containsKey(tokenId);
+    }
+
+    /**
+     * 吊销单个 Token（刷新 Token、在其他设备重新登录时）
+     */
+    public void revokeToken(String token) {
+        if (!isEnabled() || token == null) {
+            return;
+        }
+        String tokenId = TokenDigest.sha256Hex(token);
+        long expiresAt = System.currentTimeMillis() + expiration;
+        applyToken(tokenId, expiresAt);
+
+        stringRedisTemplate.opsForHash().put(TOKEN_SNAPSHOT_KEY, tokenId, String.valueOf(expiresAt));
+        stringRedisTemplate.expire(TOKEN_SNAPSHOT_KEY, expiration, TimeUnit.MILLISECONDS);
+        stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, "T|" + expiresAt + "|" + tokenId);
+    }
+
+    /**
+     * 吊销用户当前及之前签发的所有 Token（登出、修改密码时）
+     */
+    public void revokeUser(String username, String currentToken) {
+        if (!isEnabled()) {
+            return;
+        }
+        revokeToken(currentToken);
+
+        long logoutTime = System.currentTimeMillis();
+        applyLogout(username, logoutTime);
+
+        stringRedisTemplate.opsForHash().put(USER_SNAPSHOT_KEY, username, String.valueOf(logoutTime));
+        stringRedisTemplate.expire(USER_SNAPSHOT_KEY, expiration, TimeUnit.MILLISECONDS);
+        stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, "U|" + logoutTime + "|" + username);
+    }
+
+    /**
+     * 接收其他节点的吊销通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3) {
+            return;
+        }
+        long timestamp = Long.parseLong(parts[1]);
+        if ("T".equals(parts[0])) {
+            applyToken(parts[2], timestamp);
+        } else if ("U".equals(parts[0])) {
+            applyLogout(parts[2], timestamp);
+        }
+    }
+
+    /**
+     * 定时从 Redis 快照重新同步并清理过期条目
+     * 同时弥补节点断线期间错过的发布订阅消息
+     */
+    @Scheduled(fixedDelayString = "${revocation.resync-interval-ms:600000}")
+    public void resync() {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        stringRedisTemplate.opsForHash().entries(TOKEN_SNAPSHOT_KEY).forEach((id, expiresAt) -> {
+            long value = Long.parseLong(expiresAt.toString());
+            if (value > now) {
+                revokedTokens.merge(id.toString(), value, Math::max);
+            } else {
+                stringRedisTemplate.opsForHash().delete(TOKEN_SNAPSHOT_KEY, id);
+            }
+        });
+        stringRedisTemplate.opsForHash().entries(USER_SNAPSHOT_KEY).forEach((username, logoutTime) -> {
+            long value = Long.parseLong(logoutTime.toString());
+            if (value + expiration > now) {
+                logoutTimes.merge(username.toString(), value, Math::max);
+            } else {
+                stringRedisTemplate.opsForHash().delete(USER_SNAPSHOT_KEY, username);
+            }
+        });
+
+        // 已过期的 Token 本身就无法通过校验，不必继续保留
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        logoutTimes.values().removeIf(logoutTime -> logoutTime + expiration <= now);
+        rebuildBloomFilter();
+    }
+
+    /**
+     * 吊销结构统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", isEnabled());
+        result.put("revokedTokens", revokedTokens.size());
+        result.put("logoutUsers", logoutTimes.size());
+        result.put("bloomBits", bloomFilter.bitSize());
+        return result;
+    }
+
+    private void applyToken(String tokenId, long expiresAt) {
+        revokedTokens.merge(tokenId, expiresAt, Math::max);
+        bloomFilter.put(tokenId);
+    }
+
+    private void applyLogout(String username, long logoutTime) {
+        logoutTimes.merge(username, logoutTime, Math::max);
+    }
+
+    /**
+     * 布隆过滤器不支持删除，清理后按精确集合重建
+     */
+    private void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, revokedTokens.size() * 2L), 0.01);
+        revokedTokens.keySet().forEach(rebuilt::put);
+        this.bloomFilter = rebuilt;
+        // 重建期间新增的吊销补写一次
+        revokedTokens.keySet().forEach(rebuilt::put);
+    }
+}
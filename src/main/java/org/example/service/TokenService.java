@@ -1,10 +1,14 @@
 package org.example.service;
 
+import org.example.cache.SessionCache;
+import org.example.common.AuthPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,13 +21,34 @@ public class TokenService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private SessionCache sessionCache;
+
+    @Autowired
+    private ActivityRecorder activityRecorder;
+
+    @Autowired
+    private RedisScript<Long> sessionCheckScript;
+
+    @Autowired
+    private RevocationService revocationService;
+
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    /**
+     * 会话校验模式：
+     * redis - 依次执行 GET / GET / SET（默认）
+     * lua   - 执行一次 Lua 脚本，原子完成校验和活动时间刷新
+     * stateless - 只信任 JWT 签名和有效期，再查本地吊销列表，不访问 Redis（见 RevocationService）
+     */
+    @Value("${session.verify-mode:redis}")
+    private String verifyMode;
+
     // Token 前缀
     private static final String TOKEN_PREFIX = "vblog:token:";
     // 最后活动时间前缀
-    private static final String LAST_ACTIVITY_PREFIX = "vblog:activity:";
+    public static final String LAST_ACTIVITY_PREFIX = "vblog:activity:";
     // 24小时（毫秒）
     private static final Long ONE_DAY_MS = 86400000L;
 
@@ -34,6 +59,14 @@ public class TokenService {
      * @param token    JWT Token
      */
     public void saveToken(String username, String token) {
+        // 在其他设备重新登录会顶掉旧 Token
+        String previous = getToken(username);
+        boolean replaced = previous != null && !previous.equals(token);
+        // 无状态模式下需要显式吊销
+        if (replaced && revocationService.isEnabled()) {
+            revocationService.revokeToken(previous);
+        }
+
         String key = TOKEN_PREFIX + username;
         String activityKey = LAST_ACTIVITY_PREFIX + username;
         
@@ -42,6 +75,11 @@ public class TokenService {
         
         // 保存最后活动时间
         redisTemplate.opsForValue().set(activityKey, System.currentTimeMillis(), expiration, TimeUnit.MILLISECONDS);
+
+        // 写入新 Token 之后清除所有节点上旧 Token 的会话缓存，否则旧 Token 在缓存有效窗口内仍可使用
+        if (replaced) {
+            sessionCache.invalidate(username);
+        }
     }
 
     /**
@@ -62,10 +100,85 @@ public class TokenService {
      * @param username 用户名
      */
     public void deleteToken(String username) {
+        if (revocationService.isEnabled()) {
+            revocationService.revokeUser(username, getToken(username));
+        }
+        removeSession(username);
+    }
+
+    /**
+     * 删除 Redis 中的会话并清除所有节点上的会话缓存
+     */
+    private void removeSession(String username) {
         String key = TOKEN_PREFIX + username;
         String activityKey = LAST_ACTIVITY_PREFIX + username;
+        activityRecorder.discard(username);
         redisTemplate.delete(key);
         redisTemplate.delete(activityKey);
+        
+        // 清除所有节点上的会话缓存
+        sessionCache.invalidate(username);
+    }
+
+    /**
+     * 校验会话并刷新活动时间（拦截器调用）
+     * 优先查本地会话缓存，命中时不访问 Redis
+     *
+     * @param principal 已通过签名校验的登录主体
+     * @param token     Token
+     * @return 是否有效
+     */
+    public boolean verifySession(AuthPrincipal principal, String token) {
+        String username = principal.getUsername();
+
+        // 无状态模式：只查本地吊销列表
+        if (revocationService.isEnabled()) {
+            if (revocationService.isRevoked(token, principal)) {
+                return false;
+            }
+            updateLastActivity(username);
+            return true;
+        }
+
+        if (sessionCache.isValid(token, username)) {
+            updateLastActivity(username);
+            return true;
+        }
+
+        long generation = sessionCache.currentGeneration();
+        if ("lua".equals(verifyMode)) {
+            if (!checkSessionAtomically(username, token)) {
+                return false;
+            }
+        } else {
+            if (!isTokenValid(username, token)) {
+                return false;
+            }
+            updateLastActivity(username);
+        }
+        sessionCache.put(token, username, principal.getExpiresAt(), generation);
+        return true;
+    }
+
+    /**
+     * 使用 Lua 脚本在一次往返内完成会话校验
+     * 比对 Token、检查24小时未活动、刷新活动时间在 Redis 端原子执行，不会与并发登出交错
+     *
+     * @param username 用户名
+     * @param token    Token
+     * @return 是否有效
+     */
+    public boolean checkSessionAtomically(String username, String token) {
+        Long status = redisTemplate.execute(sessionCheckScript,
+                Arrays.asList(TOKEN_PREFIX + username, LAST_ACTIVITY_PREFIX + username),
+                token, System.currentTimeMillis(), ONE_DAY_MS, expiration);
+
+        if (status != null && status == -1L) {
+            // 脚本已删除超时会话，同步清理本地状态
+            activityRecorder.discard(username);
+            sessionCache.invalidate(username);
+        }
+        return status != null && status == 1L;
     }
 
     /**
@@ -92,12 +205,12 @@ public class TokenService {
 
     /**
      * 更新最后活动时间
+     * 只记录到内存，由 ActivityRecorder 定时批量写入 Redis
      *
      * @param username 用户名
      */
     public void updateLastActivity(String username) {
-        String activityKey = LAST_ACTIVITY_PREFIX + username;
-        redisTemplate.opsForValue().set(activityKey, System.currentTimeMillis(), expiration, TimeUnit.MILLISECONDS);
+        activityRecorder.record(username);
     }
 
     /**
@@ -107,6 +220,11 @@ public class TokenService {
      * @return 是否超过24小时未活动
      */
     public boolean isInactiveFor24Hours(String username) {
+        // 内存中有尚未写入的活动记录，说明刚刚活动过
+        if (activityRecorder.getPending(username) != null) {
+            return false;
+        }
+        
         String activityKey = LAST_ACTIVITY_PREFIX + username;
         Object lastActivity = redisTemplate.opsForValue().get(activityKey);
         
@@ -127,7 +245,10 @@ public class TokenService {
      * @param newToken 新 Token
      */
     public void refreshToken(String username, String newToken) {
-        deleteToken(username);
+        // 刷新只吊销旧 Token 本身，不记录登出时间，避免新 Token 被误判
+        String oldToken = revocationService.isEnabled() ? getToken(username) : null;
+        removeSession(username);
+        revocationService.revokeToken(oldToken);
         saveToken(username, newToken);
     }
 
@@ -138,6 +259,11 @@ public class TokenService {
      * @return 最后活动时间戳
      */
     public Long getLastActivity(String username) {
+        // 优先返回尚未写入 Redis 的最新活动时间
+        Long pending = activityRecorder.getPending(username);
+        if (pending != null) {
+            return pending;
+        }
         String activityKey = LAST_ACTIVITY_PREFIX + username;
         Object lastActivity = redisTemplate.opsForValue().get(activityKey);
         return lastActivity != null ? Long.parseLong(lastActivity.toString()) : null;
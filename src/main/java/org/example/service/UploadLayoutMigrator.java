@@ -0,0 +1,146 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Image;
+import org.example.mapper.ImageMapper;
+import org.example.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上传文件目录迁移
+ * 启动后在后台线程中按 ID 顺序分批扫描 image 表，把平铺保存在类型目录下的文件移动到两级散列目录，
+ * 并更新 image（和 file_blob）中的路径和 URL。迁移期间服务照常运行：
+ * - 每个文件的移动和记录更新在一个短事务中完成，不会长时间持有锁
+ * - 按令牌桶限制每秒迁移的文件数，避免与正常请求争抢磁盘
+ * - 笔记中嵌入的旧 URL 由 ImageService.resolvePublicFile 在新位置查找
+ * 迁移完成的文件不再匹配，重启后重新扫描只会跳过，不需要记录进度。
+ */
+@Service
+public class UploadLayoutMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadLayoutMigrator.class);
+
+    @Autowired
+    private ImageMapper imageMapper;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Value("${upload.layout.migrate-enabled:true}")
+    private boolean enabled;
+
+    // 每批读取的记录数
+    @Value("${upload.layout.migrate-batch-size:200}")
+    private int batchSize;
+
+    // 每秒最多迁移的文件数
+    @Value("${upload.layout.migrate-files-per-second:50}")
+    private double filesPerSecond;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile long lastId;
+
+    private final LongAdder migrated = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * 应用启动完成后开始迁移（不阻塞启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "upload-layout-migrator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("running", running);
+        result.put("lastId", lastId);
+        result.put("migrated", migrated.sum());
+        result.put("skipped", skipped.sum());
+        result.put("failed", failed.sum());
+        return result;
+    }
+
+    private void migrate() {
+        running = true;
+        long started = System.currentTimeMillis();
+        TokenBucket throttle = new TokenBucket(Math.max(1, (long) filesPerSecond), filesPerSecond / 1000);
+        try {
+            while (!stopped) {
+                List<Image> batch = imageMapper.findAfterId(lastId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Image image : batch) {
+                    if (stopped) {
+                        return;
+                    }
+                    if (image.getPath() != null && image.getUrl() != null
+                            && ImageService.isFlatUpload(image.getPath())) {
+                        waitForPermit(throttle);
+                        migrateOne(image);
+                    }
+                    lastId = image.getId();
+                }
+            }
+            if (!stopped && (migrated.sum() > 0 || failed.sum() > 0)) {
+                log.info("上传文件目录迁移完成: 迁移 {} 个，跳过 {} 个，失败 {} 个，耗时 {} ms",
+                        migrated.sum(), skipped.sum(), failed.sum(), System.currentTimeMillis() - started);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // 数据库不可用等，下次启动时继续
+            log.warn("上传文件目录迁移中断: {}", e.getMessage());
+        } finally {
+            running = false;
+        }
+    }
+
+    private void migrateOne(Image image) {
+        try {
+            if (fileBlobService.relocate(image)) {
+                migrated.increment();
+            } else {
+                skipped.increment();
+            }
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("迁移文件失败: {}: {}", image.getPath(), e.getMessage());
+        }
+    }
+
+    private static void waitForPermit(TokenBucket throttle) throws InterruptedException {
+        long waitMs;
+        while ((waitMs = throttle.tryAcquire()) > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+}
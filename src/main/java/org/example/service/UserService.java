@@ -1,11 +1,13 @@
 package org.example.service;
 
+import jakarta.annotation.PostConstruct;
 import org.example.dto.ChangePasswordRequest;
 import org.example.dto.LoginRequest;
 import org.example.dto.RegisterRequest;
 import org.example.entity.User;
 import org.example.mapper.UserMapper;
-import org.example.util.PasswordUtil;
+import org.example.util.SingleFlight;
+import org.example.util.SingleFlightRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +21,19 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+
+    private SingleFlight<String, User> userLoads;
+
+    @PostConstruct
+    public void init() {
+        this.userLoads = singleFlightRegistry.create("user.byUsername");
+    }
+
     /**
      * 用户登录
      *
@@ -40,11 +55,15 @@ public class UserService {
         }
 
         // 验证密码
-        String encryptedPassword = PasswordUtil.encrypt(request.getPassword());
-        if (!encryptedPassword.equals(user.getPassword())) {
+        if (!passwordHashService.verify(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("密码错误");
         }
 
+        // 旧的 SHA-256 或低工作因子的哈希，登录成功后透明升级
+        if (passwordHashService.needsUpgrade(user.getPassword())) {
+            userMapper.updatePassword(user.getUsername(), passwordHashService.hash(request.getPassword()));
+        }
+
         // 检查用户状态
         if (user.getStatus() == 0) {
             throw new RuntimeException("用户已被禁用");
@@ -94,7 +113,7 @@ public class UserService {
         // 创建新用户
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(PasswordUtil.encrypt(request.getPassword())); // SHA-256加密
+        user.setPassword(passwordHashService.hash(request.getPassword())); // PBKDF2 加盐哈希
         user.setEmail(request.getEmail());
         user.setNickname(request.getNickname() != null ? request.getNickname() : request.getUsername());
         user.setStatus(1); // 默认启用
@@ -139,13 +158,12 @@ public class UserService {
         }
 
         // 验证旧密码
-        String encryptedOldPassword = PasswordUtil.encrypt(request.getOldPassword());
-        if (!encryptedOldPassword.equals(user.getPassword())) {
+        if (!passwordHashService.verify(request.getOldPassword(), user.getPassword())) {
             throw new RuntimeException("旧密码错误");
         }
 
         // 更新密码
-        String encryptedNewPassword = PasswordUtil.encrypt(request.getNewPassword());
+        String encryptedNewPassword = passwordHashService.hash(request.getNewPassword());
         int result = userMapper.updatePassword(request.getUsername(), encryptedNewPassword);
         
         return result > 0;
@@ -153,13 +171,16 @@ public class UserService {
 
     /**
      * 根据用户名查询用户（不返回密码）
+     * 同一用户名的并发查询合并为一次，返回的对象被共享，调用方不应修改
      */
     public User findByUsername(String username) {
-        User user = userMapper.findByUsername(username);
-        if (user != null) {
-            user.setPassword(null);
-        }
-        return user;
+        return userLoads.execute(username, () -> {
+            User user = userMapper.findByUsername(username);
+            if (user != null) {
+                user.setPassword(null);
+            }
+            return user;
+        });
     }
 }
 
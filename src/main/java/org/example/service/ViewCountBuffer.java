@@ -0,0 +1,238 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.cache.NoteCache;
+import org.example.entity.Note;
+import org.example.mapper.NoteMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 笔记浏览次数的延迟批量写入器
+ * 每次查看只在内存中给对应笔记的 LongAdder 加 1，后台定时把累计的增量用一条 UPDATE ... CASE 写入数据库，
+ * 热门笔记不再因为每次浏览都去抢同一行的行锁而串行化。
+ * 开启 view-count.redis-enabled 后各节点先把增量汇总到 Redis 哈希，再由取到数据的节点写库，
+ * 节点宕机时只丢失最后一个周期内尚未推送的增量。
+ */
+@Component
+public class ViewCountBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewCountBuffer.class);
+
+    /**
+     * 多节点共享的增量哈希：笔记ID -> 待写入的浏览次数
+     */
+    public static final String PENDING_KEY = "vblog:note:views";
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    @Autowired
+    private NoteCache noteCache;
+
+    @Autowired
+    private NoteSuggestService noteSuggestService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    @SuppressWarnings("rawtypes")
+    private RedisScript<List> viewCountDrainScript;
+
+    @Value("${view-count.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    // 计数中的增量：笔记ID -> 计数器
+    private final ConcurrentHashMap<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 上一轮取走的计数器及当时读到的值。
+     * 取走计数器时可能有线程已拿到它但还没加完，下一轮再把多出来的部分补上，保证增量不丢。
+     * 只在 flush 中访问。
+     */
+    private Map<Long, Drained> drained = new HashMap<>();
+
+    // 正在写库的增量，写完之前也计入 getPending，避免浏览次数短暂回退
+    private volatile Map<Long, Long> inFlight = Collections.emptyMap();
+
+    private record Drained(LongAdder adder, long counted) {
+    }
+
+    /**
+     * 记录一次浏览（只写内存）
+     */
+    public void record(Long noteId) {
+        counters.computeIfAbsent(noteId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * 获取本节点尚未写入数据库的浏览次数（只读内存，每次查看详情都会调用）
+     * 不查询共享哈希：各节点推送后立即取走，哈希中的增量只停留很短时间，逐次 HGET 的往返得不偿失；
+     * 其他节点的浏览最多延迟一个写入周期后在数据库中可见
+     */
+    public long getPending(Long noteId) {
+        long pending = 0;
+        LongAdder adder = counters.get(noteId);
+        if (adder != null) {
+            pending += adder.sum();
+        }
+        pending += inFlight.getOrDefault(noteId, 0L);
+        return pending;
+    }
+
+    /**
+     * 定时批量写入
+     */
+    @Scheduled(fixedDelayString = "${view-count.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Long, Long> batch = drain();
+
+        if (redisEnabled) {
+            if (!batch.isEmpty() && !pushToRedis(batch)) {
+                restore(batch);
+                return;
+            }
+            batch = pullFromRedis();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        inFlight = batch;
+        try {
+            noteMapper.increaseViewCounts(batch);
+            refreshCachedCounts(batch.keySet());
+            noteSuggestService.addViews(batch);
+        } catch (Exception e) {
+            log.warn("写入浏览次数失败，将在下次重试: {}", e.getMessage());
+            if (!redisEnabled || !pushToRedis(batch)) {
+                restore(batch);
+            }
+        } finally {
+            inFlight = Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 关闭时写入剩余数据
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 读回写库后的浏览次数，更新笔记缓存中的次数（不清除缓存的正文）
+     * 增量已写入数据库，这里失败只记录日志，不能再放回计数器重复写入
+     */
+    private void refreshCachedCounts(Collection<Long> noteIds) {
+        if (!noteCache.isEnabled()) {
+            return;
+        }
+        try {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (Note note : noteMapper.findViewCountsByIds(noteIds)) {
+                counts.put(note.getId(), note.getViewCount() != null ? note.getViewCount() : 0);
+            }
+            noteCache.updateViewCounts(counts);
+        } catch (Exception e) {
+            log.warn("刷新缓存的浏览次数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取出本节点累计的增量
+     */
+    private Map<Long, Long> drain() {
+        Map<Long, Long> batch = new HashMap<>();
+
+        // 补上上一轮取走之后才加到旧计数器上的浏览
+        drained.forEach((noteId, entry) -> {
+            long late = entry.adder().sum() - entry.counted();
+            if (late > 0) {
+                batch.merge(noteId, late, Long::sum);
+            }
+        });
+
+        Map<Long, Drained> current = new HashMap<>();
+        for (Long noteId : counters.keySet()) {
+            LongAdder adder = counters.remove(noteId);
+            if (adder == null) {
+                continue;
+            }
+            long count = adder.sum();
+            current.put(noteId, new Drained(adder, count));
+            if (count > 0) {
+                batch.merge(noteId, count, Long::sum);
+            }
+        }
+        drained = current;
+        return batch;
+    }
+
+    /**
+     * 放回本地计数器，等待下一轮
+     */
+    private void restore(Map<Long, Long> batch) {
+        batch.forEach((noteId, delta) -> counters.computeIfAbsent(noteId, id -> new LongAdder()).add(delta));
+    }
+
+    /**
+     * 把本节点的增量累加到共享哈希
+     */
+    private boolean pushToRedis(Map<Long, Long> batch) {
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    batch.forEach((noteId, delta) ->
+                            ops.opsForHash().increment(PENDING_KEY, noteId.toString(), delta));
+                    return null;
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            log.warn("推送浏览次数到 Redis 失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 原子地取走共享哈希中所有节点的增量
+     */
+    private Map<Long, Long> pullFromRedis() {
+        Map<Long, Long> batch = new HashMap<>();
+        try {
+            List<?> result = stringRedisTemplate.execute(viewCountDrainScript, List.of(PENDING_KEY));
+            List<?> values = result != null ? result : new ArrayList<>();
+            for (int i = 0; i + 1 < values.size(); i += 2) {
+                batch.merge(Long.parseLong(values.get(i).toString()),
+                        Long.parseLong(values.get(i + 1).toString()), Long::sum);
+            }
+        } catch (Exception e) {
+            log.warn("从 Redis 取出浏览次数失败: {}", e.getMessage());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 内存倒排索引，使用 BM25 排序
+ * 支持按文档增量添加、替换、删除；读写锁保护，查询之间互不阻塞。
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * 文档：不同的词及其词频，length 为总词数
+     */
+    public record Doc(long id, String[] terms, int[] freqs, int length) {
+    }
+
+    /**
+     * 查询结果
+     */
+    public record Hit(long id, double score) {
+    }
+
+    // 词 -> (文档ID -> 词频)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private long totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 由词列表生成文档
+     *
+     * @param weights 与 tokens 对应的权重（如标题词计多次），为 null 时每个词计 1
+     */
+    public static Doc toDoc(long id, List<String> tokens, int[] weights) {
+        Map<String, Integer> freqs = new HashMap<>();
+        int length = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            int weight = weights != null ? weights[i] : 1;
+            freqs.merge(tokens.get(i), weight, Integer::sum);
+            length += weight;
+        }
+        String[] terms = new String[freqs.size()];
+        int[] values = new int[freqs.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+            terms[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        return new Doc(id, terms, values, length);
+    }
+
+    /**
+     * 添加或替换文档
+     */
+    public void put(Doc doc) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(doc.id());
+            docs.put(doc.id(), doc);
+            totalLength += doc.length();
+            for (int i = 0; i < doc.terms().length; i++) {
+                postings.computeIfAbsent(doc.terms()[i], term -> new HashMap<>()).put(doc.id(), doc.freqs()[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询，返回得分最高的 limit 个文档
+     *
+     * @param filter 文档可见性过滤
+     */
+    public List<Hit> search(Collection<String> queryTerms, int limit, LongPredicate filter) {
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            if (n == 0 || queryTerms.isEmpty()) {
+                return List.of();
+            }
+            double avgLength = (double) totalLength / n;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                int df = posting.size();
+                double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                    int tf = entry.getValue();
+                    int length = docs.get(entry.getKey()).length();
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+
+            // 小顶堆保留前 limit 个；堆顶是排在最后的（得分最低，同分时 ID 最大），与返回的顺序一致
+            Comparator<Hit> order = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+            PriorityQueue<Hit> top = new PriorityQueue<>(order.reversed());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                if (!filter.test(entry.getKey())) {
+                    continue;
+                }
+                top.offer(new Hit(entry.getKey(), entry.getValue()));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> result = new ArrayList<>(top);
+            result.sort(order);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前所有文档的快照
+     */
+    public List<Doc> docs() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(docs.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 不同词的数量
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(long id) {
+        Doc old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        totalLength -= old.length();
+        for (String term : old.terms()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 中英文混合分词器
+ * - 连续的中日韩文字按二元组切分（"笔记系统" -> 笔记、记系、系统），单个字单独成词
+ * - 连续的字母数字作为一个单词，统一转为小写
+ * - 其余字符（空白、标点、符号）作为分隔符
+ * 二元组不依赖词典，查询和索引使用同一规则即可保证召回。
+ */
+public class CjkTokenizer {
+
+    // 单个词最大长度（字符），过长的字母数字串截断
+    private static final int MAX_WORD_LENGTH = 32;
+
+    /**
+     * 分词，结果按出现顺序排列（可能重复）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        boolean singleCjk = false;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (NoteTextUtil.isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder().appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                    singleCjk = false;
+                } else {
+                    singleCjk = true;
+                }
+                previousCjk = codePoint;
+                continue;
+            }
+
+            flushSingle(previousCjk, singleCjk, tokens);
+            previousCjk = -1;
+            singleCjk = false;
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.appendCodePoint(codePoint);
+                }
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        flushSingle(previousCjk, singleCjk, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    /**
+     * 孤立的单个中文字符单独成词
+     */
+    private static void flushSingle(int previousCjk, boolean singleCjk, List<String> tokens) {
+        if (previousCjk >= 0 && singleCjk) {
+            tokens.add(new String(Character.toChars(previousCjk)));
+        }
+    }
+}
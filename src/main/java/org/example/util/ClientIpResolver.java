@@ -0,0 +1,132 @@
+package org.example.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端 IP 解析
+ * 部署在反向代理之后时 getRemoteAddr 是代理的地址，所有用户共用一个 IP。
+ * 只有直接连接的地址属于配置的可信代理时才读取 X-Forwarded-For：从右向左跳过可信代理，
+ * 第一个不可信的地址就是客户端 IP（更左边的值可能由客户端伪造）。
+ * 可信代理支持单个地址和 CIDR（如 10.0.0.0/8），未配置时直接使用 getRemoteAddr。
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @Value("${client-ip.trusted-proxies:}")
+    private String[] trustedProxies;
+
+    // 每项为 {网络地址, 前缀长度}
+    private final List<Object[]> trusted = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (String proxy : trustedProxies) {
+            String value = proxy.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            int slash = value.indexOf('/');
+            byte[] address = parse(slash >= 0 ? value.substring(0, slash) : value);
+            if (address == null) {
+                throw new IllegalArgumentException("可信代理地址不正确: " + value);
+            }
+            int prefix = slash >= 0 ? Integer.parseInt(value.substring(slash + 1)) : address.length * 8;
+            trusted.add(new Object[]{address, prefix});
+        }
+    }
+
+    /**
+     * 解析请求的客户端 IP
+     */
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (trusted.isEmpty() || !isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+        String forwarded = request.getHeader(FORWARDED_FOR);
+        if (forwarded == null || forwarded.isBlank()) {
+            return remoteAddr;
+        }
+        String[] hops = forwarded.split(",");
+        String client = remoteAddr;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (parse(hop) == null) {
+                // 格式不正确的值无法判断是否可信，停在上一个地址
+                break;
+            }
+            client = hop;
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(String ip) {
+        byte[] address = parse(ip);
+        if (address == null) {
+            return false;
+        }
+        for (Object[] network : trusted) {
+            if (matches((byte[]) network[0], (int) network[1], address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] network, int prefix, byte[] address) {
+        if (network.length != address.length) {
+            return false;
+        }
+        for (int i = 0; i < network.length && prefix > 0; i++, prefix -= 8) {
+            int mask = prefix >= 8 ? 0xFF : (0xFF << (8 - prefix)) & 0xFF;
+            if ((network[i] & mask) != (address[i] & mask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIpv4(String ip) {
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            return false;
+        }
+        for (String part : parts) {
+            if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(c -> c >= '0' && c <= '9')
+                    || Integer.parseInt(part) > 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析 IP 字面量（不做 DNS 查询），不是 IP 时返回 null
+     */
+    private static byte[] parse(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0 && !isIpv4(ip)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
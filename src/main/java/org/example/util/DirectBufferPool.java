@@ -0,0 +1,65 @@
+package org.example.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直接内存缓冲区池
+ * 直接缓冲区分配和回收代价较高，文件读写时反复使用同一批缓冲区；
+ * 池空时临时分配，归还时池已满则丢弃，由 GC 回收。
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> pool;
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * @param bufferSize 每个缓冲区的字节数
+     * @param maxPooled  池中最多保留的缓冲区个数
+     */
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * 取一个已清空的缓冲区
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) {
+            allocated.increment();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.isDirect() && buffer.capacity() == bufferSize) {
+            pool.offer(buffer.clear());
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 池中空闲的缓冲区个数
+     */
+    public int idleCount() {
+        return pool.size();
+    }
+
+    /**
+     * 累计分配的缓冲区个数
+     */
+    public long allocatedCount() {
+        return allocated.sum();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.common.CursorPage;
+import org.example.dto.ListVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.Function;
+
+/**
+ * ETag 工具类
+ * - 详情接口使用强 ETag：类型 + ID + update_time
+ * - 分页列表接口使用弱 ETag：由本页已查出的行（ID + update_time）和下一页游标计算，不需要额外的聚合查询
+ * - 不分页的流式接口在写出数据前发送响应头，使用列表范围 + 行数 + 最新 update_time 的摘要
+ * update_time 为秒级精度，同一秒内的多次修改会得到相同的 ETag
+ * 返回 200 时 ETag 只随成功的响应发出（见 applyValidators），加载数据失败返回的错误不会带上 ETag 被客户端缓存
+ */
+public class EtagUtil {
+
+    private static final String ETAG_ATTRIBUTE = EtagUtil.class.getName() + ".etag";
+    private static final String LAST_MODIFIED_ATTRIBUTE = EtagUtil.class.getName() + ".lastModified";
+
+    /**
+     * 详情接口的强 ETag
+     */
+    public static String strong(String type, Long id, LocalDateTime updateTime) {
+        return "\"" + type + "-" + id + "-" + toMillis(updateTime) + "\"";
+    }
+
+    /**
+     * 流式列表接口的弱 ETag
+     *
+     * @param version 列表范围内的行数和最新更新时间
+     * @param scope   决定列表内容的参数（用户ID等）
+     */
+    public static String weak(ListVersion version, Object... scope) {
+        StringBuilder source = scopeOf(scope);
+        source.append(version.getRowCount()).append('|').append(toMillis(version.getLastModified()));
+        return weakOf(source);
+    }
+
+    /**
+     * 分页列表接口的弱 ETag，由本页已查出的行计算
+     * 本页有行被修改、删除，或有新的行进入本页时 ID 或 update_time 随之变化；本页之外的变化不影响本页的 ETag
+     *
+     * @param page         已查出的本页数据
+     * @param idOf         取 ID
+     * @param updateTimeOf 取更新时间
+     * @param scope        决定列表内容的参数（用户ID、游标、每页条数等）
+     */
+    public static <T> String weak(CursorPage<T> page, Function<T, Long> idOf,
+                                  Function<T, LocalDateTime> updateTimeOf, Object... scope) {
+        StringBuilder source = scopeOf(scope);
+        for (T row : page.getItems()) {
+            source.append(idOf.apply(row)).append(':').append(toMillis(updateTimeOf.apply(row))).append(',');
+        }
+        source.append('|').append(page.getNextCursor());
+        return weakOf(source);
+    }
+
+    /**
+     * 请求是否携带了条件头（If-None-Match / If-Modified-Since）
+     */
+    public static boolean isConditional(HttpServletRequest request) {
+        return request.getHeader("If-None-Match") != null || request.getHeader("If-Modified-Since") != null;
+    }
+
+    /**
+     * 判断客户端缓存是否仍然有效
+     * 返回 true 时响应已被设置为 304（带 ETag），调用方直接返回 null 即可；
+     * 返回 false 时 ETag（以及 Last-Modified）先记在请求中，响应为成功结果时才写入响应头
+     *
+     * @param lastModified 为 null 时不使用 Last-Modified（列表接口删除数据时最新更新时间不变，不能据此判断）
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                           String etag, LocalDateTime lastModified) {
+        // 不传入 response，只做比较，不写响应头
+        ServletWebRequest webRequest = new ServletWebRequest(request);
+        boolean notModified = lastModified == null
+                ? webRequest.checkNotModified(etag)
+                : webRequest.checkNotModified(etag, toMillis(lastModified));
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        if (lastModified != null) {
+            request.setAttribute(LAST_MODIFIED_ATTRIBUTE, toMillis(lastModified));
+        }
+        if (notModified) {
+            applyValidators(request, response);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * 写入 checkNotModified 记下的 ETag 和 Last-Modified 响应头，在确定返回成功结果时调用
+     */
+    public static void applyValidators(HttpServletRequest request, HttpServletResponse response) {
+        if (request.getAttribute(ETAG_ATTRIBUTE) instanceof String etag) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (request.getAttribute(LAST_MODIFIED_ATTRIBUTE) instanceof Long lastModified && lastModified > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+    }
+
+    private static StringBuilder scopeOf(Object... scope) {
+        StringBuilder source = new StringBuilder();
+        for (Object part : scope) {
+            source.append(part).append('|');
+        }
+        return source;
+    }
+
+    private static String weakOf(StringBuilder source) {
+        return "W/\"" + TokenDigest.sha256Hex(source.toString()).substring(0, 32) + "\"";
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+}
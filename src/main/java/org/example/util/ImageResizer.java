@@ -0,0 +1,216 @@
+package org.example.util;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 图片缩放
+ * 按目标宽度缩小图片并编码为 JPEG：
+ * - 解码时按比例隔行隔列采样（subsampling），大尺寸照片不需要把全部像素读入内存
+ * - 逐次减半缩小，最后一步双三次插值，避免一次大比例缩小产生的锯齿
+ * - 按 JPEG 的 EXIF 方向标记旋转，手机竖拍的照片缩小后方向不变
+ * - 透明背景填充为白色
+ */
+public final class ImageResizer {
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private ImageResizer() {
+    }
+
+    /**
+     * 缩小到 width 宽并写入 target（JPEG）
+     *
+     * @param quality JPEG 压缩质量，0 ~ 1
+     * @return 是否已生成；格式不支持或原图宽度不超过 width 时返回 false
+     */
+    public static boolean resizeToJpeg(Path source, Path target, int width, float quality) throws IOException {
+        BufferedImage resized;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                return false;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                int orientation = "jpeg".equalsIgnoreCase(reader.getFormatName())
+                        ? exifOrientation(reader.getImageMetadata(0))
+                        : 1;
+                boolean transposed = orientation >= 5;
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                int displayWidth = transposed ? sourceHeight : sourceWidth;
+                int displayHeight = transposed ? sourceWidth : sourceHeight;
+                if (displayWidth <= width) {
+                    return false;
+                }
+
+                // 输出尺寸（显示方向）和对应的未旋转尺寸
+                int outWidth = width;
+                int outHeight = Math.max(1, (int) Math.round((double) displayHeight * width / displayWidth));
+                int scaledWidth = transposed ? outHeight : outWidth;
+                int scaledHeight = transposed ? outWidth : outHeight;
+
+                // 解码时至少保留目标尺寸的两倍，再由插值缩小
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, sourceWidth / (scaledWidth * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                resized = scale(decoded, scaledWidth, scaledHeight, outWidth, outHeight, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(resized, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * 逐次减半缩小到接近目标尺寸，最后一步缩放并按方向旋转，画到白色背景上
+     */
+    private static BufferedImage scale(BufferedImage image, int scaledWidth, int scaledHeight,
+                                       int outWidth, int outHeight, int orientation) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= scaledWidth && current.getHeight() / 2 >= scaledHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2,
+                    current.getWidth() / 2, current.getHeight() / 2, new AffineTransform(),
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        return draw(current, scaledWidth, scaledHeight, outWidth, outHeight,
+                orientationTransform(orientation, scaledWidth, scaledHeight),
+                RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int drawWidth, int drawHeight,
+                                      int canvasWidth, int canvasHeight, AffineTransform transform,
+                                      Object interpolation) {
+        BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, canvasWidth, canvasHeight);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.transform(transform);
+            g.drawImage(source, 0, 0, drawWidth, drawHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return canvas;
+    }
+
+    /**
+     * EXIF 方向（1 ~ 8）对应的变换，把 w × h 的原始方向图像映射到显示方向
+     */
+    private static AffineTransform orientationTransform(int orientation, int w, int h) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // 水平翻转
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // 旋转 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // 垂直翻转
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // 沿主对角线翻转
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // 顺时针旋转 90°
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // 沿副对角线翻转
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);   // 逆时针旋转 90°
+            default -> new AffineTransform();
+        };
+    }
+
+    /**
+     * 从 JPEG 元数据的 APP1（Exif）段中读取方向标记，没有时返回 1
+     */
+    static int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null) {
+            return 1;
+        }
+        try {
+            Node root = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+            for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!"markerSequence".equals(child.getNodeName())) {
+                    continue;
+                }
+                for (Node marker = child.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                    if ("unknown".equals(marker.getNodeName())
+                            && "225".equals(((IIOMetadataNode) marker).getAttribute("MarkerTag"))
+                            && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] data) {
+                        int orientation = parseOrientation(data);
+                        if (orientation > 0) {
+                            return orientation;
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // 元数据格式不符时按默认方向处理
+        }
+        return 1;
+    }
+
+    /**
+     * 解析 Exif 数据：Exif\0\0 + TIFF 头 + IFD0，找方向标记
+     */
+    private static int parseOrientation(byte[] data) {
+        if (data.length < 14 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(data, 6, data.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return 0;
+        }
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+        int entries = tiff.getShort(ifd) & 0xffff;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                return 0;
+            }
+            if ((tiff.getShort(entry) & 0xffff) == EXIF_ORIENTATION_TAG) {
+                int value = tiff.getShort(entry + 8) & 0xffff;
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+}
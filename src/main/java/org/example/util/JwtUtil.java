@@ -2,6 +2,8 @@ package org.example.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.example.common.AuthPrincipal;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -24,11 +26,45 @@ public class JwtUtil {
     private Long expiration;
 
     /**
-     * 生成密钥
+     * 签名密钥和解析器只在启动时构建一次，二者都是线程安全的，可以在请求间复用
      */
-    private SecretKey getSigningKey() {
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    /**
+     * 获取密钥
+     */
+    private SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * 校验 Token 签名和有效期，并一次性提取所有用户信息
+     * 拦截器每个请求只调用这一次
+     *
+     * @param token JWT Token
+     * @return 已验证的登录主体
+     * @throws ExpiredJwtException Token 已过期
+     * @throws JwtException        Token 签名或格式无效
+     */
+    public AuthPrincipal verify(String token) {
+        Claims claims = getClaimsFromToken(token);
+        Date issuedAt = claims.getIssuedAt();
+        Date expiresAt = claims.getExpiration();
+        return new AuthPrincipal(
+                claims.get("userId", Long.class),
+                claims.getSubject(),
+                issuedAt != null ? issuedAt.getTime() : 0L,
+                expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE);
     }
 
     /**
@@ -80,11 +116,7 @@ public class JwtUtil {
      * 从 Token 中提取所有信息
      */
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
     }
 
     /**
@@ -92,10 +124,7 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
+            jwtParser.parseSignedClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -145,14 +174,7 @@ public class JwtUtil {
      */
     public org.example.dto.TokenInfo parseToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
-            
-            Long uid = claims.get("userId", Long.class);
-            String username = claims.getSubject();
-            Date issuedAt = claims.getIssuedAt();
-            Date expiresAt = claims.getExpiration();
-            
-            return new org.example.dto.TokenInfo(uid, username, issuedAt, expiresAt);
+            return verify(token).toTokenInfo();
         } catch (Exception e) {
             throw new RuntimeException("Token 解析失败: " + e.getMessage());
         }
@@ -0,0 +1,250 @@
+package org.example.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 流式 multipart/form-data 解析器
+ * 直接从请求体中依次读出各个部分，文件内容边读边交给调用方，不落临时文件，也不整体读入内存。
+ * 用法：循环调用 nextPart() 取得部分的头信息，再从 getPartStream() 读取该部分的内容。
+ */
+public class MultipartStream {
+
+    // 单个部分的头信息最大字节数
+    private static final int MAX_HEADER_BYTES = 8192;
+
+    /**
+     * 部分的头信息，普通表单字段的 filename 为 null
+     */
+    public record Part(String name, String filename, String contentType) {
+    }
+
+    private final InputStream in;
+    private final byte[] delimiter;   // \r\n--boundary
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private PartStream current;
+
+    /**
+     * @param contentType 请求的 Content-Type，从中取出 boundary
+     * @param bufferSize  读缓冲区大小
+     */
+    public MultipartStream(InputStream in, String contentType, int bufferSize) {
+        String boundary = boundaryOf(contentType);
+        if (boundary == null) {
+            throw new RuntimeException("不是有效的 multipart 请求");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(bufferSize, MAX_HEADER_BYTES + delimiter.length)];
+        // 第一个分隔符前没有换行，补上后与其余分隔符统一处理；分隔符之前的前导内容当作一个部分跳过
+        buf[0] = '\r';
+        buf[1] = '\n';
+        limit = 2;
+        current = new PartStream();
+    }
+
+    /**
+     * 跳过当前部分剩余的内容，读取下一个部分的头信息；没有更多部分时返回 null
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.skipRemaining();
+
+        ensure(2);
+        if (limit - pos < 2) {
+            throw new IOException("multipart 请求不完整");
+        }
+        if (buf[pos] == '-' && buf[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine(); // 分隔符所在行的剩余部分
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        int headerBytes = 0;
+        while (true) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                break;
+            }
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("multipart 头信息过长");
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("content-disposition".equals(header)) {
+                name = parameterOf(value, "name");
+                filename = parameterOf(value, "filename");
+            } else if ("content-type".equals(header)) {
+                contentType = value;
+            }
+        }
+        current = new PartStream();
+        return new Part(name, filename, contentType);
+    }
+
+    /**
+     * 当前部分的内容，读到该部分末尾时返回 -1
+     */
+    public InputStream getPartStream() {
+        return current;
+    }
+
+    /**
+     * 从 Content-Type 中取出 boundary
+     */
+    static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        String boundary = parameterOf(contentType, "boundary");
+        return boundary == null || boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+    }
+
+    /**
+     * 取头信息中的参数，如 form-data; name="file"; filename="a.png"
+     */
+    private static String parameterOf(String value, String parameter) {
+        for (String item : value.split(";")) {
+            String trimmed = item.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq > 0 && trimmed.substring(0, eq).trim().equalsIgnoreCase(parameter)) {
+                String v = trimmed.substring(eq + 1).trim();
+                if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) {
+                    v = v.substring(1, v.length() - 1);
+                }
+                return v;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取一行（不含 \r\n），按 UTF-8 解码（浏览器按 UTF-8 发送文件名）
+     */
+    private String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = pos + Math.max(0, scanned - 1); i + 1 < limit; i++) {
+                if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                    String line = new String(buf, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    return line;
+                }
+            }
+            scanned = limit - pos;
+            if (scanned > MAX_HEADER_BYTES) {
+                throw new IOException("multipart 头信息过长");
+            }
+            if (eof) {
+                throw new IOException("multipart 请求不完整");
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 尽量使缓冲区中至少有 n 个未读字节
+     */
+    private void ensure(int n) throws IOException {
+        while (limit - pos < n && !eof) {
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        outer:
+        for (int i = pos; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 一个部分的内容：读到分隔符为止
+     */
+    private class PartStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            ensure(delimiter.length);
+            int found = indexOfDelimiter();
+            int available;
+            if (found >= 0) {
+                available = found - pos;
+                if (available == 0) {
+                    pos += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+            } else {
+                // 末尾不足一个分隔符长度的字节可能是分隔符的开头，留到下次判断
+                available = limit - pos - (delimiter.length - 1);
+                if (available <= 0) {
+                    throw new IOException("multipart 请求不完整");
+                }
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        void skipRemaining() throws IOException {
+            byte[] skip = new byte[4096];
+            while (read(skip, 0, skip.length) >= 0) {
+                // 丢弃
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.util;
+
+/**
+ * 笔记文本统计工具类
+ * 在保存笔记时预先计算摘要和字数，列表查询不再读取正文
+ */
+public class NoteTextUtil {
+
+    // 摘要最大长度（字符）
+    public static final int EXCERPT_LENGTH = 200;
+
+    /**
+     * 生成摘要：合并连续空白后截取前 EXCERPT_LENGTH 个字符
+     */
+    public static String excerpt(String content) {
+        if (content == null) {
+            return "";
+        }
+        String collapsed = content.replaceAll("\\s+", " ").trim();
+        if (collapsed.codePointCount(0, collapsed.length()) <= EXCERPT_LENGTH) {
+            return collapsed;
+        }
+        return collapsed.substring(0, collapsed.offsetByCodePoints(0, EXCERPT_LENGTH));
+    }
+
+    /**
+     * 统计字数：中日韩文字每个字计 1，连续的字母数字计 1 个单词
+     */
+    public static int wordCount(String content) {
+        if (content == null) {
+            return 0;
+        }
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                count++;
+                inWord = false;
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                if (!inWord) {
+                    count++;
+                    inWord = true;
+                }
+            } else {
+                inWord = false;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 正文长度（字符数）
+     */
+    public static int contentLength(String content) {
+        return content == null ? 0 : content.codePointCount(0, content.length());
+    }
+
+    /**
+     * 是否为中日韩文字
+     */
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -1,16 +1,31 @@
 package org.example.util;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import java.util.HexFormat;
 
 /**
- * 密码加密工具类 - SHA-256
+ * 密码加密工具类
+ * 新密码使用加盐的 PBKDF2-HMAC-SHA256，格式：pbkdf2$迭代次数$盐(Base64)$哈希(Base64)
+ * 旧数据中的无盐 SHA-256（64位十六进制）仍可验证，登录成功后由 UserService 升级
  */
 public class PasswordUtil {
 
+    private static final String PBKDF2_PREFIX = "pbkdf2";
+    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     /**
-     * 使用SHA-256加密密码
+     * 使用SHA-256加密密码（旧算法，仅用于兼容已有数据）
      *
      * @param password 明文密码
      * @return SHA-256加密后的密码
@@ -19,33 +34,75 @@ public class PasswordUtil {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
+            return HexFormat.of().formatHex(hash);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 加密失败", e);
         }
     }
 
     /**
-     * 验证密码
+     * 使用 PBKDF2 生成加盐哈希
+     *
+     * @param password   明文密码
+     * @param iterations 迭代次数（工作因子）
+     * @return 编码后的哈希字符串
+     */
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PBKDF2_PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * 验证密码（同时支持 PBKDF2 和旧的 SHA-256）
      *
      * @param inputPassword 输入的明文密码
      * @param storedPassword 存储的加密密码
      * @return 是否匹配
      */
     public static boolean verify(String inputPassword, String storedPassword) {
-        String encryptedInput = encrypt(inputPassword);
-        return encryptedInput.equals(storedPassword);
+        if (storedPassword == null) {
+            return false;
+        }
+        if (!storedPassword.startsWith(PBKDF2_PREFIX + "$")) {
+            return constantTimeEquals(encrypt(inputPassword), storedPassword);
+        }
+
+        String[] parts = storedPassword.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        int iterations = Integer.parseInt(parts[1]);
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expected = Base64.getDecoder().decode(parts[3]);
+        return MessageDigest.isEqual(pbkdf2(inputPassword, salt, iterations), expected);
     }
 
     /**
-     * 字节数组转十六进制字符串
+     * 存储的哈希是否需要升级（旧 SHA-256，或迭代次数低于当前配置）
      */
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    public static boolean needsUpgrade(String storedPassword, int iterations) {
+        if (storedPassword == null || !storedPassword.startsWith(PBKDF2_PREFIX + "$")) {
+            return true;
         }
-        return result.toString();
+        String[] parts = storedPassword.split("\\$");
+        return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
     }
-}
 
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new RuntimeException("PBKDF2 加密失败", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static boolean constantTimeEquals(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并执行（single-flight）
+ * 同一个 key 同时只有一个调用者真正执行加载，其余调用者等待并共享它的结果或异常，
+ * 热点数据缓存失效时不会有成百上千个请求同时打到数据库。
+ * 结果会被所有等待者共享，调用方不应修改返回的对象。
+ *
+ * @param <K> 请求 key
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long timeoutMs;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // 真正执行加载的次数
+    private final LongAdder executions = new LongAdder();
+    // 被合并（等待他人结果）的次数
+    private final LongAdder collapsed = new LongAdder();
+    // 等待超时次数
+    private final LongAdder timeouts = new LongAdder();
+    // 加载失败次数（一次失败会传给所有等待者）
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param name      名称，用于统计
+     * @param timeoutMs 等待他人加载结果的最长时间（毫秒）
+     */
+    public SingleFlight(String name, long timeoutMs) {
+        this.name = name;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 执行加载，同一 key 的并发调用只执行一次
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("name", name);
+        result.put("inFlight", inFlight.size());
+        result.put("executions", executions.sum());
+        result.put("collapsed", collapsed.sum());
+        result.put("timeouts", timeouts.sum());
+        result.put("failures", failures.sum());
+        return result;
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new RuntimeException("服务繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("请求被中断");
+        } catch (ExecutionException e) {
+            // 原样抛出加载者的异常，等待者看到的错误信息与加载者一致
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 创建并登记各个 SingleFlight，统一配置等待超时并汇总统计
+ */
+@Component
+public class SingleFlightRegistry {
+
+    // 等待他人加载结果的最长时间（毫秒）
+    @Value("${single-flight.timeout-ms:3000}")
+    private long timeoutMs;
+
+    private final List<SingleFlight<?, ?>> flights = new CopyOnWriteArrayList<>();
+
+    /**
+     * 创建一个 SingleFlight
+     *
+     * @param name 名称，用于统计
+     */
+    public <K, V> SingleFlight<K, V> create(String name) {
+        SingleFlight<K, V> flight = new SingleFlight<>(name, timeoutMs);
+        flights.add(flight);
+        return flight;
+    }
+
+    /**
+     * 所有 SingleFlight 的统计信息
+     */
+    public List<Map<String, Object>> getStats() {
+        return flights.stream().map(SingleFlight::getStats).toList();
+    }
+}
@@ -0,0 +1,435 @@
+package org.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标题前缀树（压缩前缀树 / radix tree），用于输入联想
+ * - 只有一个子节点且不是词尾的节点与子节点合并，边上存放一段字符而不是单个字符
+ * - 每个节点缓存子树中分数最高的 topK 个条目，查询只需沿前缀走到对应节点，与子树大小无关
+ * - 写入时只重算从根到该标题所在节点路径上的缓存
+ * 标题按小写、合并空白后的形式匹配，返回原标题。读写锁保护，查询之间互不阻塞。
+ */
+public class TitleTrie {
+
+    // 参与匹配的标题最大长度，更长的部分不建索引
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * 条目：笔记ID、原标题、排序分数（浏览次数）
+     */
+    public record Entry(long id, String title, long score) {
+    }
+
+    private static final class Node {
+        char[] label;                      // 父节点到本节点的边
+        Node[] children = NO_CHILDREN;     // 按边的首字符排序
+        Entry[] entries = NO_ENTRIES;      // 标题恰好到此结束的条目
+        Entry[] top = NO_ENTRIES;          // 子树中分数最高的条目
+
+        Node(char[] label) {
+            this.label = label;
+        }
+    }
+
+    private final int topK;
+    private final Node root = new Node(new char[0]);
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private int nodeCount = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param topK 每个节点缓存的条目数，即单次查询能返回的最大条数
+     */
+    public TitleTrie(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 标题的匹配形式：小写、去掉首尾空白、连续空白合并为一个空格、截断到 MAX_KEY_LENGTH
+     */
+    public static String normalize(String title) {
+        if (title == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(Math.min(title.length(), MAX_KEY_LENGTH));
+        boolean space = false;
+        for (int i = 0; i < title.length() && sb.length() < MAX_KEY_LENGTH; i++) {
+            char c = title.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) {
+                sb.append(' ');
+                space = false;
+                if (sb.length() == MAX_KEY_LENGTH) {
+                    break;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 添加或替换条目
+     */
+    public void put(long id, String title, long score) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Entry entry = new Entry(id, title, score);
+            String key = normalize(title);
+            if (key.isEmpty()) {
+                return;
+            }
+            byId.put(id, entry);
+            insert(key, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除条目
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 累加条目的分数（条目不存在时忽略）
+     */
+    public void addScore(long id, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = byId.get(id);
+            if (entry != null) {
+                removeInternal(id);
+                Entry updated = new Entry(id, entry.title(), entry.score() + delta);
+                byId.put(id, updated);
+                insert(normalize(entry.title()), updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询以 prefix 开头的标题，按分数从高到低返回，最多 min(limit, topK) 条
+     */
+    public List<Entry> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Entry[] top = find(key);
+            int count = Math.min(Math.min(limit, topK), top.length);
+            return List.of(Arrays.copyOf(top, count));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 条目数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 节点数
+     */
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节），按 64 位 JVM 开启压缩指针计算：
+     * 对象头 12 字节、引用 4 字节、按 8 字节对齐；标题字符串按实际编码（Latin-1 或 UTF-16）计算
+     */
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Entry entry : byId.values()) {
+                // Entry 对象 + 标题字符串 + 其字节数组 + HashMap 节点和 Long 键
+                bytes += align(12 + 8 + 4 + 8) + align(12 + 4 + 4 + 1 + 1) + stringBytes(entry.title())
+                        + align(12 + 4 + 4 + 4 + 4) + align(12 + 8) + 4;
+            }
+            bytes += align(16 + (long) byId.size() * 4 / 3 * 4);
+            return bytes + nodeBytes(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long nodeBytes(Node node) {
+        long bytes = align(12 + 4 * 4)
+                + align(16 + 2L * node.label.length)
+                + (node.children.length > 0 ? align(16 + 4L * node.children.length) : 0)
+                + (node.entries.length > 0 ? align(16 + 4L * node.entries.length) : 0)
+                + (node.top.length > 0 ? align(16 + 4L * node.top.length) : 0);
+        for (Node child : node.children) {
+            bytes += nodeBytes(child);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) < 256;
+        }
+        return align(16 + (long) s.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private Entry[] find(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = findChild(node, key.charAt(i));
+            if (index < 0) {
+                return NO_ENTRIES;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (i + common == key.length()) {
+                return child.top;
+            }
+            if (common < child.label.length) {
+                return NO_ENTRIES;
+            }
+            node = child;
+            i += common;
+        }
+        return node.top;
+    }
+
+    private void insert(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = findChild(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i).toCharArray());
+                node.children = insertChild(node.children, -(index + 1), leaf);
+                nodeCount++;
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length) {
+                // 在公共前缀处拆分边
+                Node middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.children = new Node[]{child};
+                node.children[index] = middle;
+                nodeCount++;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        Entry[] entries = Arrays.copyOf(node.entries, node.entries.length + 1);
+        entries[entries.length - 1] = entry;
+        node.entries = entries;
+        for (int d = path.size() - 1; d >= 0; d--) {
+            recomputeTop(path.get(d));
+        }
+    }
+
+    private void removeInternal(long id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+        String key = normalize(entry.title());
+
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = findChild(node, key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            node = node.children[index];
+            i += node.label.length;
+            path.add(node);
+        }
+
+        Entry[] entries = node.entries;
+        int at = -1;
+        for (int e = 0; e < entries.length; e++) {
+            if (entries[e].id() == id) {
+                at = e;
+                break;
+            }
+        }
+        if (at < 0) {
+            return;
+        }
+        Entry[] remaining = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, remaining, 0, at);
+        System.arraycopy(entries, at + 1, remaining, at, entries.length - at - 1);
+        node.entries = remaining.length > 0 ? remaining : NO_ENTRIES;
+
+        if (node != root && node.entries.length == 0) {
+            if (node.children.length == 0) {
+                // 叶子节点不再有条目，从父节点摘除
+                Node parent = path.get(path.size() - 2);
+                parent.children = removeChild(parent.children, node);
+                nodeCount--;
+                path.remove(path.size() - 1);
+                node = parent;
+            }
+            if (node != root && node.entries.length == 0 && node.children.length == 1) {
+                // 只剩一个子节点，与其合并
+                Node child = node.children[0];
+                char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+                System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+                node.label = label;
+                node.children = child.children;
+                node.entries = child.entries;
+                nodeCount--;
+            }
+        }
+        for (int d = path.size() - 1; d >= 0; d--) {
+            recomputeTop(path.get(d));
+        }
+    }
+
+    /**
+     * 由本节点的条目和各子节点的缓存合并出本节点的缓存
+     */
+    private void recomputeTop(Node node) {
+        Entry[] best = new Entry[topK];
+        int count = 0;
+        for (Entry entry : node.entries) {
+            count = offer(best, count, entry);
+        }
+        for (Node child : node.children) {
+            for (Entry entry : child.top) {
+                // 子节点的缓存已有序，后面的更小
+                if (count == topK && !better(entry, best[count - 1])) {
+                    break;
+                }
+                count = offer(best, count, entry);
+            }
+        }
+        node.top = count == 0 ? NO_ENTRIES : Arrays.copyOf(best, count);
+    }
+
+    /**
+     * 插入到有序的定长数组中，返回新的条目数
+     */
+    private int offer(Entry[] best, int count, Entry entry) {
+        if (count == topK) {
+            if (!better(entry, best[count - 1])) {
+                return count;
+            }
+            count--;
+        }
+        int i = count;
+        while (i > 0 && better(entry, best[i - 1])) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = entry;
+        return count + 1;
+    }
+
+    // 分数高的在前，分数相同时ID大的（较新的）在前
+    private static boolean better(Entry a, Entry b) {
+        return a.score() != b.score() ? a.score() > b.score() : a.id() > b.id();
+    }
+
+    /**
+     * 二分查找首字符为 c 的子节点，未找到时返回 -(插入位置 + 1)
+     */
+    private static int findChild(Node node, char c) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char first = children[mid].label[0];
+            if (first < c) {
+                low = mid + 1;
+            } else if (first > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefix(char[] label, String key, int offset) {
+        int max = Math.min(label.length, key.length() - offset);
+        int i = 0;
+        while (i < max && label[i] == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Node[] insertChild(Node[] children, int at, Node child) {
+        Node[] result = new Node[children.length + 1];
+        System.arraycopy(children, 0, result, 0, at);
+        result[at] = child;
+        System.arraycopy(children, at, result, at + 1, children.length - at);
+        return result;
+    }
+
+    private static Node[] removeChild(Node[] children, Node child) {
+        if (children.length == 1) {
+            return NO_CHILDREN;
+        }
+        Node[] result = new Node[children.length - 1];
+        int j = 0;
+        for (Node c : children) {
+            if (c != child) {
+                result[j++] = c;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁令牌桶
+ * 状态整体放在不可变对象中，通过 CAS 更新，并发请求不需要加锁
+ */
+public class TokenBucket {
+
+    private record State(double tokens, long timestamp) {
+    }
+
+    private final long capacity;
+    private final double refillPerMs;
+    private final AtomicReference<State> state;
+
+    /**
+     * @param capacity    桶容量（允许的突发次数）
+     * @param refillPerMs 每毫秒补充的令牌数
+     */
+    public TokenBucket(long capacity, double refillPerMs) {
+        this.capacity = capacity;
+        this.refillPerMs = refillPerMs;
+        this.state = new AtomicReference<>(new State(capacity, System.currentTimeMillis()));
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 0 表示成功；否则为需要等待的毫秒数
+     */
+    public long tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 尝试一次取 permits 个令牌（如按字节限速时取本次读写的字节数），permits 不能超过桶容量
+     *
+     * @return 0 表示成功；否则为需要等待的毫秒数
+     */
+    public long tryAcquire(long permits) {
+        while (true) {
+            State current = state.get();
+            long now = System.currentTimeMillis();
+            double tokens = Math.min(capacity, current.tokens() + (now - current.timestamp()) * refillPerMs);
+            if (tokens < permits) {
+                return Math.max(1, (long) Math.ceil((permits - tokens) / refillPerMs));
+            }
+            if (state.compareAndSet(current, new State(tokens - permits, now))) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Token 摘要工具类
+ * 缓存和吊销列表中用 Token 的 SHA-256 作为标识，避免在内存和 Redis 中保存原始 Token
+ */
+public class TokenDigest {
+
+    /**
+     * 计算 Token 的 SHA-256 十六进制摘要
+     */
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 计算失败", e);
+        }
+    }
+}
@@ -1,20 +1,18 @@
 package org.example.util;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.example.common.AuthPrincipal;
 import org.example.dto.TokenInfo;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * Token 辅助工具类
  * 提供便捷的方法从请求中获取 Token 信息
+ * 所有信息都来自拦截器验证后存入 request 的 AuthPrincipal，不会再次解析 Token
  */
 @Component
 public class TokenHelper {
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     /**
      * 从请求头中提取 Token
      */
@@ -26,53 +24,36 @@ public class TokenHelper {
         return null;
     }
 
+    /**
+     * 获取拦截器已验证的登录主体（游客为 null）
+     */
+    public AuthPrincipal getPrincipal(HttpServletRequest request) {
+        Object principal = request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
+        return principal instanceof AuthPrincipal ? (AuthPrincipal) principal : null;
+    }
+
     /**
      * 从请求中获取用户ID（uid）
      */
     public Long getUidFromRequest(HttpServletRequest request) {
-        // 优先从请求属性中获取（拦截器已解析）
-        Object userId = request.getAttribute("userId");
-        if (userId != null) {
-            return (Long) userId;
-        }
-        
-        // 如果属性中没有，则从 Token 中解析
-        String token = extractToken(request);
-        if (token != null) {
-            return jwtUtil.getUserIdFromToken(token);
-        }
-        
-        return null;
+        AuthPrincipal principal = getPrincipal(request);
+        return principal != null ? principal.getUid() : null;
     }
 
     /**
      * 从请求中获取用户名
      */
     public String getUsernameFromRequest(HttpServletRequest request) {
-        // 优先从请求属性中获取
-        Object username = request.getAttribute("username");
-        if (username != null) {
-            return (String) username;
-        }
-        
-        // 从 Token 中解析
-        String token = extractToken(request);
-        if (token != null) {
-            return jwtUtil.getUsernameFromToken(token);
-        }
-        
-        return null;
+        AuthPrincipal principal = getPrincipal(request);
+        return principal != null ? principal.getUsername() : null;
     }
 
     /**
      * 从请求中获取 Token 签发时间戳
      */
     public Long getLoginTimestampFromRequest(HttpServletRequest request) {
-        String token = extractToken(request);
-        if (token != null) {
-            return jwtUtil.getIssuedAtTimestamp(token);
-        }
-        return null;
+        AuthPrincipal principal = getPrincipal(request);
+        return principal != null ? principal.getIssuedAt() : null;
     }
 
     /**
@@ -80,11 +61,8 @@ public class TokenHelper {
      * 包括：uid、username、登录时间、过期时间、时间戳
      */
     public TokenInfo parseTokenFromRequest(HttpServletRequest request) {
-        String token = extractToken(request);
-        if (token != null) {
-            return jwtUtil.parseToken(token);
-        }
-        return null;
+        AuthPrincipal principal = getPrincipal(request);
+        return principal != null ? principal.toTokenInfo() : null;
     }
 
     /**
@@ -94,4 +72,3 @@ public class TokenHelper {
         return getUidFromRequest(request) != null;
     }
 }
-
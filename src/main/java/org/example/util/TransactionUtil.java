@@ -0,0 +1,46 @@
+package org.example.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * 事务工具类
+ */
+public class TransactionUtil {
+
+    /**
+     * 在当前事务提交后执行；不在事务中时立即执行
+     * 用于缓存失效、索引更新等，避免其他请求在提交前读到旧数据并重新写回
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 在当前事务结束后执行，参数为是否已提交；不在事务中时立即按已提交执行
+     * 用于撤销或完成事务中已做的文件操作
+     */
+    public static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+}
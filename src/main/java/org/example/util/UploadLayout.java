@@ -0,0 +1,83 @@
+package org.example.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 上传文件的两级散列目录
+ * 各类型目录下按文件名再分两级子目录，如 images/ab/cd/abcd….png，几十万个文件时每个目录只有几个到几十个文件，
+ * 按名称查找和备份时遍历目录都不会随文件总数变慢。
+ * - 以 SHA-256 或 UUID 命名的文件直接取文件名的前 4 个十六进制字符
+ * - 其他文件名取文件名的 SHA-256 的前 4 个字符
+ * 之前保存在类型目录下的文件（平铺）由后台任务逐步迁移，迁移期间按两种位置查找。
+ */
+public final class UploadLayout {
+
+    private UploadLayout() {
+    }
+
+    /**
+     * 文件名对应的两级子目录，如 "ab/cd/"
+     */
+    public static String shardOf(String fileName) {
+        String hex = isHexPrefix(fileName) ? fileName : sha256Hex(fileName);
+        return hex.substring(0, 2) + "/" + hex.substring(2, 4) + "/";
+    }
+
+    /**
+     * 平铺的文件在散列目录中的位置：dir/name -> dir/ab/cd/name
+     */
+    public static Path shardedPath(Path flatFile) {
+        String name = flatFile.getFileName().toString();
+        return flatFile.resolveSibling(shardOf(name) + name);
+    }
+
+    /**
+     * 平铺的访问 URL 在散列目录中的 URL：/uploads/images/name -> /uploads/images/ab/cd/name
+     */
+    public static String shardedUrl(String flatUrl) {
+        int slash = flatUrl.lastIndexOf('/');
+        String name = flatUrl.substring(slash + 1);
+        return flatUrl.substring(0, slash + 1) + shardOf(name) + name;
+    }
+
+    /**
+     * 查找记录中的文件：原位置不存在时（已被迁移，数据库尚未更新）查找散列目录中的位置
+     *
+     * @return 存在的位置；都不存在时返回原位置
+     */
+    public static Path locate(String path) {
+        Path file = Path.of(path);
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        Path sharded = shardedPath(file);
+        return Files.isRegularFile(sharded) ? sharded : file;
+    }
+
+    private static boolean isHexPrefix(String name) {
+        if (name.length() < 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            char c = name.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- 笔记浏览次数写回脚本：浏览次数只增不减，新值更大时才覆盖，多个节点先后写入时不会回退
+-- KEYS[1..n] 各笔记的浏览次数 key（vblog:note:view-count:{id}）
+-- ARGV[1..n] 对应笔记在数据库中的浏览次数
+-- ARGV[n+1] 过期时间（毫秒）
+-- 返回：更新的 key 数
+
+local ttl = ARGV[#KEYS + 1]
+local updated = 0
+for i, key in ipairs(KEYS) do
+    local current = tonumber(redis.call('GET', key))
+    if (not current) or tonumber(ARGV[i]) > current then
+        redis.call('SET', key, ARGV[i], 'PX', ttl)
+        updated = updated + 1
+    else
+        redis.call('PEXPIRE', key, ttl)
+    end
+end
+return updated
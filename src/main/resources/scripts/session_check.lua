@@ -0,0 +1,23 @@
+-- 会话校验脚本：一次往返完成 Token 比对、24小时未活动检查和活动时间刷新
+-- KEYS[1] Token key（vblog:token:{username}）
+-- KEYS[2] 最后活动时间 key（vblog:activity:{username}）
+-- ARGV[1] 请求携带的 Token（与存储值使用相同的 JSON 序列化）
+-- ARGV[2] 当前时间戳（毫秒）
+-- ARGV[3] 未活动超时时间（毫秒）
+-- ARGV[4] 活动记录过期时间（毫秒）
+-- 返回：1 有效；0 Token 不存在或不匹配；-1 超时未活动（已删除会话）
+
+local stored = redis.call('GET', KEYS[1])
+if (not stored) or stored ~= ARGV[1] then
+    return 0
+end
+
+local now = tonumber(ARGV[2])
+local lastActivity = tonumber(redis.call('GET', KEYS[2]))
+if (not lastActivity) or (now - lastActivity) > tonumber(ARGV[3]) then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return -1
+end
+
+redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[4])
+return 1
@@ -0,0 +1,24 @@
+-- 令牌桶脚本：多节点共享登录/注册限流
+-- KEYS[1] 桶 key
+-- ARGV[1] 桶容量
+-- ARGV[2] 每毫秒补充的令牌数
+-- ARGV[3] 当前时间戳（毫秒）
+-- ARGV[4] key 过期时间（毫秒）
+-- 返回：0 取令牌成功；否则为需要等待的毫秒数
+
+local capacity = tonumber(ARGV[1])
+local refillPerMs = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local ts = tonumber(bucket[2]) or now
+
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * refillPerMs)
+if tokens < 1 then
+    return math.ceil((1 - tokens) / refillPerMs)
+end
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens - 1), 'ts', tostring(now))
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return 0
@@ -0,0 +1,19 @@
+-- 分片写入登记脚本：会话没有在完成时登记一个写入租约，完成上传前必须等所有租约结束
+-- KEYS[1] 会话 key
+-- KEYS[2] 写入租约（有序集合：租约标识 -> 到期时间戳）
+-- ARGV[1] 租约标识
+-- ARGV[2] 当前时间戳（毫秒）
+-- ARGV[3] 租约时长（毫秒）
+-- 返回：1 登记成功；0 正在完成；-1 会话不存在
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+if redis.call('HEXISTS', KEYS[1], 'completing') == 1 then
+    return 0
+end
+
+local expiresAt = tonumber(ARGV[2]) + tonumber(ARGV[3])
+redis.call('ZADD', KEYS[2], expiresAt, ARGV[1])
+redis.call('PEXPIRE', KEYS[2], ARGV[3])
+return 1
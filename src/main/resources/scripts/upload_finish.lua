@@ -0,0 +1,21 @@
+-- 完成/取消上传的加锁脚本：没有正在写入的分片时才设置完成标记，之后不再接受新的分片
+-- KEYS[1] 会话 key
+-- KEYS[2] 写入租约（有序集合：租约标识 -> 到期时间戳）
+-- ARGV[1] 当前时间戳（毫秒）
+-- 返回：1 加锁成功；0 已在完成；2 有分片正在写入；-1 会话不存在
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+if redis.call('HEXISTS', KEYS[1], 'completing') == 1 then
+    return 0
+end
+
+-- 超时的租约（写入的节点已崩溃等）不再等待
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[1])
+if redis.call('ZCARD', KEYS[2]) > 0 then
+    return 2
+end
+
+redis.call('HSET', KEYS[1], 'completing', '1')
+return 1
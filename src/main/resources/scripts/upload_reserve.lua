@@ -0,0 +1,32 @@
+-- 分片上传配额脚本：原子地检查并登记用户的上传会话，限制每个用户同时进行的会话数和预留的总字节数
+-- KEYS[1] 用户的会话登记（哈希：uploadId -> 文件大小）
+-- ARGV[1] uploadId
+-- ARGV[2] 文件大小
+-- ARGV[3] 每个用户的会话数上限
+-- ARGV[4] 每个用户预留的总字节数上限
+-- ARGV[5] 登记的过期时间（毫秒）
+-- ARGV[6] 会话 key 前缀，会话已过期的登记不再计入
+-- 返回：0 登记成功；1 会话数超过上限；2 总字节数超过上限
+
+local entries = redis.call('HGETALL', KEYS[1])
+local count = 0
+local total = 0
+for i = 1, #entries, 2 do
+    if redis.call('EXISTS', ARGV[6] .. entries[i]) == 1 then
+        count = count + 1
+        total = total + tonumber(entries[i + 1])
+    else
+        redis.call('HDEL', KEYS[1], entries[i])
+    end
+end
+
+if count >= tonumber(ARGV[3]) then
+    return 1
+end
+if total + tonumber(ARGV[2]) > tonumber(ARGV[4]) then
+    return 2
+end
+
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+redis.call('PEXPIRE', KEYS[1], ARGV[5])
+return 0
@@ -0,0 +1,9 @@
+-- 浏览次数取出脚本：原子地读取并清空共享的浏览次数增量，保证每个增量只被一个节点写入数据库
+-- KEYS[1] 增量哈希（笔记ID -> 待写入的浏览次数）
+-- 返回：[笔记ID, 增量, 笔记ID, 增量, ...]
+
+local deltas = redis.call('HGETALL', KEYS[1])
+if #deltas > 0 then
+    redis.call('DEL', KEYS[1])
+end
+return deltas
@@ -0,0 +1,167 @@
+package org.example.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entity.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteCacheTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final RedisScript<Long> viewCountScript = mock(RedisScript.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final NoteCache cache = new NoteCache();
+
+    @BeforeEach
+    void setUp() {
+        when(redis.opsForValue()).thenReturn(valueOps);
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(cache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(cache, "noteViewCountScript", viewCountScript);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1024 * 1024L);
+        ReflectionTestUtils.setField(cache, "compressThreshold", 100);
+        ReflectionTestUtils.setField(cache, "localTtlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "redisTtlMs", 600_000L);
+        cache.init();
+    }
+
+    @Test
+    void putWritesBothLevelsAndGetReturnsCopies() {
+        cache.put(note(1L, "short"), cache.currentGeneration());
+        verify(valueOps).set(eq("vblog:note:1"), anyString(), eq(600_000L), eq(TimeUnit.MILLISECONDS));
+
+        Note first = cache.get(1L);
+        first.setTitle("changed");
+        first.setContent("changed");
+        Note second = cache.get(1L);
+        assertEquals("title-1", second.getTitle());
+        assertEquals("short", second.getContent());
+    }
+
+    @Test
+    void largeContentIsCompressedAndRestored() {
+        String content = "笔记正文".repeat(500);
+        cache.put(note(2L, content), cache.currentGeneration());
+        assertEquals(content, cache.get(2L).getContent());
+        assertNull(cache.getVersion(2L).getContent());
+    }
+
+    @Test
+    void staleGenerationIsNotCached() {
+        long seen = cache.currentGeneration();
+        cache.invalidateLocal(99L);
+        cache.put(note(3L, "x"), seen);
+
+        assertNull(cache.getVersion(3L));
+        verify(valueOps, never()).set(anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void localMissFallsBackToRedis() throws Exception {
+        when(valueOps.multiGet(List.of("vblog:note:4", "vblog:note:view-count:4")))
+                .thenReturn(Arrays.asList(objectMapper.writeValueAsString(note(4L, "from redis")), null));
+        when(valueOps.multiGet(List.of("vblog:note:5", "vblog:note:view-count:5")))
+                .thenReturn(Arrays.asList(null, null));
+
+        assertEquals("from redis", cache.get(4L).getContent());
+        assertEquals(10, cache.get(4L).getViewCount());
+        assertNotNull(cache.getVersion(4L));
+        assertNull(cache.get(5L));
+    }
+
+    @Test
+    void redisCopyIsOverlaidWithPersistedViewCount() throws Exception {
+        when(valueOps.multiGet(List.of("vblog:note:4", "vblog:note:view-count:4")))
+                .thenReturn(Arrays.asList(objectMapper.writeValueAsString(note(4L, "a")), "25"));
+        when(valueOps.multiGet(List.of("vblog:note:6", "vblog:note:view-count:6")))
+                .thenReturn(Arrays.asList(objectMapper.writeValueAsString(note(6L, "b")), "3"));
+
+        assertEquals(25, cache.get(4L).getViewCount());
+        // 计数 key 比副本旧时不回退
+        assertEquals(10, cache.get(6L).getViewCount());
+    }
+
+    @Test
+    void updateViewCountsKeepsContentCachedAndSendsNoInvalidation() {
+        cache.put(note(1L, "a"), cache.currentGeneration());
+        cache.put(note(2L, "笔记正文".repeat(500)), cache.currentGeneration());
+
+        cache.updateViewCounts(Map.of(1L, 42, 2L, 11, 3L, 7));
+
+        assertEquals(42, cache.get(1L).getViewCount());
+        assertEquals("a", cache.get(1L).getContent());
+        assertEquals(11, cache.get(2L).getViewCount());
+        // 本地没有缓存的笔记不会被加入
+        assertNull(cache.getVersion(3L));
+        // 较旧的次数不会覆盖较新的
+        cache.updateViewCounts(Map.of(1L, 40));
+        assertEquals(42, cache.get(1L).getViewCount());
+
+        verify(redis).execute(viewCountScript, List.of("vblog:note:view-count:1"), "40", "600000");
+        verify(redis, never()).delete(anyString());
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void invalidationMessageWithSeveralIds() {
+        cache.put(note(1L, "a"), cache.currentGeneration());
+        cache.put(note(2L, "b"), cache.currentGeneration());
+        cache.put(note(3L, "c"), cache.currentGeneration());
+
+        cache.onMessage(new DefaultMessage(NoteCache.INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "1, 3".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertNull(cache.getVersion(1L));
+        assertNotNull(cache.getVersion(2L));
+        assertNull(cache.getVersion(3L));
+    }
+
+    @Test
+    void disabledCacheDoesNothing() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        cache.put(note(1L, "a"), cache.currentGeneration());
+        cache.updateViewCounts(Map.of(1L, 5));
+        assertNull(cache.get(1L));
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+        verify(redis, never()).execute(viewCountScript, List.of("vblog:note:view-count:1"), "5", "600000");
+    }
+
+    private static Note note(Long id, String content) {
+        Note note = new Note();
+        note.setId(id);
+        note.setUserId(7L);
+        note.setTitle("title-" + id);
+        note.setContent(content);
+        note.setStatus(1);
+        note.setViewCount(10);
+        note.setUpdateTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        return note;
+    }
+}
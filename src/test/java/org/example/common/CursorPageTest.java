@@ -0,0 +1,82 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CursorPageTest {
+
+    private record Row(LocalDateTime time, Long id) {
+    }
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<Row> rows = rows(1, 3);
+        CursorPage<Row> page = CursorPage.of(rows, 3, Row::time, Row::id);
+        assertEquals(3, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void extraRowProducesCursorAtLastItem() {
+        CursorPage<Row> page = CursorPage.of(rows(1, 4), 3, Row::time, Row::id);
+        assertEquals(3, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+        Row last = page.getItems().get(2);
+        assertEquals(new PageCursor(last.time(), last.id()), PageCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void resolveLimit() {
+        assertEquals(CursorPage.UNPAGED_LIMIT, CursorPage.resolveLimit(null, null));
+        assertEquals(CursorPage.DEFAULT_PAGE_SIZE, CursorPage.resolveLimit("abc", null));
+        assertEquals(1, CursorPage.resolveLimit(null, 0));
+        assertEquals(CursorPage.MAX_PAGE_SIZE, CursorPage.resolveLimit(null, 1000));
+        assertEquals(7, CursorPage.resolveLimit("abc", 7));
+    }
+
+    @Test
+    void forEachWalksAllPagesFromEachPosition() {
+        int total = CursorPage.STREAM_BATCH_SIZE * 2 + 17;
+        List<Row> all = rows(1, total);
+        List<PageCursor> positions = new ArrayList<>();
+        List<Long> seen = new ArrayList<>();
+
+        CursorPage.forEach((position, limit) -> {
+            positions.add(position);
+            int from = position == null ? 0 : position.id().intValue();
+            return all.subList(from, Math.min(from + limit, all.size()));
+        }, Row::time, Row::id, row -> seen.add(row.id()));
+
+        assertEquals(LongStream.rangeClosed(1, total).boxed().toList(), seen);
+        assertEquals(3, positions.size());
+        assertNull(positions.get(0));
+        assertEquals((long) CursorPage.STREAM_BATCH_SIZE, positions.get(1).id());
+    }
+
+    @Test
+    void forEachStopsAfterExactlyFullLastPageWithEmptyQuery() {
+        List<Row> all = rows(1, CursorPage.STREAM_BATCH_SIZE);
+        int[] queries = {0};
+        CursorPage.forEach((position, limit) -> {
+            queries[0]++;
+            return position == null ? all : List.of();
+        }, Row::time, Row::id, row -> { });
+        assertEquals(2, queries[0]);
+    }
+
+    private static List<Row> rows(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new Row(BASE.plusSeconds(id), id))
+                .toList();
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123_000_000), 42L);
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new PageCursor(LocalDateTime.of(2024, 12, 31, 23, 59, 59), Long.MAX_VALUE).encode();
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+    }
+
+    @Test
+    void emptyCursorStartsFromFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(RuntimeException.class, () -> PageCursor.decode("not base64!"));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(base64("no-separator")));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(base64("2024-03-01T12:00_abc")));
+        assertThrows(RuntimeException.class, () -> PageCursor.decode(base64("yesterday_1")));
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
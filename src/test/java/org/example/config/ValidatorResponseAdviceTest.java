@@ -0,0 +1,48 @@
+package org.example.config;
+
+import org.example.common.Result;
+import org.example.util.EtagUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ValidatorResponseAdviceTest {
+
+    private static final String ETAG = EtagUtil.strong("note", 1L, LocalDateTime.of(2024, 1, 1, 0, 0));
+
+    private final ValidatorResponseAdvice advice = new ValidatorResponseAdvice();
+
+    @Test
+    void successfulResultGetsEtag() {
+        assertEquals(ETAG, write(Result.success("ok")).getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void errorResultHasNoEtag() {
+        assertNull(write(Result.error("笔记不存在")).getHeader(HttpHeaders.ETAG));
+        assertNull(write(Result.error(404, "笔记不存在")).getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void nonResultBodyHasNoEtag() {
+        assertNull(write("plain").getHeader(HttpHeaders.ETAG));
+    }
+
+    private MockHttpServletResponse write(Object body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/note/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        EtagUtil.checkNotModified(request, response, ETAG, null);
+        advice.beforeBodyWrite(body, null, MediaType.APPLICATION_JSON, null,
+                new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+        return response;
+    }
+}
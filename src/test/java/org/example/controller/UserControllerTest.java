@@ -0,0 +1,97 @@
+package org.example.controller;
+
+import org.example.common.Result;
+import org.example.dto.LoginRequest;
+import org.example.dto.LoginResponse;
+import org.example.dto.RegisterRequest;
+import org.example.entity.User;
+import org.example.service.LoginThrottle;
+import org.example.service.UserService;
+import org.example.util.ClientIpResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserControllerTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final LoginThrottle loginThrottle = mock(LoginThrottle.class);
+    private final UserController controller = new UserController();
+
+    @BeforeEach
+    void setUp() {
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxies", new String[]{"10.0.0.0/8"});
+        clientIpResolver.init();
+
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        ReflectionTestUtils.setField(controller, "loginThrottle", loginThrottle);
+        ReflectionTestUtils.setField(controller, "clientIpResolver", clientIpResolver);
+    }
+
+    @Test
+    void throttledLoginReturns429WithRetryAfter() {
+        when(loginThrottle.tryAcquire("login", "198.51.100.7", "alice")).thenReturn(1500L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Result<LoginResponse> result = controller.login(login("alice"), request("10.0.0.5", "198.51.100.7"), response);
+
+        assertEquals(429, result.getCode());
+        assertEquals(429, response.getStatus());
+        // 等待时间向上取整到秒
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(result.getData());
+        verify(userService, never()).login(any());
+    }
+
+    @Test
+    void retryAfterIsAtLeastOneSecond() {
+        when(loginThrottle.tryAcquire("register", "203.0.113.9", "bob")).thenReturn(1L);
+        RegisterRequest register = new RegisterRequest();
+        register.setUsername("bob");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Result<User> result = controller.register(register, request("203.0.113.9", "1.2.3.4"), response);
+
+        assertEquals(429, result.getCode());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void allowedLoginReachesUserService() {
+        when(loginThrottle.tryAcquire("login", "198.51.100.7", "alice")).thenReturn(0L);
+        when(userService.login(any())).thenThrow(new RuntimeException("用户名或密码错误"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Result<LoginResponse> result = controller.login(login("alice"), request("10.0.0.5", "198.51.100.7"), response);
+
+        assertEquals("用户名或密码错误", result.getMessage());
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    private static LoginRequest login(String username) {
+        LoginRequest request = new LoginRequest();
+        request.setUsername(username);
+        request.setPassword("wrong");
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/user/login");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
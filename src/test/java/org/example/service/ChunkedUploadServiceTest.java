@@ -0,0 +1,211 @@
+package org.example.service;
+
+import org.example.dto.ChunkedUploadRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTest {
+
+    private static final String SESSION_KEY = "vblog:upload:session:u1";
+
+    @TempDir
+    Path dir;
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+    private final ImageService imageService = mock(ImageService.class);
+    @SuppressWarnings("unchecked")
+    private final RedisScript<Long> reserveScript = mock(RedisScript.class);
+    @SuppressWarnings("unchecked")
+    private final RedisScript<Long> beginWriteScript = mock(RedisScript.class);
+    @SuppressWarnings("unchecked")
+    private final RedisScript<Long> finishScript = mock(RedisScript.class);
+
+    private final ChunkedUploadService service = new ChunkedUploadService();
+
+    @BeforeEach
+    void setUp() {
+        when(redis.opsForHash()).thenReturn(hashOps);
+        when(redis.opsForZSet()).thenReturn(zSetOps);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "imageService", imageService);
+        ReflectionTestUtils.setField(service, "uploadReserveScript", reserveScript);
+        ReflectionTestUtils.setField(service, "uploadBeginWriteScript", beginWriteScript);
+        ReflectionTestUtils.setField(service, "uploadFinishScript", finishScript);
+        ReflectionTestUtils.setField(service, "maxFileSize", 1000L);
+        ReflectionTestUtils.setField(service, "chunkSize", 10);
+        ReflectionTestUtils.setField(service, "sessionTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxSessionsPerUser", 2);
+        ReflectionTestUtils.setField(service, "maxBytesPerUser", 100L);
+    }
+
+    @Test
+    void createOverQuotaRemovesSessionAndFile() throws IOException {
+        Path file = Files.createFile(dir.resolve("u1"));
+        when(imageService.newTempFile()).thenReturn(file);
+        when(imageService.checkUploadType(any(), any())).thenReturn("files");
+        when(redis.execute(eq(reserveScript), anyList(), any(Object[].class))).thenReturn(2L);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.create(7L, request(50)));
+        assertTrue(e.getMessage().contains("总大小"));
+        assertFalse(Files.exists(file));
+        verify(redis).delete(List.of(SESSION_KEY, "vblog:upload:chunks:u1", "vblog:upload:writers:u1"));
+        verify(hashOps).delete("vblog:upload:user:7", "u1");
+    }
+
+    @Test
+    void createWithinQuotaPreallocatesFile() throws IOException {
+        Path file = Files.createFile(dir.resolve("u1"));
+        when(imageService.newTempFile()).thenReturn(file);
+        when(imageService.checkUploadType(any(), any())).thenReturn("files");
+        when(redis.execute(eq(reserveScript), anyList(), any(Object[].class))).thenReturn(0L);
+
+        assertEquals(5, service.create(7L, request(50)).getChunkCount());
+        assertEquals(50, Files.size(file));
+    }
+
+    @Test
+    void chunkIsRejectedWhileCompleting() throws IOException {
+        Path file = Files.write(dir.resolve("u1"), new byte[20]);
+        givenSession(file, 20);
+        when(redis.execute(eq(beginWriteScript), anyList(), any(Object[].class))).thenReturn(0L);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+                service.writeChunk("u1", 7L, 0, new ByteArrayInputStream(new byte[10]), 10));
+        assertTrue(e.getMessage().contains("正在完成"));
+        verify(zSetOps, never()).remove(anyString(), any());
+    }
+
+    @Test
+    void leaseIsReleasedWhenChunkWriteFails() throws IOException {
+        Path file = Files.write(dir.resolve("u1"), new byte[20]);
+        givenSession(file, 20);
+        when(redis.execute(eq(beginWriteScript), anyList(), any(Object[].class))).thenReturn(1L);
+
+        assertThrows(RuntimeException.class, () ->
+                service.writeChunk("u1", 7L, 0, new ByteArrayInputStream(new byte[4]), -1));
+        verify(zSetOps).remove(eq("vblog:upload:writers:u1"), any());
+        verify(redis, never()).opsForValue();
+    }
+
+    @Test
+    void completeWaitsForActiveWriters() throws IOException {
+        Path file = Files.write(dir.resolve("u1"), new byte[20]);
+        givenSession(file, 20);
+        when(redis.execute(eq(finishScript), anyList(), any(Object[].class))).thenReturn(2L);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.complete("u1", 7L, null));
+        assertTrue(e.getMessage().contains("正在上传"));
+        verify(hashOps, never()).delete(SESSION_KEY, "completing");
+    }
+
+    @Test
+    void completeWithMissingChunksReleasesFlag() throws IOException {
+        Path file = Files.write(dir.resolve("u1"), new byte[20]);
+        givenSession(file, 20);
+        when(redis.execute(eq(finishScript), anyList(), any(Object[].class))).thenReturn(1L);
+        when(redis.execute(any(RedisCallback.class))).thenReturn(1L);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.complete("u1", 7L, null));
+        assertTrue(e.getMessage().contains("1 个分片未上传"));
+        verify(hashOps).delete(SESSION_KEY, "completing");
+        assertTrue(Files.exists(file));
+    }
+
+    private void givenSession(Path file, long size) {
+        Map<Object, Object> session = new HashMap<>();
+        session.put("userId", "7");
+        session.put("filename", "a.bin");
+        session.put("size", String.valueOf(size));
+        session.put("contentType", "");
+        session.put("subDir", "files");
+        session.put("chunkSize", "10");
+        session.put("path", file.toString());
+        when(hashOps.entries(SESSION_KEY)).thenReturn(session);
+    }
+
+    private static ChunkedUploadRequest request(long size) {
+        ChunkedUploadRequest request = new ChunkedUploadRequest();
+        request.setFilename("a.bin");
+        request.setSize(size);
+        request.setType("file");
+        return request;
+    }
+
+    @Test
+    void chunkCountRoundsUp() {
+        assertEquals(1, ChunkedUploadService.chunkCountOf(1, 4));
+        assertEquals(1, ChunkedUploadService.chunkCountOf(4, 4));
+        assertEquals(2, ChunkedUploadService.chunkCountOf(5, 4));
+        assertEquals(513, ChunkedUploadService.chunkCountOf(2147483648L + 1, 4194304));
+    }
+
+    @Test
+    void emptyBitmapHasNoRanges() {
+        assertTrue(ChunkedUploadService.receivedRanges(new byte[0], 100, 10).isEmpty());
+        assertTrue(ChunkedUploadService.receivedRanges(new byte[]{0, 0}, 100, 10).isEmpty());
+    }
+
+    @Test
+    void bitZeroIsMostSignificantBitOfFirstByte() {
+        assertRanges(ChunkedUploadService.receivedRanges(new byte[]{(byte) 0x80}, 100, 10), 0, 10);
+        assertRanges(ChunkedUploadService.receivedRanges(new byte[]{0x01}, 100, 10), 70, 80);
+        assertRanges(ChunkedUploadService.receivedRanges(new byte[]{0, (byte) 0x40}, 100, 10), 90, 100);
+    }
+
+    @Test
+    void adjacentChunksAreMergedAcrossBytes() {
+        // 分片 0、1、3、6、7、8
+        byte[] bitmap = {(byte) 0b1101_0011, (byte) 0b1000_0000};
+        assertRanges(ChunkedUploadService.receivedRanges(bitmap, 100, 10), 0, 20, 30, 40, 60, 90);
+    }
+
+    @Test
+    void lastChunkIsClippedToFileSize() {
+        // 25 字节，分片大小 10：最后一片只有 5 字节
+        assertRanges(ChunkedUploadService.receivedRanges(new byte[]{(byte) 0xE0}, 25, 10), 0, 25);
+    }
+
+    @Test
+    void bitsBeyondChunkCountAreIgnored() {
+        assertRanges(ChunkedUploadService.receivedRanges(new byte[]{(byte) 0xFF, (byte) 0xFF}, 25, 10), 0, 25);
+    }
+
+    private static void assertRanges(List<long[]> ranges, long... bounds) {
+        long[] actual = ranges.stream().flatMapToLong(Arrays::stream).toArray();
+        assertArrayEquals(bounds, actual);
+    }
+}
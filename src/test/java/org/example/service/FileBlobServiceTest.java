@@ -0,0 +1,160 @@
+package org.example.service;
+
+import org.example.entity.FileBlob;
+import org.example.entity.Image;
+import org.example.mapper.FileBlobMapper;
+import org.example.mapper.ImageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileBlobServiceTest {
+
+    private static final String SHA256 = "ab".repeat(32);
+
+    @TempDir
+    Path dir;
+
+    private final FileBlobMapper fileBlobMapper = mock(FileBlobMapper.class);
+    private final ImageMapper imageMapper = mock(ImageMapper.class);
+    private final ImageDerivativeService imageDerivativeService = mock(ImageDerivativeService.class);
+    private final FileBlobService service = new FileBlobService();
+
+    private Path stored;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(service, "fileBlobMapper", fileBlobMapper);
+        ReflectionTestUtils.setField(service, "imageMapper", imageMapper);
+        ReflectionTestUtils.setField(service, "imageDerivativeService", imageDerivativeService);
+        stored = Files.writeString(dir.resolve(SHA256 + ".png"), "content");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void releasingSharedReferenceKeepsFile() {
+        givenBlob(2);
+        service.release(image(stored));
+
+        verify(fileBlobMapper).release(SHA256);
+        verify(fileBlobMapper, never()).deleteUnreferenced(any());
+        assertTrue(Files.exists(stored));
+    }
+
+    @Test
+    void releasingLastReferenceDeletesFileAndDerivatives() {
+        givenBlob(1);
+        service.release(image(stored));
+
+        verify(fileBlobMapper).release(SHA256);
+        verify(fileBlobMapper).deleteUnreferenced(SHA256);
+        assertFalse(Files.exists(stored));
+        assertEquals(0, otherFiles());
+        verify(imageDerivativeService).deleteDerivatives(stored);
+    }
+
+    @Test
+    void legacyRecordDeletesItsOwnFile() throws IOException {
+        Path own = Files.writeString(dir.resolve("legacy.png"), "old");
+        givenBlob(3);
+        service.release(image(own));
+
+        verify(fileBlobMapper, never()).release(any());
+        assertFalse(Files.exists(own));
+        assertTrue(Files.exists(stored));
+    }
+
+    @Test
+    void fileIsDeletedOnlyAfterCommit() {
+        givenBlob(1);
+        TransactionSynchronizationManager.initSynchronization();
+        service.release(image(stored));
+
+        // 提交前文件改名为隐藏文件，原位置已空
+        assertFalse(Files.exists(stored));
+        assertEquals(1, otherFiles());
+        verify(imageDerivativeService, never()).deleteDerivatives(any());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(0, otherFiles());
+        verify(imageDerivativeService).deleteDerivatives(stored);
+    }
+
+    @Test
+    void rollbackRestoresFile() throws IOException {
+        givenBlob(1);
+        TransactionSynchronizationManager.initSynchronization();
+        service.release(image(stored));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertTrue(Files.exists(stored));
+        assertEquals("content", Files.readString(stored));
+        assertEquals(0, otherFiles());
+        verify(imageDerivativeService, never()).deleteDerivatives(any());
+    }
+
+    @Test
+    void missingFileIsIgnored() throws IOException {
+        givenBlob(1);
+        Files.delete(stored);
+        service.release(image(stored));
+        verify(fileBlobMapper).deleteUnreferenced(SHA256);
+    }
+
+    private void givenBlob(int refCount) {
+        FileBlob blob = new FileBlob();
+        blob.setSha256(SHA256);
+        blob.setPath(stored.toString());
+        blob.setRefCount(refCount);
+        when(fileBlobMapper.findForUpdate(SHA256)).thenReturn(blob);
+    }
+
+    private static Image image(Path path) {
+        Image image = new Image();
+        image.setSha256(SHA256);
+        image.setPath(path.toString());
+        return image;
+    }
+
+    /**
+     * 目录中除原文件外的文件数（删除时留下的隐藏文件）
+     */
+    private long otherFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> !file.equals(stored)).count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileServeServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private final FileServeService service = new FileServeService();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.writeString(dir.resolve("a.txt"), CONTENT);
+    }
+
+    @Test
+    void noRangeReturnsWholeFile() throws IOException {
+        MockHttpServletResponse response = serve(get(null));
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, body(response));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("text/plain", response.getContentType());
+    }
+
+    @Test
+    void singleRanges() throws IOException {
+        assertPartial("bytes=0-4", "01234", "bytes 0-4/20");
+        assertPartial("bytes=15-", "fghij", "bytes 15-19/20");
+        assertPartial("bytes=-3", "hij", "bytes 17-19/20");
+        // 结束位置超出文件长度时截到末尾
+        assertPartial("bytes=18-100", "ij", "bytes 18-19/20");
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreMerged() throws IOException {
+        assertPartial("bytes=5-9,0-4", "0123456789", "bytes 0-9/20");
+        assertPartial("bytes=2-6,4-8", "2345678", "bytes 2-8/20");
+    }
+
+    @Test
+    void multipleRangesUseMultipartByteranges() throws IOException {
+        MockHttpServletResponse response = serve(get("bytes=0-1,10-11"));
+        assertEquals(206, response.getStatus());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        String body = body(response);
+        assertEquals(body.length(), response.getContentLengthLong());
+        assertEquals("\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+                + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 10-11/20\r\n\r\nab"
+                + "\r\n--" + boundary + "--\r\n", body);
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws IOException {
+        MockHttpServletResponse response = serve(get("bytes=20-30"));
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void malformedOrExcessiveRangesReturnWholeFile() throws IOException {
+        assertWhole(get("bytes=abc"));
+        assertWhole(get("items=0-1"));
+    }
+
+    @Test
+    void tooManyRangesReturnWholeFile() throws IOException {
+        file = Files.writeString(dir.resolve("b.txt"), "x".repeat(100));
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i = 2; i < 40; i += 2) {
+            many.append(',').append(i).append('-').append(i);
+        }
+        MockHttpServletResponse response = serve(get(many.toString()));
+        assertEquals(200, response.getStatus());
+        assertEquals(100, response.getContentLengthLong());
+    }
+
+    @Test
+    void ifRangeMustMatchStrongEtag() throws IOException {
+        String etag = serve(get(null)).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest matching = get("bytes=0-1");
+        matching.addHeader(HttpHeaders.IF_RANGE, etag);
+        assertEquals(206, serve(matching).getStatus());
+
+        MockHttpServletRequest stale = get("bytes=0-1");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        assertWhole(stale);
+
+        MockHttpServletRequest weak = get("bytes=0-1");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/" + etag);
+        assertWhole(weak);
+    }
+
+    @Test
+    void ifRangeDateComparesSeconds() throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        MockHttpServletRequest matching = get("bytes=0-1");
+        matching.addHeader(HttpHeaders.IF_RANGE, httpDate(modified));
+        MockHttpServletRequest older = get("bytes=0-1");
+        older.addHeader(HttpHeaders.IF_RANGE, httpDate(modified - 10_000));
+
+        assertEquals(206, serve(matching).getStatus());
+        assertWhole(older);
+    }
+
+    @Test
+    void rangeIsIgnoredForOtherMethods() throws IOException {
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/uploads/a.txt");
+        post.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        assertWhole(post);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/uploads/a.txt");
+        head.addHeader(HttpHeaders.RANGE, "bytes=0-4");
+        MockHttpServletResponse response = serve(head);
+        assertEquals(206, response.getStatus());
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void missingFileReturns404() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(get(null), response, dir.resolve("missing"), null, null, null);
+        assertEquals(404, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    private void assertPartial(String range, String body, String contentRange) throws IOException {
+        MockHttpServletResponse response = serve(get(range));
+        assertEquals(206, response.getStatus(), range);
+        assertEquals(contentRange, response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        assertEquals(body.length(), response.getContentLengthLong(), range);
+        assertEquals(body, body(response), range);
+    }
+
+    private void assertWhole(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = serve(request);
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(CONTENT, body(response));
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(request, response, file, "text/plain", null, null);
+        return response;
+    }
+
+    private static String body(MockHttpServletResponse response) {
+        return new String(response.getContentAsByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+
+    private static MockHttpServletRequest get(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/a.txt");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.service;
+
+import org.example.util.SingleFlightRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final ImageDerivativeService service = new ImageDerivativeService();
+
+    @BeforeEach
+    void setUp() {
+        SingleFlightRegistry registry = new SingleFlightRegistry();
+        ReflectionTestUtils.setField(registry, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "singleFlightRegistry", registry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "widths", new int[]{480, 240});
+        ReflectionTestUtils.setField(service, "qualities", new float[]{0.8f, 0.85f});
+        ReflectionTestUtils.setField(service, "pregenerate", false);
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueSize", 4);
+        ReflectionTestUtils.setField(service, "timeoutMs", 10_000L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void resolvesSmallestWidthNotBelowRequest() throws IOException {
+        Path original = png("a.png", 1000, 500);
+
+        ImageDerivativeService.Resolved resolved = service.resolve(original, 300);
+        assertEquals(dir.resolve("a.w480.jpg"), resolved.file());
+        assertFalse(resolved.temporary());
+        assertEquals(480, ImageIO.read(resolved.file().toFile()).getWidth());
+
+        assertEquals(dir.resolve("a.w240.jpg"), service.resolve(original, 100).file());
+        // 超过最大档位时取最大档位
+        assertEquals(dir.resolve("a.w480.jpg"), service.resolve(original, 2000).file());
+    }
+
+    @Test
+    void widthsAreSortedTogetherWithQualities() {
+        assertArrayEquals(new int[]{240, 480}, (int[]) ReflectionTestUtils.getField(service, "widths"));
+        assertArrayEquals(new float[]{0.85f, 0.8f}, (float[]) ReflectionTestUtils.getField(service, "qualities"));
+    }
+
+    @Test
+    void narrowOriginalIsReturnedAsPermanent() throws IOException {
+        Path original = png("narrow.png", 300, 300);
+
+        ImageDerivativeService.Resolved resolved = service.resolve(original, 480);
+        assertEquals(original, resolved.file());
+        assertFalse(resolved.temporary());
+        // 第二次命中缓存的结论，结果相同
+        assertEquals(new ImageDerivativeService.Resolved(original, false), service.resolve(original, 480));
+        assertFalse(Files.exists(dir.resolve("narrow.w480.jpg")));
+    }
+
+    @Test
+    void derivativesAreNotUsedAsSources() throws IOException {
+        Path derivative = png("a.w480.jpg", 480, 240);
+
+        assertEquals(new ImageDerivativeService.Resolved(derivative, false), service.resolve(derivative, 240));
+        assertFalse(Files.exists(dir.resolve("a.w480.w240.jpg")));
+    }
+
+    @Test
+    void noWidthOrMissingFileReturnsOriginal() throws IOException {
+        Path original = png("a.png", 1000, 500);
+        assertEquals(new ImageDerivativeService.Resolved(original, false), service.resolve(original, 0));
+        Path missing = dir.resolve("missing.png");
+        assertEquals(new ImageDerivativeService.Resolved(missing, false), service.resolve(missing, 240));
+    }
+
+    @Test
+    void deleteAndMoveDerivatives() throws IOException {
+        Path original = png("a.png", 1000, 500);
+        service.resolve(original, 240);
+        service.resolve(original, 480);
+
+        Path moved = Files.createDirectories(dir.resolve("ab/cd")).resolve("a.png");
+        service.moveDerivatives(original, moved);
+        assertFalse(Files.exists(dir.resolve("a.w240.jpg")));
+        assertTrue(Files.exists(dir.resolve("ab/cd/a.w240.jpg")));
+        assertTrue(Files.exists(dir.resolve("ab/cd/a.w480.jpg")));
+
+        service.deleteDerivatives(moved);
+        assertFalse(Files.exists(dir.resolve("ab/cd/a.w240.jpg")));
+        assertFalse(Files.exists(dir.resolve("ab/cd/a.w480.jpg")));
+    }
+
+    private Path png(String name, int width, int height) throws IOException {
+        Path file = dir.resolve(name);
+        String format = name.endsWith(".jpg") ? "jpeg" : "png";
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class LoginThrottleTest {
+
+    @Test
+    void perIpAndUserBucketStopsRepeatedGuesses() {
+        LoginThrottle throttle = throttle(2, 1, 100, 1, 100, 1);
+
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        long wait = throttle.tryAcquire("login", "10.0.0.1", "alice");
+        // 每分钟补充 1 次，约需等待一分钟
+        assertTrue(wait > 55_000 && wait <= 60_000, "wait=" + wait);
+
+        // 同一 IP 的其他用户名、其他 IP 的同一用户名不受影响
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "bob"));
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.2", "alice"));
+        // 登录和注册的额度分开
+        assertEquals(0, throttle.tryAcquire("register", "10.0.0.1", "alice"));
+    }
+
+    @Test
+    void usernameBucketLimitsAttemptsAcrossIps() {
+        LoginThrottle throttle = throttle(5, 1, 100, 1, 3, 1);
+
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(0, throttle.tryAcquire("login", "10.0.0." + i, "alice"));
+        }
+        assertTrue(throttle.tryAcquire("login", "10.0.0.4", "alice") > 0);
+        assertTrue(throttle.tryAcquire("login", "10.0.0.5", "alice") > 0);
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.5", "bob"));
+    }
+
+    @Test
+    void ipBucketLimitsAttemptsAcrossUsernames() {
+        LoginThrottle throttle = throttle(5, 1, 2, 1, 100, 1);
+
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "a"));
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "b"));
+        assertTrue(throttle.tryAcquire("login", "10.0.0.1", "c") > 0);
+        assertTrue(throttle.tryAcquire("login", "10.0.0.1", null) > 0);
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.2", "c"));
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws InterruptedException {
+        // 每分钟补充 60000 次，即每毫秒 1 次
+        LoginThrottle throttle = throttle(1, 60_000, 100, 60_000, 100, 60_000);
+
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        long wait = throttle.tryAcquire("login", "10.0.0.1", "alice");
+        assertTrue(wait >= 1 && wait <= 2, "wait=" + wait);
+
+        Thread.sleep(wait + 5);
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+    }
+
+    @Test
+    void disabledThrottleAlwaysAllows() {
+        LoginThrottle throttle = throttle(1, 1, 1, 1, 1, 1);
+        ReflectionTestUtils.setField(throttle, "enabled", false);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        }
+    }
+
+    @Test
+    void redisFailureFallsBackToLocalBuckets() {
+        LoginThrottle throttle = throttle(1, 1, 100, 1, 100, 1);
+        StringRedisTemplate redis = mock(StringRedisTemplate.class, invocation -> {
+            throw new IllegalStateException("redis down");
+        });
+        ReflectionTestUtils.setField(throttle, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(throttle, "redisEnabled", true);
+
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        assertTrue(throttle.tryAcquire("login", "10.0.0.1", "alice") > 0);
+    }
+
+    @Test
+    void redisBucketDecidesWhenAvailable() {
+        LoginThrottle throttle = throttle(1, 1, 100, 1, 100, 1);
+        // 只有用户名 alice 的共享桶已耗尽
+        StringRedisTemplate redis = mock(StringRedisTemplate.class, invocation ->
+                List.of("vblog:throttle:login:username:alice").equals(invocation.getArgument(1)) ? 4000L : 0L);
+        ReflectionTestUtils.setField(throttle, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(throttle, "redisEnabled", true);
+
+        assertEquals(4000L, throttle.tryAcquire("login", "10.0.0.1", "alice"));
+        assertEquals(4000L, throttle.tryAcquire("login", "10.0.0.2", "alice"));
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1", "bob"));
+    }
+
+    private static LoginThrottle throttle(long userCapacity, double userPerMinute,
+                                          long ipCapacity, double ipPerMinute,
+                                          long usernameCapacity, double usernamePerMinute) {
+        LoginThrottle throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "redisEnabled", false);
+        ReflectionTestUtils.setField(throttle, "userCapacity", userCapacity);
+        ReflectionTestUtils.setField(throttle, "userPerMinute", userPerMinute);
+        ReflectionTestUtils.setField(throttle, "ipCapacity", ipCapacity);
+        ReflectionTestUtils.setField(throttle, "ipPerMinute", ipPerMinute);
+        ReflectionTestUtils.setField(throttle, "usernameCapacity", usernameCapacity);
+        ReflectionTestUtils.setField(throttle, "usernamePerMinute", usernamePerMinute);
+        throttle.init();
+        return throttle;
+    }
+}
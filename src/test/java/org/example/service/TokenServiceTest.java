@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.example.cache.SessionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTest {
+
+    private static final long EXPIRATION = 3_600_000L;
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, Object> valueOps = mock(ValueOperations.class);
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private final RevocationService revocationService = mock(RevocationService.class);
+    private final SessionCache sessionCache = new SessionCache();
+    private final TokenService tokenService = new TokenService();
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+        ReflectionTestUtils.setField(sessionCache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(sessionCache, "enabled", true);
+        ReflectionTestUtils.setField(sessionCache, "ttlMs", 30_000L);
+        ReflectionTestUtils.setField(sessionCache, "maxSize", 100L);
+        sessionCache.init();
+
+        ReflectionTestUtils.setField(tokenService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(tokenService, "sessionCache", sessionCache);
+        ReflectionTestUtils.setField(tokenService, "revocationService", revocationService);
+        ReflectionTestUtils.setField(tokenService, "expiration", EXPIRATION);
+    }
+
+    @Test
+    void loginElsewhereInvalidatesCachedOldToken() {
+        cacheVerified("old-token", "alice");
+        cacheVerified("bob-token", "bob");
+        when(valueOps.get("vblog:token:alice")).thenReturn("old-token");
+
+        tokenService.saveToken("alice", "new-token");
+
+        assertFalse(sessionCache.isValid("old-token", "alice"));
+        assertTrue(sessionCache.isValid("bob-token", "bob"));
+        verify(stringRedisTemplate).convertAndSend(SessionCache.INVALIDATE_CHANNEL, "alice");
+    }
+
+    @Test
+    void invalidationHappensAfterTheNewTokenIsStored() {
+        when(valueOps.get("vblog:token:alice")).thenReturn("old-token");
+
+        tokenService.saveToken("alice", "new-token");
+
+        // 先清缓存再写 Redis 时，其他节点可能在两者之间用旧 Token 重新校验通过并写回缓存
+        InOrder order = inOrder(valueOps, stringRedisTemplate);
+        order.verify(valueOps).set("vblog:token:alice", "new-token", EXPIRATION, TimeUnit.MILLISECONDS);
+        order.verify(stringRedisTemplate).convertAndSend(SessionCache.INVALIDATE_CHANNEL, "alice");
+    }
+
+    @Test
+    void firstLoginOrSameTokenDoesNotBroadcast() {
+        cacheVerified("token", "alice");
+
+        tokenService.saveToken("alice", "token");
+        when(valueOps.get("vblog:token:alice")).thenReturn("token");
+        tokenService.saveToken("alice", "token");
+
+        assertTrue(sessionCache.isValid("token", "alice"));
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void statelessModeAlsoRevokesReplacedToken() {
+        when(revocationService.isEnabled()).thenReturn(true);
+        when(valueOps.get("vblog:token:alice")).thenReturn("old-token");
+
+        tokenService.saveToken("alice", "new-token");
+
+        verify(revocationService).revokeToken("old-token");
+        verify(stringRedisTemplate).convertAndSend(SessionCache.INVALIDATE_CHANNEL, "alice");
+        verify(valueOps).set(eq("vblog:activity:alice"), any(), eq(EXPIRATION), eq(TimeUnit.MILLISECONDS));
+    }
+
+    private void cacheVerified(String token, String username) {
+        sessionCache.put(token, username, System.currentTimeMillis() + EXPIRATION, sessionCache.currentGeneration());
+    }
+}
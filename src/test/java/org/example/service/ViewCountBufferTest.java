@@ -0,0 +1,109 @@
+package org.example.service;
+
+import org.example.cache.NoteCache;
+import org.example.entity.Note;
+import org.example.mapper.NoteMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ViewCountBufferTest {
+
+    private final NoteMapper noteMapper = mock(NoteMapper.class);
+    private final NoteCache noteCache = mock(NoteCache.class);
+    private final NoteSuggestService noteSuggestService = mock(NoteSuggestService.class);
+    private final ViewCountBuffer buffer = new ViewCountBuffer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(buffer, "noteMapper", noteMapper);
+        ReflectionTestUtils.setField(buffer, "noteCache", noteCache);
+        ReflectionTestUtils.setField(buffer, "noteSuggestService", noteSuggestService);
+        ReflectionTestUtils.setField(buffer, "redisEnabled", false);
+        when(noteCache.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void flushWritesOneBatchAndUpdatesCachedCounts() {
+        buffer.record(1L);
+        buffer.record(1L);
+        buffer.record(2L);
+        assertEquals(2, buffer.getPending(1L));
+        when(noteMapper.findViewCountsByIds(Set.of(1L, 2L))).thenReturn(List.of(note(1L, 12), note(2L, 3)));
+
+        buffer.flush();
+
+        verify(noteMapper).increaseViewCounts(Map.of(1L, 2L, 2L, 1L));
+        verify(noteCache).updateViewCounts(Map.of(1L, 12, 2L, 3));
+        verify(noteSuggestService).addViews(Map.of(1L, 2L, 2L, 1L));
+        assertEquals(0, buffer.getPending(1L));
+        assertEquals(0, buffer.getPending(2L));
+    }
+
+    @Test
+    void emptyFlushTouchesNothing() {
+        buffer.flush();
+
+        verifyNoInteractions(noteMapper, noteSuggestService);
+    }
+
+    @Test
+    void failedWriteIsRetriedWithTheSameDeltas() {
+        buffer.record(1L);
+        when(noteMapper.increaseViewCounts(anyMap())).thenThrow(new IllegalStateException("db down")).thenReturn(1);
+
+        buffer.flush();
+        assertEquals(1, buffer.getPending(1L));
+        verify(noteCache, never()).updateViewCounts(anyMap());
+
+        buffer.record(1L);
+        buffer.flush();
+        verify(noteMapper).increaseViewCounts(Map.of(1L, 1L));
+        verify(noteMapper).increaseViewCounts(Map.of(1L, 2L));
+        assertEquals(0, buffer.getPending(1L));
+    }
+
+    @Test
+    void cacheRefreshFailureDoesNotRewriteCounts() {
+        buffer.record(1L);
+        when(noteMapper.findViewCountsByIds(any())).thenThrow(new IllegalStateException("timeout"));
+
+        buffer.flush();
+        buffer.flush();
+
+        verify(noteMapper, times(1)).increaseViewCounts(anyMap());
+        assertEquals(0, buffer.getPending(1L));
+    }
+
+    @Test
+    void disabledCacheSkipsReadBack() {
+        when(noteCache.isEnabled()).thenReturn(false);
+        buffer.record(1L);
+
+        buffer.flush();
+
+        verify(noteMapper).increaseViewCounts(Map.of(1L, 1L));
+        verify(noteMapper, never()).findViewCountsByIds(any());
+    }
+
+    private static Note note(Long id, int viewCount) {
+        Note note = new Note();
+        note.setId(id);
+        note.setViewCount(viewCount);
+        return note;
+    }
+}
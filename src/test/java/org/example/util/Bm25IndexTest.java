@@ -0,0 +1,87 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    @Test
+    void toDocMergesRepeatedTermsWithWeights() {
+        Bm25Index.Doc doc = Bm25Index.toDoc(1, List.of("a", "b", "a"), new int[]{3, 1, 1});
+        assertEquals(5, doc.length());
+        for (int i = 0; i < doc.terms().length; i++) {
+            assertEquals(doc.terms()[i].equals("a") ? 4 : 1, doc.freqs()[i]);
+        }
+    }
+
+    @Test
+    void higherTermFrequencyRanksFirst() {
+        Bm25Index index = new Bm25Index();
+        index.put(Bm25Index.toDoc(1, List.of("java", "spring", "redis"), null));
+        index.put(Bm25Index.toDoc(2, List.of("java", "java", "redis"), null));
+        index.put(Bm25Index.toDoc(3, List.of("mysql", "redis", "redis"), null));
+
+        List<Bm25Index.Hit> hits = index.search(List.of("java"), 10, id -> true);
+        assertArrayEquals(new long[]{2, 1}, ids(hits));
+    }
+
+    @Test
+    void rareTermOutweighsCommonTerm() {
+        Bm25Index index = new Bm25Index();
+        index.put(Bm25Index.toDoc(1, List.of("common", "rare"), null));
+        index.put(Bm25Index.toDoc(2, List.of("common", "common"), null));
+        index.put(Bm25Index.toDoc(3, List.of("common", "other"), null));
+
+        List<Bm25Index.Hit> hits = index.search(List.of("common", "rare"), 10, id -> true);
+        assertEquals(1, hits.get(0).id());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void limitAndFilterAreApplied() {
+        Bm25Index index = new Bm25Index();
+        for (long id = 1; id <= 10; id++) {
+            index.put(Bm25Index.toDoc(id, List.of("note"), null));
+        }
+        List<Bm25Index.Hit> hits = index.search(List.of("note"), 3, id -> id % 2 == 0);
+        assertEquals(3, hits.size());
+        // 得分相同时按 ID 升序保留和排序
+        assertArrayEquals(new long[]{2, 4, 6}, ids(hits));
+    }
+
+    @Test
+    void replaceAndRemoveUpdatePostings() {
+        Bm25Index index = new Bm25Index();
+        index.put(Bm25Index.toDoc(1, List.of("old", "shared"), null));
+        index.put(Bm25Index.toDoc(2, List.of("shared"), null));
+        assertEquals(2, index.termCount());
+
+        index.put(Bm25Index.toDoc(1, List.of("new", "shared"), null));
+        assertTrue(index.search(List.of("old"), 10, id -> true).isEmpty());
+        assertArrayEquals(new long[]{1}, ids(index.search(List.of("new"), 10, id -> true)));
+        assertEquals(2, index.termCount());
+
+        index.remove(1);
+        index.remove(99);
+        assertEquals(1, index.size());
+        assertEquals(1, index.termCount());
+        assertTrue(index.search(List.of("new"), 10, id -> true).isEmpty());
+    }
+
+    @Test
+    void emptyIndexOrQueryReturnsNothing() {
+        Bm25Index index = new Bm25Index();
+        assertTrue(index.search(List.of("x"), 10, id -> true).isEmpty());
+        index.put(Bm25Index.toDoc(1, List.of("x"), null));
+        assertTrue(index.search(List.of(), 10, id -> true).isEmpty());
+    }
+
+    private static long[] ids(List<Bm25Index.Hit> hits) {
+        return hits.stream().mapToLong(Bm25Index.Hit::id).toArray();
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CjkTokenizerTest {
+
+    @Test
+    void cjkRunsAreSplitIntoBigrams() {
+        assertEquals(List.of("笔记", "记系", "系统"), CjkTokenizer.tokenize("笔记系统"));
+    }
+
+    @Test
+    void singleCjkCharacterIsKept() {
+        assertEquals(List.of("书", "java"), CjkTokenizer.tokenize("书 Java"));
+    }
+
+    @Test
+    void mixedTextIsSplitAtScriptAndPunctuationBoundaries() {
+        assertEquals(List.of("spring", "boot", "缓存", "存设", "设计", "v2"),
+                CjkTokenizer.tokenize("Spring-Boot缓存设计，V2!"));
+    }
+
+    @Test
+    void longWordsAreTruncated() {
+        List<String> tokens = CjkTokenizer.tokenize("a".repeat(100));
+        assertEquals(1, tokens.size());
+        assertEquals(32, tokens.get(0).length());
+    }
+
+    @Test
+    void emptyInput() {
+        assertTrue(CjkTokenizer.tokenize(null).isEmpty());
+        assertTrue(CjkTokenizer.tokenize("  ，。 ").isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientIpResolverTest {
+
+    @Test
+    void withoutTrustedProxiesForwardedHeaderIsIgnored() {
+        ClientIpResolver resolver = resolver();
+
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "1.2.3.4")));
+    }
+
+    @Test
+    void untrustedPeerCannotSetClientIp() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertEquals("203.0.113.9", resolver.resolve(request("203.0.113.9", "1.2.3.4")));
+    }
+
+    @Test
+    void walksForwardedForFromTheRightSkippingTrustedProxies() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8", "192.168.1.1");
+
+        assertEquals("198.51.100.7", resolver.resolve(request("10.0.0.5", "198.51.100.7")));
+        assertEquals("198.51.100.7", resolver.resolve(request("10.0.0.5", "198.51.100.7, 192.168.1.1")));
+        assertEquals("198.51.100.7", resolver.resolve(request("10.0.0.5", "198.51.100.7,10.1.2.3, 192.168.1.1")));
+    }
+
+    @Test
+    void spoofedLeftmostHopIsNotTrusted() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        // 客户端自己带上的 X-Forwarded-For 在最左边，代理追加的真实地址在右边
+        assertEquals("198.51.100.7", resolver.resolve(request("10.0.0.5", "1.1.1.1, 198.51.100.7")));
+        // 伪造成可信代理的地址也无法越过真实的客户端地址
+        assertEquals("198.51.100.7", resolver.resolve(request("10.0.0.5", "8.8.8.8, 10.9.9.9, 198.51.100.7")));
+    }
+
+    @Test
+    void malformedHopStopsTheWalk() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "evil.example.com")));
+        assertEquals("10.2.2.2", resolver.resolve(request("10.0.0.5", "198.51.100.7, unknown, 10.2.2.2")));
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", "256.1.1.1")));
+    }
+
+    @Test
+    void allHopsTrustedResolvesToLeftmost() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertEquals("10.3.3.3", resolver.resolve(request("10.0.0.5", "10.3.3.3, 10.4.4.4")));
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", " ")));
+        assertEquals("10.0.0.5", resolver.resolve(request("10.0.0.5", null)));
+    }
+
+    @Test
+    void supportsIpv6Proxies() {
+        ClientIpResolver resolver = resolver("fd00::/8");
+
+        assertEquals("2001:db8::1", resolver.resolve(request("fd00::1", "2001:db8::1")));
+        assertEquals("fe80::1", resolver.resolve(request("fe80::1", "2001:db8::1")));
+    }
+
+    @Test
+    void invalidProxyConfigurationFailsAtStartup() {
+        assertThrows(IllegalArgumentException.class, () -> resolver("proxy.internal"));
+    }
+
+    private static ClientIpResolver resolver(String... trustedProxies) {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxies", trustedProxies);
+        resolver.init();
+        return resolver;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/user/login");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.util;
+
+import org.example.common.CursorPage;
+import org.example.dto.ListVersion;
+import org.example.entity.Plan;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EtagUtilTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+
+    @Test
+    void strongEtagContainsTypeIdAndTime() {
+        String etag = EtagUtil.strong("note", 5L, UPDATED);
+        assertEquals("\"note-5-" + millis(UPDATED) + "\"", etag);
+        assertEquals("\"note-5-0\"", EtagUtil.strong("note", 5L, null));
+    }
+
+    @Test
+    void weakEtagDependsOnScopeAndVersion() {
+        ListVersion version = version(3, UPDATED);
+        String etag = EtagUtil.weak(version, 1L, null, 20);
+        assertTrue(etag.startsWith("W/\"") && etag.endsWith("\""));
+        assertEquals(etag, EtagUtil.weak(version(3, UPDATED), 1L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(version, 2L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(version(2, UPDATED), 1L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(version(3, UPDATED.plusSeconds(1)), 1L, null, 20));
+    }
+
+    @Test
+    void pageEtagDependsOnRowsAndNextCursor() {
+        CursorPage<Plan> page = new CursorPage<>(List.of(plan(1L, UPDATED), plan(2L, UPDATED)), "next");
+        String etag = EtagUtil.weak(page, Plan::getId, Plan::getUpdateTime, "plan-user", 7L, null, 20);
+        assertTrue(etag.startsWith("W/\""));
+        assertEquals(etag, EtagUtil.weak(new CursorPage<>(List.of(plan(1L, UPDATED), plan(2L, UPDATED)), "next"),
+                Plan::getId, Plan::getUpdateTime, "plan-user", 7L, null, 20));
+        // 本页有行被修改、被其他行替换，或下一页游标变化
+        assertNotEquals(etag, EtagUtil.weak(new CursorPage<>(List.of(plan(1L, UPDATED), plan(2L, UPDATED.plusSeconds(1))), "next"),
+                Plan::getId, Plan::getUpdateTime, "plan-user", 7L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(new CursorPage<>(List.of(plan(1L, UPDATED), plan(3L, UPDATED)), "next"),
+                Plan::getId, Plan::getUpdateTime, "plan-user", 7L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(new CursorPage<>(List.of(plan(1L, UPDATED), plan(2L, UPDATED)), null),
+                Plan::getId, Plan::getUpdateTime, "plan-user", 7L, null, 20));
+        assertNotEquals(etag, EtagUtil.weak(page, Plan::getId, Plan::getUpdateTime, "plan-user", 8L, null, 20));
+    }
+
+    @Test
+    void matchingEtagReturns304WithValidators() {
+        String etag = EtagUtil.strong("note", 5L, UPDATED);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(EtagUtil.isConditional(request));
+        assertTrue(EtagUtil.checkNotModified(request, response, etag, UPDATED));
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(millis(UPDATED), response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void weakEtagMatchesForGet() {
+        String etag = EtagUtil.weak(version(1, UPDATED), 1L);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(EtagUtil.checkNotModified(request, response, etag, null));
+        assertEquals(304, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void ifModifiedSinceMatchReturns304() {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, millis(UPDATED));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(EtagUtil.checkNotModified(request, response, EtagUtil.strong("note", 5L, UPDATED), UPDATED));
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void modifiedResponseGetsValidatorsOnlyWhenApplied() {
+        String etag = EtagUtil.strong("note", 5L, UPDATED);
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"note-5-0\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(EtagUtil.checkNotModified(request, response, etag, UPDATED));
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+
+        EtagUtil.applyValidators(request, response);
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(millis(UPDATED), response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void applyValidatorsWithoutCheckDoesNothing() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        EtagUtil.applyValidators(get(), response);
+        assertTrue(response.getHeaderNames().isEmpty());
+        assertFalse(EtagUtil.isConditional(get()));
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/note/5");
+    }
+
+    private static Plan plan(Long id, LocalDateTime updateTime) {
+        Plan plan = new Plan();
+        plan.setId(id);
+        plan.setUpdateTime(updateTime);
+        return plan;
+    }
+
+    private static ListVersion version(long rows, LocalDateTime lastModified) {
+        ListVersion version = new ListVersion();
+        version.setRowCount(rows);
+        version.setLastModified(lastModified);
+        return version;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageResizerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resizesToRequestedWidthKeepingAspectRatio() throws IOException {
+        Path source = png("a.png", 1000, 500);
+        Path target = dir.resolve("a.w240.jpg");
+
+        assertTrue(ImageResizer.resizeToJpeg(source, target, 240, 0.8f));
+        BufferedImage resized = ImageIO.read(target.toFile());
+        assertEquals(240, resized.getWidth());
+        assertEquals(120, resized.getHeight());
+    }
+
+    @Test
+    void transparentPixelsAreDrawnOnWhite() throws IOException {
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+        Path source = dir.resolve("t.png");
+        ImageIO.write(image, "png", source.toFile());
+        Path target = dir.resolve("t.w100.jpg");
+
+        assertTrue(ImageResizer.resizeToJpeg(source, target, 100, 0.9f));
+        Color center = new Color(ImageIO.read(target.toFile()).getRGB(50, 50));
+        assertTrue(center.getRed() > 240 && center.getGreen() > 240 && center.getBlue() > 240);
+    }
+
+    @Test
+    void imageNotWiderThanTargetIsNotResized() throws IOException {
+        Path source = png("small.png", 240, 100);
+        Path target = dir.resolve("small.w240.jpg");
+        assertFalse(ImageResizer.resizeToJpeg(source, target, 240, 0.8f));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void unsupportedFormatIsNotResized() throws IOException {
+        Path source = Files.writeString(dir.resolve("a.txt"), "not an image");
+        assertFalse(ImageResizer.resizeToJpeg(source, dir.resolve("a.w240.jpg"), 240, 0.8f));
+    }
+
+    private Path png(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        Path file = dir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultipartStreamTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+    @Test
+    void boundaryOf() {
+        assertEquals("abc", MultipartStream.boundaryOf("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartStream.boundaryOf("Multipart/Form-Data; charset=utf-8; Boundary=\"a b\""));
+        assertNull(MultipartStream.boundaryOf("application/json"));
+        assertNull(MultipartStream.boundaryOf("multipart/form-data"));
+        assertNull(MultipartStream.boundaryOf(null));
+        assertNull(MultipartStream.boundaryOf("multipart/form-data; boundary=" + "x".repeat(71)));
+    }
+
+    @Test
+    void rejectsNonMultipartContentType() {
+        assertThrows(RuntimeException.class,
+                () -> new MultipartStream(new ByteArrayInputStream(new byte[0]), "text/plain", 1024));
+    }
+
+    @Test
+    void readsFieldsAndFile() throws IOException {
+        byte[] file = "hello\r\nworld".getBytes(StandardCharsets.UTF_8);
+        byte[] body = body(
+                field("type", "image"),
+                filePart("file", "笔记 图.png", "image/png", file));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), CONTENT_TYPE, 1024);
+        MultipartStream.Part part = stream.nextPart();
+        assertEquals(new MultipartStream.Part("type", null, null), part);
+        assertEquals("image", new String(stream.getPartStream().readAllBytes(), StandardCharsets.UTF_8));
+
+        part = stream.nextPart();
+        assertEquals(new MultipartStream.Part("file", "笔记 图.png", "image/png"), part);
+        assertArrayEquals(file, stream.getPartStream().readAllBytes());
+
+        assertNull(stream.nextPart());
+        assertNull(stream.nextPart());
+    }
+
+    @Test
+    void skipsUnreadPartsAndPreamble() throws IOException {
+        byte[] body = concat("preamble text\r\n".getBytes(StandardCharsets.US_ASCII),
+                body(field("a", "1"), field("b", "2"), field("c", "3")));
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), CONTENT_TYPE, 1024);
+        assertEquals("a", stream.nextPart().name());
+        assertEquals("b", stream.nextPart().name());
+        assertEquals("c", stream.nextPart().name());
+        assertEquals("3", new String(stream.getPartStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(stream.nextPart());
+    }
+
+    @Test
+    void binaryContentSurvivesSmallReadsAndNearDelimiters() throws IOException {
+        Random random = new Random(7);
+        byte[] file = new byte[100_000];
+        random.nextBytes(file);
+        // 内容中夹带分隔符的前缀，不能被当作分隔符
+        byte[] almost = ("\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1)).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(almost, 0, file, 5000, almost.length);
+        System.arraycopy(almost, 0, file, file.length - almost.length, almost.length);
+
+        byte[] body = body(filePart("file", "a.bin", "application/octet-stream", file), field("after", "x"));
+        for (int maxRead : new int[]{1, 7, 100, 8192}) {
+            MultipartStream stream = new MultipartStream(new TrickleInputStream(body, maxRead), CONTENT_TYPE, 64);
+            assertEquals("a.bin", stream.nextPart().filename());
+            assertArrayEquals(file, readInSmallPieces(stream.getPartStream(), random));
+            assertEquals("after", stream.nextPart().name());
+            assertEquals("x", new String(stream.getPartStream().readAllBytes(), StandardCharsets.UTF_8));
+            assertNull(stream.nextPart());
+        }
+    }
+
+    @Test
+    void truncatedBodyFails() {
+        byte[] body = body(filePart("file", "a.bin", "application/octet-stream", new byte[1000]));
+        byte[] truncated = Arrays.copyOf(body, body.length - 60);
+        assertThrows(IOException.class, () -> {
+            MultipartStream stream = new MultipartStream(new ByteArrayInputStream(truncated), CONTENT_TYPE, 1024);
+            stream.nextPart();
+            stream.getPartStream().readAllBytes();
+        });
+    }
+
+    @Test
+    void oversizedHeaderFails() {
+        String header = "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + "n".repeat(10_000) + "\"\r\n\r\nv\r\n--"
+                + BOUNDARY + "--\r\n";
+        assertThrows(IOException.class, () -> new MultipartStream(
+                new ByteArrayInputStream(header.getBytes(StandardCharsets.US_ASCII)), CONTENT_TYPE, 1024).nextPart());
+    }
+
+    private static byte[] readInSmallPieces(InputStream in, Random random) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[333];
+        int n;
+        while ((n = in.read(buffer, 0, 1 + random.nextInt(buffer.length))) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] field(String name, String value) {
+        return part("Content-Disposition: form-data; name=\"" + name + "\"\r\n",
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] filePart(String name, String filename, String contentType, byte[] content) {
+        return part("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n", content);
+    }
+
+    private static byte[] part(String headers, byte[] content) {
+        return concat(("--" + BOUNDARY + "\r\n" + headers + "\r\n").getBytes(StandardCharsets.UTF_8),
+                content, "\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] body(byte[]... parts) {
+        return concat(concat(parts), ("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            out.writeBytes(array);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 每次最多返回 maxRead 个字节，模拟网络分段到达
+     */
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+
+        private final int maxRead;
+
+        TrickleInputStream(byte[] data, int maxRead) {
+            super(data);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, maxRead));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TitleTrieTest {
+
+    @Test
+    void normalizeLowercasesAndCollapsesWhitespace() {
+        assertEquals("spring boot 入门", TitleTrie.normalize("  Spring \t Boot\n入门  "));
+        assertEquals("", TitleTrie.normalize(null));
+        assertEquals(TitleTrie.MAX_KEY_LENGTH, TitleTrie.normalize("x".repeat(200)).length());
+    }
+
+    @Test
+    void suggestReturnsPrefixMatchesByScore() {
+        TitleTrie trie = new TitleTrie(10);
+        trie.put(1, "Java 并发", 5);
+        trie.put(2, "JavaScript 入门", 50);
+        trie.put(3, "Jakarta EE", 20);
+        trie.put(4, "Redis 缓存", 100);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(trie.suggest("ja", 10)));
+        assertEquals(List.of(2L, 1L), ids(trie.suggest("JAVA", 10)));
+        assertEquals(List.of(1L), ids(trie.suggest("java  并", 10)));
+        assertEquals("JavaScript 入门", trie.suggest("javas", 10).get(0).title());
+        assertTrue(trie.suggest("jx", 10).isEmpty());
+        assertEquals(List.of(2L), ids(trie.suggest("j", 1)));
+    }
+
+    @Test
+    void equalScoresPreferNewerIds() {
+        TitleTrie trie = new TitleTrie(10);
+        trie.put(1, "abc", 7);
+        trie.put(2, "abd", 7);
+        assertEquals(List.of(2L, 1L), ids(trie.suggest("ab", 10)));
+    }
+
+    @Test
+    void addScoreReordersAndReplaceMovesEntry() {
+        TitleTrie trie = new TitleTrie(10);
+        trie.put(1, "alpha", 1);
+        trie.put(2, "alpine", 2);
+        trie.addScore(1, 5);
+        trie.addScore(99, 5);
+        assertEquals(List.of(1L, 2L), ids(trie.suggest("al", 10)));
+        assertEquals(6, trie.suggest("alpha", 10).get(0).score());
+
+        trie.put(1, "beta", 6);
+        assertEquals(List.of(2L), ids(trie.suggest("al", 10)));
+        assertEquals(List.of(1L), ids(trie.suggest("b", 10)));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    void removingEverythingCollapsesToRoot() {
+        TitleTrie trie = new TitleTrie(3);
+        String[] titles = {"test", "team", "tea", "toast", "te", "t", "teapot"};
+        for (int i = 0; i < titles.length; i++) {
+            trie.put(i, titles[i], i);
+        }
+        for (int i = 0; i < titles.length; i++) {
+            trie.remove(i);
+        }
+        assertEquals(0, trie.size());
+        assertEquals(1, trie.nodeCount());
+        assertTrue(trie.suggest("t", 10).isEmpty());
+    }
+
+    @Test
+    void matchesBruteForceUnderRandomUpdates() {
+        Random random = new Random(42);
+        TitleTrie trie = new TitleTrie(5);
+        Map<Long, TitleTrie.Entry> expected = new HashMap<>();
+        String alphabet = "abc 中";
+
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(200);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                String title = randomTitle(random, alphabet);
+                long score = random.nextInt(50);
+                trie.put(id, title, score);
+                if (TitleTrie.normalize(title).isEmpty()) {
+                    expected.remove(id);
+                } else {
+                    expected.put(id, new TitleTrie.Entry(id, title, score));
+                }
+            } else if (op < 8) {
+                trie.remove(id);
+                expected.remove(id);
+            } else {
+                long delta = random.nextInt(20);
+                trie.addScore(id, delta);
+                expected.computeIfPresent(id, (k, e) -> new TitleTrie.Entry(k, e.title(), e.score() + delta));
+            }
+
+            if (step % 50 == 0) {
+                String title = randomTitle(random, alphabet);
+                String prefix = title.substring(0, random.nextInt(Math.min(3, title.length()) + 1));
+                assertEquals(bruteForce(expected, prefix, 5), trie.suggest(prefix, 5), "prefix=" + prefix);
+            }
+        }
+        assertEquals(expected.size(), trie.size());
+    }
+
+    private static String randomTitle(Random random, String alphabet) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<TitleTrie.Entry> bruteForce(Map<Long, TitleTrie.Entry> entries, String prefix, int limit) {
+        String key = TitleTrie.normalize(prefix);
+        return entries.values().stream()
+                .filter(e -> TitleTrie.normalize(e.title()).startsWith(key))
+                .sorted(Comparator.comparingLong(TitleTrie.Entry::score).reversed()
+                        .thenComparing(Comparator.comparingLong(TitleTrie.Entry::id).reversed()))
+                .limit(limit)
+                .toList();
+    }
+
+    private static List<Long> ids(List<TitleTrie.Entry> entries) {
+        return entries.stream().map(TitleTrie.Entry::id).toList();
+    }
+}
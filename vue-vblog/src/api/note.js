@@ -3,18 +3,19 @@ import request from './request'
 
 
 // 1️⃣ 获取当前用户的笔记列表（需要登录）
-export function getMyNotes() {
-    return request.get('/api/note/my')
+// params 可选：{ size, cursor }，cursor 为上一页返回的 nextCursor
+export function getMyNotes(params) {
+    return request.get('/api/note/my', { params })
 }
 
 // 2️⃣ 获取指定用户的笔记列表（游客可访问）
-export function getUserNotes(userId) {
-    return request.get(`/api/note/user/${userId}`)
+export function getUserNotes(userId, params) {
+    return request.get(`/api/note/user/${userId}`, { params })
 }
 
 // 3️⃣ 获取所有公开笔记（游客可访问）
-export function getPublicNotes() {
-    return request.get('/api/note/public')
+export function getPublicNotes(params) {
+    return request.get('/api/note/public', { params })
 }
 
 // 4️⃣ 获取单条笔记详情（游客可访问）
@@ -44,3 +45,15 @@ export function getNoteCountByUserId(userId) {
     return request.get(`/api/note/count/${userId}`)
 }
 
+
+// 9️⃣ 全文搜索笔记（游客只能搜到公开笔记）
+// params = { q, size }
+export function searchNotes(params) {
+    return request.get('/api/note/search', { params })
+}
+
+// 🔟 标题输入联想（游客只返回公开笔记）
+// params = { prefix, size }
+export function suggestTitles(params) {
+    return request.get('/api/note/suggest', { params })
+}